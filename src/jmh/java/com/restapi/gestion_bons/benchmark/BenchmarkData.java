@@ -0,0 +1,52 @@
+package com.restapi.gestion_bons.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+
+/**
+ * Jeux de données partagés par les benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Lots disponibles d'un même produit, du plus ancien au plus récent, avec
+     * des prix d'achat variés pour que la valorisation ne soit pas triviale.
+     */
+    static List<Lot> lots(Produit produit, int nombre, int quantiteParLot) {
+        LocalDateTime origine = LocalDateTime.now().minusDays(nombre);
+        List<Lot> lots = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            lots.add(Lot.builder()
+                    .id((long) i + 1)
+                    .numeroLot("LOT-BENCH-" + i)
+                    .dateEntree(origine.plusDays(i))
+                    .quantiteInitiale(quantiteParLot)
+                    .quantiteRestante(quantiteParLot)
+                    .prixAchatUnitaire(BigDecimal.valueOf(1_000 + (i % 97) * 13L, 2))
+                    .produit(produit)
+                    .statut(LotStatus.DISPONIBLE)
+                    .version(0L)
+                    .build());
+        }
+        return lots;
+    }
+
+    static Produit produit(long id) {
+        return Produit.builder()
+                .id(id)
+                .reference("BENCH-" + id)
+                .nom("Produit benchmark " + id)
+                .uniteMesure("pièce")
+                .reorderPoint(10)
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.restapi.gestion_bons.benchmark;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
+import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.service.fifo.FifoAllocation;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+
+/**
+ * Planification FIFO d'une ligne de bon qui traverse la moitié des lots d'un
+ * produit. Le chargement des lots est servi par un LotDAO bouchonné : seul le
+ * regroupement et le parcours des lots en mémoire sont mesurés.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FifoAllocationBenchmark {
+
+    private static final int QUANTITE_PAR_LOT = 10;
+
+    @Param({ "10", "1000", "100000" })
+    public int nombreLots;
+
+    private FifoAllocationEngine engine;
+    private List<BonDeSortieLigne> lignes;
+
+    @Setup
+    public void setUp() {
+        Produit produit = BenchmarkData.produit(1L);
+        List<Lot> lots = BenchmarkData.lots(produit, nombreLots, QUANTITE_PAR_LOT);
+
+        LotDAO lotDAO = mock(LotDAO.class);
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
+                .thenReturn(lots);
+        engine = new FifoAllocationEngine(lotDAO, mock(StockBatchDAO.class));
+
+        lignes = List.of(BonDeSortieLigne.builder()
+                .produit(produit)
+                .quantiteDemandee(Math.max(1, nombreLots / 2) * QUANTITE_PAR_LOT)
+                .build());
+    }
+
+    @Benchmark
+    public List<FifoAllocation> planifier() {
+        // planifier ne modifie pas les lots : l'état peut être rechargé à chaque appel
+        return engine.planifier(engine.charger(lignes), lignes);
+    }
+}
@@ -0,0 +1,95 @@
+package com.restapi.gestion_bons.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieResponseDTO;
+import com.restapi.gestion_bons.dto.lot.ResponseLotDTO;
+import com.restapi.gestion_bons.entitie.Atelier;
+import com.restapi.gestion_bons.entitie.BonDeSortie;
+import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.BonDeSortieStatus;
+import com.restapi.gestion_bons.mapper.BonDeSortieMapper;
+import com.restapi.gestion_bons.mapper.LotMapper;
+
+/**
+ * Coût des mappers MapStruct sur les réponses des bons de sortie et des lots.
+ * Les mappers générés sont obtenus d'un contexte Spring limité au package
+ * mapper, pour garder le câblage des mappers utilisés (uses = ...).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({ "1", "50", "500" })
+    public int nombreLignes;
+
+    private AnnotationConfigApplicationContext context;
+    private BonDeSortieMapper bonDeSortieMapper;
+    private LotMapper lotMapper;
+
+    private BonDeSortie bon;
+    private List<Lot> lots;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext("com.restapi.gestion_bons.mapper");
+        bonDeSortieMapper = context.getBean(BonDeSortieMapper.class);
+        lotMapper = context.getBean(LotMapper.class);
+
+        bon = BonDeSortie.builder()
+                .id(1L)
+                .numeroBon("BS-000001")
+                .dateSortie(new Date())
+                .motifSortie("Benchmark")
+                .statut(BonDeSortieStatus.BROUILLON)
+                .atelier(Atelier.builder().id(1L).nom("Atelier benchmark").build())
+                .build();
+        for (long i = 1; i <= nombreLignes; i++) {
+            Produit produit = BenchmarkData.produit(i);
+            bon.getBonDeSortieLignes().add(BonDeSortieLigne.builder()
+                    .id(i)
+                    .bonDeSortie(bon)
+                    .produit(produit)
+                    .quantiteDemandee(5)
+                    .build());
+        }
+        lots = BenchmarkData.lots(BenchmarkData.produit(1L), nombreLignes, 10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BonDeSortieResponseDTO bonDeSortieVersDto() {
+        return bonDeSortieMapper.toResponseDto(bon);
+    }
+
+    @Benchmark
+    public List<ResponseLotDTO> lotsVersDto() {
+        return lotMapper.toResponseDtoList(lots);
+    }
+}
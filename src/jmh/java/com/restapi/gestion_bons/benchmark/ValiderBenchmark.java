@@ -0,0 +1,145 @@
+package com.restapi.gestion_bons.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.restapi.gestion_bons.GestionDesBonsDeSortieApplication;
+import com.restapi.gestion_bons.contracts.BonDeSortieContract;
+import com.restapi.gestion_bons.dao.AtelierDAO;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieResponseDTO;
+import com.restapi.gestion_bons.entitie.Atelier;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+/**
+ * Validation de bout en bout d'un bon de sortie (FIFO, écritures des lots,
+ * mouvements et balances) contre une base MariaDB embarquée migrée par
+ * Liquibase. Chaque invocation valide un nouveau bon en brouillon ; les lots
+ * sont dimensionnés pour ne jamais s'épuiser pendant la mesure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ValiderBenchmark {
+
+    private static final String BASE = "gestion_bons_bench";
+    private static final int LOTS_PAR_PRODUIT = 20;
+
+    @Param({ "1", "10", "50" })
+    public int nombreLignes;
+
+    private DB db;
+    private ConfigurableApplicationContext context;
+    private BonDeSortieContract bonDeSortieService;
+
+    private Long atelierId;
+    private final List<Long> produitIds = new ArrayList<>();
+    private Long bonId;
+
+    @Setup(Level.Trial)
+    public void demarrer() throws Exception {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0);
+        if ("root".equals(System.getProperty("user.name"))) {
+            // mariadbd refuse de démarrer sous root sans --user (conteneurs de CI)
+            config.addArg("--user=root");
+        }
+        db = DB.newEmbeddedDB(config.build());
+        db.start();
+
+        context = new SpringApplicationBuilder(GestionDesBonsDeSortieApplication.class)
+                // contexte web complet (la configuration de sécurité en dépend), sur un port libre
+                .web(WebApplicationType.SERVLET)
+                .properties(
+                        "server.port=0",
+                        // base créée par le pilote : DB.createDB passe par le client mariadb et ses bibliothèques
+                        "spring.datasource.url=" + config.getURL(BASE) + "?createDatabaseIfNotExist=true",
+                        "spring.datasource.username=root",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.open-in-view=false",
+                        "logging.level.root=WARN")
+                .run();
+        bonDeSortieService = context.getBean(BonDeSortieContract.class);
+
+        atelierId = context.getBean(AtelierDAO.class).save(Atelier.builder().nom("Atelier benchmark").build()).getId();
+
+        ProduitDAO produitDAO = context.getBean(ProduitDAO.class);
+        LotDAO lotDAO = context.getBean(LotDAO.class);
+        for (long i = 1; i <= nombreLignes; i++) {
+            Produit produit = BenchmarkData.produit(i);
+            produit.setId(null);
+            produit = produitDAO.save(produit);
+            produitIds.add(produit.getId());
+
+            List<Lot> lots = BenchmarkData.lots(produit, LOTS_PAR_PRODUIT, 1_000_000);
+            for (Lot lot : lots) {
+                lot.setId(null);
+                lot.setVersion(null);
+                lot.setNumeroLot(lot.getNumeroLot() + "-" + produit.getId());
+            }
+            lotDAO.saveAll(lots);
+        }
+        context.getBean(StockBalanceService.class).reconstruire();
+    }
+
+    @Setup(Level.Invocation)
+    public void creerBon() {
+        BonDeSortieCreateDTO dto = BonDeSortieCreateDTO.builder()
+                .dateSortie(new Date())
+                .motifSortie("Benchmark")
+                .atelierId(atelierId)
+                .build();
+        produitIds.forEach(id -> dto.getLignes().add(BonDeSortieLigneDTO.builder()
+                .produitId(id)
+                .quantiteDemandee(25)
+                .build()));
+        bonId = bonDeSortieService.save(dto).getId();
+    }
+
+    @Benchmark
+    public BonDeSortieResponseDTO valider() {
+        return bonDeSortieService.valider(bonId);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() throws Exception {
+        if (context != null) {
+            context.close();
+        }
+        if (db != null) {
+            db.stop();
+        }
+    }
+}
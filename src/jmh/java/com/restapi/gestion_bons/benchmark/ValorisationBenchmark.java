@@ -0,0 +1,48 @@
+package com.restapi.gestion_bons.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.util.ValorisationHelper;
+
+/**
+ * Valorisation FIFO en BigDecimal d'un produit, telle que calculée par
+ * StockService pour le détail du stock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValorisationBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int nombreLots;
+
+    private List<Lot> lots;
+
+    @Setup
+    public void setUp() {
+        lots = BenchmarkData.lots(BenchmarkData.produit(1L), nombreLots, 37);
+    }
+
+    @Benchmark
+    public BigDecimal valorisationFIFO() {
+        return ValorisationHelper.valorisationFIFO(lots);
+    }
+}
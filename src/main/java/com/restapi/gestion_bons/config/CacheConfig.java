@@ -0,0 +1,158 @@
+package com.restapi.gestion_bons.config;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restapi.gestion_bons.service.stock.StockVersion;
+
+/**
+ * Read-through caches of the reference data reads (produits, ateliers). They
+ * hold the response DTOs built by the services, never managed entities, and
+ * are evicted by the services' writes: a hit runs no query.
+ * Caches are bounded in size and expire after write; statistics are recorded
+ * so Actuator publishes hit/miss/eviction metrics under {@code cache.*}.
+ *
+ * The stock reads polled by the dashboards are cached as well, with their own
+ * spec. They are evicted by {@code StockCache} once a stock change has
+ * committed and checked against the stock version on each hit; the caching
+ * advice runs outside the transaction so that a hit does not open one.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    public static final String PRODUITS = "produits";
+    public static final String PRODUITS_PAR_REFERENCE = "produitsParReference";
+    public static final String PRODUITS_PAR_NOM = "produitsParNom";
+    public static final String PRODUITS_PAR_CATEGORIE = "produitsParCategorie";
+    public static final String ATELIERS = "ateliers";
+    public static final String ATELIERS_PAR_NOM = "ateliersParNom";
+    public static final String STOCK_VALORISATION = "stockValorisation";
+    public static final String STOCK_PRODUITS = "stockProduits";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${stock.cache.spec:maximumSize=10000,expireAfterWrite=10m}") String spec,
+            @Value("${stock.cache.stock.spec:maximumSize=10000,expireAfterWrite=1m}") String specStock,
+            StockVersion stockVersion) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
+                PRODUITS, PRODUITS_PAR_REFERENCE, PRODUITS_PAR_NOM, PRODUITS_PAR_CATEGORIE,
+                ATELIERS, ATELIERS_PAR_NOM) {
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                    com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                if (STOCK_VALORISATION.equals(name) || STOCK_PRODUITS.equals(name)) {
+                    return new StockVersionCache(name, cache, stockVersion);
+                }
+                return super.adaptCaffeineCache(name, cache);
+            }
+        };
+        cacheManager.setCaffeine(Caffeine.from(spec).recordStats());
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(STOCK_VALORISATION, Caffeine.from(specStock).recordStats().build());
+        cacheManager.registerCustomCache(STOCK_PRODUITS, Caffeine.from(specStock).recordStats().build());
+        return cacheManager;
+    }
+
+    /**
+     * Entries stored with the {@link StockVersion} they were loaded at: those
+     * keyed by a product id with the product's version, the others with the
+     * global version.
+     * A hit whose version is no longer the current one is loaded again, so
+     * the changes committed by other instances are never hidden. The loader
+     * reads on the primary, after the version: a value is never older than
+     * its version.
+     * Without a loader ({@code sync = false}), a hit is checked the same way
+     * and a put is tagged with the version its thread read on the preceding
+     * miss; a put that no lookup preceded evicts the key instead, since the
+     * version its value was read at is unknown.
+     */
+    static class StockVersionCache extends CaffeineCache {
+
+        private final StockVersion stockVersion;
+
+        private final ThreadLocal<Lecture> derniereLecture = new ThreadLocal<>();
+
+        StockVersionCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                StockVersion stockVersion) {
+            super(name, cache, false);
+            this.stockVersion = stockVersion;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            long version = version(key);
+            Versionnee<T> entree = (Versionnee<T>) super.get(key, () -> charger(key, version, valueLoader));
+            if (entree.version() != version) {
+                entree = charger(key, version, valueLoader);
+                super.put(key, entree);
+            }
+            return entree.valeur();
+        }
+
+        @Override
+        protected Object lookup(Object key) {
+            long version = version(key);
+            Versionnee<?> entree = (Versionnee<?>) super.lookup(key);
+            if (entree != null && entree.version() == version) {
+                derniereLecture.remove();
+                return entree.valeur();
+            }
+            derniereLecture.set(new Lecture(key, version));
+            return null;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            Lecture lecture = derniereLecture.get();
+            derniereLecture.remove();
+            if (lecture == null || !lecture.cle().equals(key)) {
+                super.evict(key);
+                return;
+            }
+            super.put(key, new Versionnee<>(lecture.version(), value));
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper existante = get(key);
+            if (existante == null) {
+                put(key, value);
+            }
+            return existante;
+        }
+
+        private long version(Object key) {
+            return key instanceof Long produitId ? stockVersion.courante(produitId) : stockVersion.courante();
+        }
+
+        private <T> Versionnee<T> charger(Object key, long version, Callable<T> valueLoader) {
+            return new Versionnee<>(version, stockVersion.lire(() -> {
+                try {
+                    return valueLoader.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+            }));
+        }
+    }
+
+    record Versionnee<T>(long version, T valeur) {
+    }
+
+    record Lecture(Object cle, long version) {
+    }
+}
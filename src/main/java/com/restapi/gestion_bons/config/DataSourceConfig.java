@@ -0,0 +1,103 @@
+package com.restapi.gestion_bons.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Two connection pools on the same database, enabled by the {@code pool}
+ * profile: {@code ecriture} (configured by {@code spring.datasource.hikari.*})
+ * and a read-only {@code lecture} pool (configured by
+ * {@code stock.datasource.lecture.*}) used by
+ * {@code @Transactional(readOnly = true)} methods, so that stock listings and
+ * valuations never hold a connection that receptions and validations are
+ * waiting for.
+ * <p>
+ * The physical connection is only fetched on the first statement, after the
+ * transaction manager has marked it read-only, which is what selects the pool.
+ * Both pools publish {@code hikaricp.connections.*} metrics tagged with their
+ * pool name.
+ * <p>
+ * With {@code stock.datasource.replique.active}, the lecture pool points at a
+ * replica ({@code stock.datasource.lecture.jdbc-url}) and read-only
+ * transactions go back to the ecriture pool while the replica is down or
+ * lagging, see {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+@Profile("pool")
+public class DataSourceConfig {
+
+    public static final String POOL_ECRITURE = "ecriture";
+    public static final String POOL_LECTURE = "lecture";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource ecritureDataSource(DataSourceProperties properties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails) {
+        return creerPool(properties, connectionDetails.getIfAvailable(), POOL_ECRITURE);
+    }
+
+    @Bean
+    @ConfigurationProperties("stock.datasource.lecture")
+    public HikariDataSource lectureDataSource(DataSourceProperties properties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails) {
+        HikariDataSource pool = creerPool(properties, connectionDetails.getIfAvailable(), POOL_LECTURE);
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("ecritureDataSource") HikariDataSource ecriture,
+            @Qualifier("lectureDataSource") HikariDataSource lecture,
+            @Value("${stock.datasource.replique.active:false}") boolean replique,
+            @Value("${stock.datasource.replique.retard-max:30s}") Duration retardMax,
+            @Value("${stock.datasource.replique.verification:5s}") Duration verification,
+            MeterRegistry meterRegistry) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(ecriture);
+        if (replique) {
+            ReplicaRoutingDataSource routage = new ReplicaRoutingDataSource(ecriture, lecture,
+                    ReplicaRoutingDataSource.MARIADB, retardMax, verification);
+            Gauge.builder("stock.datasource.replique.utilisable", routage, r -> r.isRepliqueUtilisable() ? 1 : 0)
+                    .description("1 when read-only transactions are served by the replica")
+                    .register(meterRegistry);
+            dataSource.setReadOnlyDataSource(routage);
+        } else {
+            dataSource.setReadOnlyDataSource(lecture);
+        }
+        return dataSource;
+    }
+
+    private HikariDataSource creerPool(DataSourceProperties properties, JdbcConnectionDetails connexion,
+            String nom) {
+        // connexion fournie par l'environnement (Testcontainers, Docker Compose) sinon spring.datasource.*
+        DataSourceBuilder<?> builder = connexion == null
+                ? properties.initializeDataSourceBuilder()
+                : DataSourceBuilder.create(properties.getClassLoader())
+                        .url(connexion.getJdbcUrl())
+                        .username(connexion.getUsername())
+                        .password(connexion.getPassword())
+                        .driverClassName(connexion.getDriverClassName());
+        HikariDataSource pool = builder.type(HikariDataSource.class).build();
+        pool.setPoolName(nom);
+        return pool;
+    }
+}
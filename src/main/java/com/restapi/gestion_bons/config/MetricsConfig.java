@@ -0,0 +1,30 @@
+package com.restapi.gestion_bons.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.restapi.gestion_bons.metrics.CompteurStatementsDataSource;
+
+/**
+ * Wraps the application DataSource so that the statements of each request
+ * can be counted, see {@link com.restapi.gestion_bons.metrics.StatementCountFilter}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor compteurStatementsPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+                    return new CompteurStatementsDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package com.restapi.gestion_bons.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import com.restapi.gestion_bons.util.AppLogger;
+
+/**
+ * Read-only connections taken from the replica, or from the primary while
+ * the replica cannot be reached or lags more than {@code retardMax} behind
+ * it. The replica state is checked at most once per {@code intervalle}, on
+ * the thread asking for a connection; a replica that fails to hand out a
+ * connection is left aside until the next check.
+ * <p>
+ * Reads whose result is tagged with a version read on the primary run inside
+ * {@link #surLePrimaire(Supplier)}, so that a lagging replica cannot hand out
+ * a state older than its tag.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    /**
+     * Replication lag of the replica in seconds, or null when it is not
+     * replicating.
+     */
+    @FunctionalInterface
+    public interface MesureRetard {
+        Long secondes(Connection replique) throws SQLException;
+    }
+
+    /**
+     * MariaDB replica: Seconds_Behind_Master of SHOW REPLICA STATUS (needs the
+     * REPLICA MONITOR privilege).
+     */
+    public static final MesureRetard MARIADB = connexion -> {
+        try (Statement statement = connexion.createStatement();
+                ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                return null;
+            }
+            long secondes = rs.getLong("Seconds_Behind_Master");
+            return rs.wasNull() ? null : secondes;
+        }
+    };
+
+    private static final ThreadLocal<Boolean> PRIMAIRE = new ThreadLocal<>();
+
+    private final DataSource primaire;
+    private final DataSource replique;
+    private final MesureRetard mesureRetard;
+    private final long retardMaxSecondes;
+    private final long intervalleNanos;
+
+    private final AtomicLong prochaineVerification = new AtomicLong(System.nanoTime());
+    private volatile boolean repliqueUtilisable = true;
+
+    public ReplicaRoutingDataSource(DataSource primaire, DataSource replique, MesureRetard mesureRetard,
+            Duration retardMax, Duration intervalle) {
+        this.primaire = primaire;
+        this.replique = replique;
+        this.mesureRetard = mesureRetard;
+        this.retardMaxSecondes = retardMax.getSeconds();
+        this.intervalleNanos = intervalle.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (utiliserReplique()) {
+            try {
+                return replique.getConnection();
+            } catch (SQLException e) {
+                ecarterReplique("réplique injoignable: " + e.getMessage());
+            }
+        }
+        return primaire.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (utiliserReplique()) {
+            try {
+                return replique.getConnection(username, password);
+            } catch (SQLException e) {
+                ecarterReplique("réplique injoignable: " + e.getMessage());
+            }
+        }
+        return primaire.getConnection(username, password);
+    }
+
+    /**
+     * Runs the action with its read-only connections taken from the primary.
+     * The connection is chosen when the first statement runs, so the action
+     * must open its transaction itself.
+     */
+    public static <T> T surLePrimaire(Supplier<T> action) {
+        if (PRIMAIRE.get() != null) {
+            return action.get();
+        }
+        PRIMAIRE.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PRIMAIRE.remove();
+        }
+    }
+
+    public boolean isRepliqueUtilisable() {
+        return repliqueUtilisable;
+    }
+
+    private boolean utiliserReplique() {
+        if (PRIMAIRE.get() != null) {
+            return false;
+        }
+        long prevue = prochaineVerification.get();
+        long maintenant = System.nanoTime();
+        // un seul thread vérifie, les autres gardent l'état courant
+        if (maintenant - prevue >= 0 && prochaineVerification.compareAndSet(prevue, maintenant + intervalleNanos)) {
+            verifier();
+        }
+        return repliqueUtilisable;
+    }
+
+    private void verifier() {
+        try (Connection connexion = replique.getConnection()) {
+            Long retard = mesureRetard.secondes(connexion);
+            if (retard == null) {
+                ecarterReplique("réplication arrêtée");
+            } else if (retard > retardMaxSecondes) {
+                ecarterReplique("retard de " + retard + " s");
+            } else if (!repliqueUtilisable) {
+                repliqueUtilisable = true;
+                AppLogger.info("Lectures de nouveau servies par la réplique (retard de " + retard + " s)");
+            }
+        } catch (SQLException e) {
+            ecarterReplique("réplique injoignable: " + e.getMessage());
+        }
+    }
+
+    private void ecarterReplique(String motif) {
+        if (repliqueUtilisable) {
+            AppLogger.warn("Lectures renvoyées sur le primaire, " + motif);
+        }
+        repliqueUtilisable = false;
+        prochaineVerification.set(System.nanoTime() + intervalleNanos);
+    }
+}
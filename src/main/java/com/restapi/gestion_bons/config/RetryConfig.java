@@ -0,0 +1,13 @@
+package com.restapi.gestion_bons.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.annotation.EnableRetry;
+
+/**
+ * Enables {@code @Retryable}. The retry interceptor is ordered before the
+ * transaction interceptor, so each attempt runs in a fresh transaction.
+ */
+@Configuration
+@EnableRetry
+public class RetryConfig {
+}
@@ -0,0 +1,12 @@
+package com.restapi.gestion_bons.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled}, used for the periodic stock snapshots.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
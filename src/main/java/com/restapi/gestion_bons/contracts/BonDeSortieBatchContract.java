@@ -0,0 +1,11 @@
+package com.restapi.gestion_bons.contracts;
+
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchResultatDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchValidationDTO;
+
+public interface BonDeSortieBatchContract {
+    BonDeSortieBatchResultatDTO creer(BonDeSortieBatchCreateDTO dto);
+
+    BonDeSortieBatchResultatDTO valider(BonDeSortieBatchValidationDTO dto);
+}
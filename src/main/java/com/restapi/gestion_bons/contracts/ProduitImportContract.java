@@ -0,0 +1,10 @@
+package com.restapi.gestion_bons.contracts;
+
+import java.io.InputStream;
+
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.produit.ProduitImportResultatDTO;
+
+public interface ProduitImportContract {
+    ProduitImportResultatDTO importer(InputStream contenu, FormatExport format);
+}
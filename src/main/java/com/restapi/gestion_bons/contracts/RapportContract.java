@@ -0,0 +1,22 @@
+package com.restapi.gestion_bons.contracts;
+
+import com.restapi.gestion_bons.dto.rapport.RapportDemandeDTO;
+import com.restapi.gestion_bons.dto.rapport.RapportJobDTO;
+import com.restapi.gestion_bons.dto.rapport.RapportResultatDTO;
+
+public interface RapportContract {
+
+    /**
+     * Queues the report, or returns the job already computing or holding the
+     * same report at the current stock version.
+     */
+    RapportJobDTO soumettre(RapportDemandeDTO demande);
+
+    RapportJobDTO getJob(String id);
+
+    /** Stops a queued or running job, or drops the result of a finished one. */
+    RapportJobDTO annuler(String id);
+
+    /** Result of a finished job, as long as the stock has not changed since. */
+    RapportResultatDTO getResultat(String id);
+}
@@ -1,16 +1,27 @@
 package com.restapi.gestion_bons.contracts;
 
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockCurseurDTO;
 import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockResponseDTO;
 import com.restapi.gestion_bons.dto.stock.*;
 import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StockContract {
-    List<StockGlobalDTO> getStockGlobal();
+    Page<StockGlobalDTO> getStockGlobal(Pageable pageable);
+
+    /** Hands every row of the stock overview to the consumer without building a list. */
+    void parcourirStockGlobal(Consumer<StockGlobalDTO> consommateur);
 
     StockProduitDetailDTO getStockByProduitId(Long produitId);
 
@@ -22,7 +33,61 @@ public interface StockContract {
             LocalDateTime endDate,
             Pageable pageable);
 
+    /**
+     * Same filters as {@link #getMouvementsByCriteria}, read by seeking after
+     * the (date, id) of the cursor instead of skipping rows.
+     */
+    MouvementStockCurseurDTO getMouvementsParCurseur(
+            Long produitId,
+            Long lotId,
+            TypeMouvement type,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String curseur,
+            int taille,
+            boolean avecTotal);
+
+    /** Writes every movement matching the filters to the stream, row by row. */
+    void exporterMouvements(
+            Long produitId,
+            Long lotId,
+            TypeMouvement type,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            FormatExport format,
+            OutputStream sortie) throws IOException;
+
+    /** Products below their reorder point, read from the alert index. */
     List<StockAlertDTO> getAlertes();
 
+    /** Stream of the alert changes: the open alerts first, then every change as it is committed. */
+    SseEmitter abonnerAlertes();
+
     StockValorisationDTO getValorisation();
+
+    /**
+     * FIFO valuation of every product at the end of each cut-off day, written
+     * row by row from a single chronological pass over the movements.
+     */
+    void exporterValorisations(Collection<LocalDate> dates, FormatExport format, OutputStream sortie)
+            throws IOException;
+
+    int reconstruireBalances();
+
+    List<StockBalanceEcartDTO> reconcilierBalances(boolean corriger);
+
+    /** Stock of every product at the date: last snapshot before it plus the movements since. */
+    List<StockALaDateDTO> getStockALaDate(LocalDateTime date);
+
+    /** Stock of one product and its lots at the date, from the running balances of the ledger. */
+    StockProduitALaDateDTO getStockProduitALaDate(Long produitId, LocalDateTime date);
+
+    /**
+     * Snapshot at the date, which must be older than {@code stock.snapshot.delai};
+     * null takes the latest date allowed.
+     */
+    int creerSnapshot(LocalDateTime date);
+
+    /** Lots whose remaining quantity does not match their movements. */
+    List<GrandLivreEcartDTO> verifierGrandLivre();
 }
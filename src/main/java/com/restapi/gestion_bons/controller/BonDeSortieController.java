@@ -1,6 +1,10 @@
 package com.restapi.gestion_bons.controller;
 
+import com.restapi.gestion_bons.contracts.BonDeSortieBatchContract;
 import com.restapi.gestion_bons.contracts.BonDeSortieContract;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchResultatDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchValidationDTO;
 import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
 import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieResponseDTO;
 import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieUpdateDTO;
@@ -19,6 +23,7 @@ import java.util.List;
 public class BonDeSortieController {
 
     private final BonDeSortieContract bonDeSortieService;
+    private final BonDeSortieBatchContract bonDeSortieBatchService;
 
     @GetMapping
     public ResponseEntity<List<BonDeSortieResponseDTO>> listAll() {
@@ -37,6 +42,17 @@ public class BonDeSortieController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BonDeSortieBatchResultatDTO> createBatch(@RequestBody @Valid BonDeSortieBatchCreateDTO dto) {
+        return ResponseEntity.ok(bonDeSortieBatchService.creer(dto));
+    }
+
+    @PutMapping("/batch/valider")
+    public ResponseEntity<BonDeSortieBatchResultatDTO> validerBatch(
+            @RequestBody @Valid BonDeSortieBatchValidationDTO dto) {
+        return ResponseEntity.ok(bonDeSortieBatchService.valider(dto));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<BonDeSortieResponseDTO> update(
             @PathVariable Long id,
@@ -1,43 +1,79 @@
 package com.restapi.gestion_bons.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restapi.gestion_bons.dto.produit.ProduitResponseDTO;
+import com.restapi.gestion_bons.contracts.ProduitImportContract;
 import com.restapi.gestion_bons.contracts.ProduitServiceContract;
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.produit.ProduitImportResultatDTO;
 import com.restapi.gestion_bons.dto.produit.ProduitRequestDTO;
+import com.restapi.gestion_bons.service.stock.StockVersion;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/v1/produits")
 @RequiredArgsConstructor
 public class ProduitController {
     private final ProduitServiceContract produitService;
+    private final ProduitImportContract produitImportService;
+    private final StockVersion stockVersion;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Every product change advances the stock version, so the listings
+     * answer If-None-Match with a 304 after reading the version alone; their
+     * body is read on the primary.
+     */
     @GetMapping
-    public List<ProduitResponseDTO> listAll() {
-        return produitService.findAll();
+    public List<ProduitResponseDTO> listAll(WebRequest requete) {
+        if (requete.checkNotModified(stockVersion.etag())) {
+            return null;
+        }
+        return stockVersion.lire(produitService::findAll);
     }
 
     @GetMapping("/paginated")  // ✅ Add pagination endpoint
-    public ResponseEntity<Page<ProduitResponseDTO>> listAllPaginated(Pageable pageable) {
-        Page<ProduitResponseDTO> produits = produitService.findAllWithPagination(pageable);
+    public ResponseEntity<Page<ProduitResponseDTO>> listAllPaginated(Pageable pageable, WebRequest requete) {
+        if (requete.checkNotModified(stockVersion.etag())) {
+            return null;
+        }
+        Page<ProduitResponseDTO> produits = stockVersion.lire(() -> produitService.findAllWithPagination(pageable));
         return ResponseEntity.ok(produits);
     }
 
+    /**
+     * Served from the product cache; the ETag is a digest of the cached body,
+     * so a hit answers If-None-Match without any query and the tag always
+     * matches the body sent. A miss is read on the primary.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<ProduitResponseDTO> getById(@PathVariable Long id) {
-        return produitService.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<ProduitResponseDTO> getById(@PathVariable Long id, WebRequest requete) {
+        Optional<ProduitResponseDTO> produit = stockVersion.lire(() -> produitService.findById(id));
+        if (produit.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (requete.checkNotModified(etag(produit.get()))) {
+            return null;
+        }
+        return ResponseEntity.ok(produit.get());
     }
 
     @PostMapping
@@ -46,6 +82,20 @@ public class ProduitController {
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
+    /**
+     * Imports a catalog sent as CSV (header row with the field names) or
+     * NDJSON (one product per line). The body is read as a stream.
+     */
+    @PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<ProduitImportResultatDTO> importer(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream contenu) {
+        FormatExport format = contentType.isCompatibleWith(FormatExport.CSV.getMediaType())
+                ? FormatExport.CSV
+                : FormatExport.NDJSON;
+        return ResponseEntity.ok(produitImportService.importer(contenu, format));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ProduitResponseDTO> update(@PathVariable Long id, @RequestBody @Valid ProduitRequestDTO dto) {
         try {
@@ -92,4 +142,12 @@ public class ProduitController {
     public ResponseEntity<List<ProduitResponseDTO>> initDb(){
         return ResponseEntity.ok(produitService.initDB());
     }
-}
\ No newline at end of file
+
+    private String etag(ProduitResponseDTO produit) {
+        try {
+            return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(produit));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("ETag du produit " + produit.getId(), e);
+        }
+    }
+}
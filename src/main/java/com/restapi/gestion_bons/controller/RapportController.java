@@ -0,0 +1,76 @@
+package com.restapi.gestion_bons.controller;
+
+import com.restapi.gestion_bons.contracts.RapportContract;
+import com.restapi.gestion_bons.dto.rapport.RapportDemandeDTO;
+import com.restapi.gestion_bons.dto.rapport.RapportJobDTO;
+import com.restapi.gestion_bons.dto.rapport.RapportResultatDTO;
+import com.restapi.gestion_bons.dto.rapport.StatutRapport;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequestMapping("/v1/rapports")
+@RequiredArgsConstructor
+public class RapportController {
+
+    private final RapportContract rapportService;
+
+    @PostMapping
+    public ResponseEntity<RapportJobDTO> soumettre(@RequestBody @Valid RapportDemandeDTO demande) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(rapportService.soumettre(demande));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<RapportJobDTO> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(rapportService.getJob(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<RapportJobDTO> annuler(@PathVariable String id) {
+        return ResponseEntity.ok(rapportService.annuler(id));
+    }
+
+    /**
+     * 202 with the job while it is queued or running, 410 once it failed,
+     * was cancelled or expired. The stored gzip file is sent as is to the
+     * clients that accept gzip.
+     */
+    @GetMapping("/{id}/resultat")
+    public ResponseEntity<?> getResultat(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        RapportJobDTO job = rapportService.getJob(id);
+        if (job.getStatut() == StatutRapport.EN_ATTENTE || job.getStatut() == StatutRapport.EN_COURS) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        }
+        if (job.getStatut() != StatutRapport.TERMINE) {
+            return ResponseEntity.status(HttpStatus.GONE).body(job);
+        }
+
+        RapportResultatDTO resultat = rapportService.getResultat(id);
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok()
+                .contentType(resultat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + resultat.getNomFichier());
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(new FileSystemResource(resultat.getFichier()));
+        }
+        StreamingResponseBody corps = sortie -> {
+            try (InputStream entree = new GZIPInputStream(Files.newInputStream(resultat.getFichier()))) {
+                entree.transferTo(sortie);
+            }
+        };
+        return reponse.body(corps);
+    }
+}
@@ -1,19 +1,34 @@
 package com.restapi.gestion_bons.controller;
 
 import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockCurseurDTO;
 import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockResponseDTO;
 import com.restapi.gestion_bons.dto.stock.*;
 import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
+import com.restapi.gestion_bons.service.stock.StockVersion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -23,15 +38,45 @@ import java.util.List;
 public class StockController {
 
     private final StockContract stockService;
+    private final ObjectMapper objectMapper;
+    private final StockVersion stockVersion;
+    private final StockAlerteService stockAlerteService;
 
+    /**
+     * The stock reads below carry the ETag of the stock version: a client
+     * sending it back in If-None-Match gets a 304 after reading the version
+     * alone. The body is then read on the primary, so it is never older than
+     * its ETag.
+     */
     @GetMapping
-    public ResponseEntity<List<StockGlobalDTO>> getStockGlobal() {
-        return ResponseEntity.ok(stockService.getStockGlobal());
+    public ResponseEntity<Page<StockGlobalDTO>> getStockGlobal(
+            @PageableDefault(size = 20, sort = "produitReference") Pageable pageable,
+            WebRequest requete) {
+        if (requete.checkNotModified(stockVersion.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok(stockVersion.lire(() -> stockService.getStockGlobal(pageable)));
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exporterStockGlobal() {
+        StreamingResponseBody corps = sortie -> stockService.parcourirStockGlobal(ligne -> {
+            try {
+                sortie.write(objectMapper.writeValueAsBytes(ligne));
+                sortie.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(corps);
     }
 
     @GetMapping("/produit/{id}")
-    public ResponseEntity<StockProduitDetailDTO> getStockByProduitId(@PathVariable Long id) {
-        return ResponseEntity.ok(stockService.getStockByProduitId(id));
+    public ResponseEntity<StockProduitDetailDTO> getStockByProduitId(@PathVariable Long id, WebRequest requete) {
+        if (requete.checkNotModified(stockVersion.etag(id))) {
+            return null;
+        }
+        return ResponseEntity.ok(stockVersion.lire(() -> stockService.getStockByProduitId(id)));
     }
 
     @GetMapping("/mouvements")
@@ -49,13 +94,108 @@ public class StockController {
                 .ok(stockService.getMouvementsByCriteria(produitId, lotId, type, startDate, endDate, pageable));
     }
 
+    @GetMapping("/mouvements/curseur")
+    public ResponseEntity<MouvementStockCurseurDTO> getMouvementsParCurseur(
+            @RequestParam(required = false) Long produitId,
+            @RequestParam(required = false) Long lotId,
+            @RequestParam(required = false) TypeMouvement type,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endDate,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+
+        return ResponseEntity.ok(stockService.getMouvementsParCurseur(
+                produitId, lotId, type, startDate, endDate, curseur, size, avecTotal));
+    }
+
+    @GetMapping("/mouvements/export")
+    public ResponseEntity<StreamingResponseBody> exporterMouvements(
+            @RequestParam(required = false) Long produitId,
+            @RequestParam(required = false) Long lotId,
+            @RequestParam(required = false) TypeMouvement type,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endDate,
+            @RequestParam(defaultValue = "NDJSON") FormatExport format) {
+
+        StreamingResponseBody corps = sortie -> stockService.exporterMouvements(
+                produitId, lotId, type, startDate, endDate, format, sortie);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=mouvements." + format.getExtension())
+                .body(corps);
+    }
+
+    /** Served from the alert index, tagged with its own revision. */
     @GetMapping("/alertes")
-    public ResponseEntity<List<StockAlertDTO>> getAlertes() {
+    public ResponseEntity<List<StockAlertDTO>> getAlertes(WebRequest requete) {
+        if (requete.checkNotModified(stockAlerteService.etag())) {
+            return null;
+        }
         return ResponseEntity.ok(stockService.getAlertes());
     }
 
+    @GetMapping(value = "/alertes/flux", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter fluxAlertes() {
+        return stockService.abonnerAlertes();
+    }
+
     @GetMapping("/valorisation")
-    public ResponseEntity<StockValorisationDTO> getValorisation() {
-        return ResponseEntity.ok(stockService.getValorisation());
+    public ResponseEntity<StockValorisationDTO> getValorisation(WebRequest requete) {
+        if (requete.checkNotModified(stockVersion.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok(stockVersion.lire(stockService::getValorisation));
+    }
+
+    @GetMapping("/valorisation/historique")
+    public ResponseEntity<StreamingResponseBody> exporterValorisations(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) List<LocalDate> dates,
+            @RequestParam(defaultValue = "NDJSON") FormatExport format) {
+
+        StreamingResponseBody corps = sortie -> stockService.exporterValorisations(dates, format, sortie);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=valorisation." + format.getExtension())
+                .body(corps);
+    }
+
+    @PostMapping("/balances/rebuild")
+    public ResponseEntity<Integer> reconstruireBalances() {
+        return ResponseEntity.ok(stockService.reconstruireBalances());
+    }
+
+    @GetMapping("/historique")
+    public ResponseEntity<List<StockALaDateDTO>> getStockALaDate(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime date) {
+        return ResponseEntity.ok(stockService.getStockALaDate(date));
+    }
+
+    @GetMapping("/historique/produit/{id}")
+    public ResponseEntity<StockProduitALaDateDTO> getStockProduitALaDate(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime date) {
+        return ResponseEntity.ok(stockService.getStockProduitALaDate(id, date));
+    }
+
+    @PostMapping("/snapshots")
+    public ResponseEntity<Integer> creerSnapshot(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime date) {
+        return ResponseEntity.ok(stockService.creerSnapshot(date));
+    }
+
+    @GetMapping("/grand-livre/verification")
+    public ResponseEntity<List<GrandLivreEcartDTO>> verifierGrandLivre() {
+        return ResponseEntity.ok(stockService.verifierGrandLivre());
+    }
+
+    @GetMapping("/balances/reconcile")
+    public ResponseEntity<List<StockBalanceEcartDTO>> getEcartsBalances() {
+        return ResponseEntity.ok(stockService.reconcilierBalances(false));
+    }
+
+    @PostMapping("/balances/reconcile")
+    public ResponseEntity<List<StockBalanceEcartDTO>> reconcilierBalances() {
+        return ResponseEntity.ok(stockService.reconcilierBalances(true));
     }
 }
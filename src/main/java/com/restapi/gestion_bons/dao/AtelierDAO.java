@@ -8,5 +8,6 @@ import java.util.Optional;
 
 @Repository
 public interface AtelierDAO extends JpaRepository<Atelier, Long> {
+
     Optional<Atelier> findByNom(String nom);
 }
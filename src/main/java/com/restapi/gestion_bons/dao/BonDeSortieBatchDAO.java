@@ -0,0 +1,82 @@
+package com.restapi.gestion_bons.dao;
+
+import com.restapi.gestion_bons.entitie.BonDeSortie;
+import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch inserts for bulk voucher creation. Voucher and line ids are
+ * IDENTITY-generated, which prevents Hibernate from batching these statements.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BonDeSortieBatchDAO {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_BON_SQL = "INSERT INTO bon_de_sortie "
+            + "(numero_bon, date_sortie, motif_sortie, statut, atelier_destinataire_id) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_LIGNE_SQL = "INSERT INTO bon_de_sortie_ligne "
+            + "(quantite_demandee, bon_de_sortie_id, produit_id) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the vouchers then their lines as JDBC batches and sets the
+     * generated ids back on the entities. Voucher ids are read back by their
+     * unique number; line ids are read back per voucher in insertion order,
+     * which is the order of the auto-increment values.
+     */
+    public void insertBons(List<BonDeSortie> bons) {
+        jdbcTemplate.batchUpdate(INSERT_BON_SQL, bons, BATCH_SIZE, (ps, bon) -> {
+            ps.setString(1, bon.getNumeroBon());
+            ps.setDate(2, new java.sql.Date(bon.getDateSortie().getTime()));
+            ps.setString(3, bon.getMotifSortie());
+            ps.setString(4, bon.getStatut().name());
+            ps.setLong(5, bon.getAtelier().getId());
+        });
+
+        for (int debut = 0; debut < bons.size(); debut += BATCH_SIZE) {
+            List<BonDeSortie> tranche = bons.subList(debut, Math.min(debut + BATCH_SIZE, bons.size()));
+            Map<String, BonDeSortie> parNumero = new HashMap<>();
+            tranche.forEach(b -> parNumero.put(b.getNumeroBon(), b));
+
+            String marqueurs = String.join(", ", Collections.nCopies(tranche.size(), "?"));
+            jdbcTemplate.query("SELECT id, numero_bon FROM bon_de_sortie WHERE numero_bon IN (" + marqueurs + ")",
+                    (RowCallbackHandler) rs -> parNumero.get(rs.getString(2)).setId(rs.getLong(1)),
+                    parNumero.keySet().toArray());
+        }
+
+        List<BonDeSortieLigne> lignes = bons.stream()
+                .flatMap(b -> b.getBonDeSortieLignes().stream())
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_LIGNE_SQL, lignes, BATCH_SIZE, (ps, ligne) -> {
+            ps.setInt(1, ligne.getQuantiteDemandee());
+            ps.setLong(2, ligne.getBonDeSortie().getId());
+            ps.setLong(3, ligne.getProduit().getId());
+        });
+
+        for (int debut = 0; debut < bons.size(); debut += BATCH_SIZE) {
+            List<BonDeSortie> tranche = bons.subList(debut, Math.min(debut + BATCH_SIZE, bons.size()));
+            Map<Long, Deque<BonDeSortieLigne>> parBon = new HashMap<>();
+            tranche.forEach(b -> parBon.put(b.getId(), new ArrayDeque<>(b.getBonDeSortieLignes())));
+
+            String marqueurs = String.join(", ", Collections.nCopies(tranche.size(), "?"));
+            jdbcTemplate.query("SELECT id, bon_de_sortie_id FROM bon_de_sortie_ligne WHERE bon_de_sortie_id IN ("
+                    + marqueurs + ") ORDER BY id",
+                    (RowCallbackHandler) rs -> parBon.get(rs.getLong(2)).poll().setId(rs.getLong(1)),
+                    parBon.keySet().toArray());
+        }
+    }
+}
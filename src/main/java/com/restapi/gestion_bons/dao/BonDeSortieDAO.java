@@ -1,12 +1,29 @@
 package com.restapi.gestion_bons.dao;
 
 import com.restapi.gestion_bons.entitie.BonDeSortie;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface BonDeSortieDAO extends JpaRepository<BonDeSortie, Long> {
+    // Vouchers are always mapped with their workshop and lines: fetch them with the voucher
+    @Override
+    @EntityGraph(attributePaths = { "atelier", "bonDeSortieLignes", "bonDeSortieLignes.produit" })
+    Optional<BonDeSortie> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = { "atelier", "bonDeSortieLignes", "bonDeSortieLignes.produit" })
+    List<BonDeSortie> findAll();
+
+    @EntityGraph(attributePaths = { "atelier", "bonDeSortieLignes", "bonDeSortieLignes.produit" })
     Optional<BonDeSortie> findByNumeroBon(String numeroBon);
 
+    @EntityGraph(attributePaths = { "atelier", "bonDeSortieLignes", "bonDeSortieLignes.produit" })
     List<BonDeSortie> findByAtelierId(Long atelierId);
+
+    // Bulk validation: vouchers, workshops, lines and products in one query
+    @EntityGraph(attributePaths = { "atelier", "bonDeSortieLignes", "bonDeSortieLignes.produit" })
+    List<BonDeSortie> findByIdIn(Collection<Long> ids);
 }
@@ -2,8 +2,16 @@ package com.restapi.gestion_bons.dao;
 
 import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface BonDeSortieLigneDAO extends JpaRepository<BonDeSortieLigne, Long> {
+
+    @Query("select distinct l.produit.id from BonDeSortieLigne l where l.bonDeSortie.id in :bonIds")
+    List<Long> findProduitIdsByBonDeSortieIdIn(@Param("bonIds") Collection<Long> bonIds);
 }
@@ -2,8 +2,14 @@ package com.restapi.gestion_bons.dao;
 
 import com.restapi.gestion_bons.entitie.Lot;
 import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface LotDAO extends JpaRepository<Lot, Long> {
@@ -15,4 +21,21 @@ public interface LotDAO extends JpaRepository<Lot, Long> {
 
     List<Lot> findByStatut(LotStatus statut);
 
+    /**
+     * FIFO candidates of several products in one query. Loaded read-only: the
+     * allocation engine writes lot changes through {@link StockBatchDAO}.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Lot> findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(Collection<Long> produitIds, LotStatus statut);
+
+    /**
+     * Same FIFO candidates, row-locked until the end of the transaction. Lots
+     * locked by a concurrent allocation are waited on, so none is skipped and
+     * the oldest lots are always consumed first.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(value = "SELECT * FROM lot WHERE produit_id IN (:produitIds) AND statut = 'DISPONIBLE' "
+            + "ORDER BY date_entree, id FOR UPDATE", nativeQuery = true)
+    List<Lot> findDisponiblesForUpdate(@Param("produitIds") Collection<Long> produitIds);
+
 }
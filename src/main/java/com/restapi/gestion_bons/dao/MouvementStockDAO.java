@@ -3,23 +3,89 @@ package com.restapi.gestion_bons.dao;
 import com.restapi.gestion_bons.entitie.MouvementStock;
 import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface MouvementStockDAO
         extends JpaRepository<MouvementStock, Long>, JpaSpecificationExecutor<MouvementStock> {
+    // Movement pages are mapped with their product and lot
+    @Override
+    @EntityGraph(attributePaths = { "produit", "lot" })
+    Page<MouvementStock> findAll(Specification<MouvementStock> spec, Pageable pageable);
+
     List<MouvementStock> findAllByOrderByDateMouvementDesc();
 
     List<MouvementStock> findByProduitIdOrderByDateMouvementDesc(Long produitId);
 
     List<MouvementStock> findByLotIdOrderByDateMouvementDesc(Long lotId);
 
+    boolean existsByLotId(Long lotId);
+
     List<MouvementStock> findAllByTypeMouvementOrderByDateMouvementDesc(TypeMouvement typeMouvement);
 
     List<MouvementStock> findByDateMouvementBetweenOrderByDateMouvementDesc(
             LocalDateTime start,
             LocalDateTime end);
+
+    /** Running balance of the last movement of the product at the date: one seek on (produit_id, date). */
+    @Query(value = "SELECT m.solde_produit FROM mouvement_stock m "
+            + "WHERE m.produit_id = :produitId AND m.date_mouvement <= :date "
+            + "ORDER BY m.date_mouvement DESC, m.id DESC LIMIT 1", nativeQuery = true)
+    Integer findSoldeProduit(@Param("produitId") Long produitId, @Param("date") LocalDateTime date);
+
+    /** Lots of the product still holding stock at the date, from the last movement of each. */
+    @Query(value = "SELECT t.lotId AS lotId, l.numero_lot AS numeroLot, t.quantite AS quantite FROM ("
+            + "SELECT m.lot_id AS lotId, m.solde_lot AS quantite, ROW_NUMBER() OVER ("
+            + "PARTITION BY m.lot_id ORDER BY m.date_mouvement DESC, m.id DESC) AS rang "
+            + "FROM mouvement_stock m WHERE m.produit_id = :produitId AND m.date_mouvement <= :date) t "
+            + "JOIN lot l ON l.id = t.lotId WHERE t.rang = 1 AND t.quantite > 0 "
+            + "ORDER BY l.date_entree, l.id", nativeQuery = true)
+    List<LotALaDate> findLotsALaDate(@Param("produitId") Long produitId, @Param("date") LocalDateTime date);
+
+    /**
+     * Lots whose remaining quantity differs from the sum of their movements,
+     * or whose last running balance differs from that sum.
+     */
+    @Query(value = "SELECT l.id AS lotId, l.numero_lot AS numeroLot, l.produit_id AS produitId, "
+            + "l.quantite_restante AS quantiteLot, "
+            + "COALESCE(SUM(CASE WHEN m.type_mouvement = 'ENTREE' THEN m.quantite ELSE -m.quantite END), 0) "
+            + "AS quantiteGrandLivre, "
+            + "(SELECT d.solde_lot FROM mouvement_stock d WHERE d.lot_id = l.id "
+            + "ORDER BY d.date_mouvement DESC, d.id DESC LIMIT 1) AS soldeDernierMouvement "
+            + "FROM lot l LEFT JOIN mouvement_stock m ON m.lot_id = l.id "
+            + "GROUP BY l.id, l.numero_lot, l.produit_id, l.quantite_restante "
+            + "HAVING quantiteLot <> quantiteGrandLivre OR soldeDernierMouvement <> quantiteGrandLivre "
+            + "ORDER BY l.id", nativeQuery = true)
+    List<EcartGrandLivre> findEcartsGrandLivre();
+
+    interface LotALaDate {
+        Long getLotId();
+
+        String getNumeroLot();
+
+        Integer getQuantite();
+    }
+
+    interface EcartGrandLivre {
+        Long getLotId();
+
+        String getNumeroLot();
+
+        Long getProduitId();
+
+        Integer getQuantiteLot();
+
+        Long getQuantiteGrandLivre();
+
+        Integer getSoldeDernierMouvement();
+    }
 }
@@ -0,0 +1,134 @@
+package com.restapi.gestion_bons.dao;
+
+import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockExportDTO;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the movement journal through a forward-only cursor, one row at a
+ * time, for exports that must not hold a result set in memory.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MouvementStockExportDAO {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String SELECT_SQL = "SELECT m.id, m.type_mouvement, m.date_mouvement, m.quantite, "
+            + "m.prix_unitaire_lot, m.produit_id, p.reference, m.lot_id, l.numero_lot "
+            + "FROM mouvement_stock m "
+            + "JOIN produit p ON p.id = m.produit_id "
+            + "JOIN lot l ON l.id = m.lot_id";
+
+    private static final String CHRONOLOGIQUE_SQL = "SELECT m.produit_id, m.type_mouvement, m.date_mouvement, "
+            + "m.quantite, m.prix_unitaire_lot, m.lot_id FROM mouvement_stock m "
+            + "WHERE m.date_mouvement < ? ORDER BY m.date_mouvement, m.id";
+
+    /**
+     * One movement of the chronological read, as primitives so that no row
+     * object is built. The unit price is exact: unscaled value and scale.
+     */
+    @FunctionalInterface
+    public interface LecteurMouvement {
+        void lire(long produitId, long lotId, boolean entree, int quantite, long prixUnitaire, int echellePrix,
+                long dateMillis);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Same filters and order as {@code MouvementStockSpecification.withCriteria}. */
+    public void parcourir(
+            Long produitId,
+            Long lotId,
+            TypeMouvement type,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Consumer<MouvementStockExportDTO> consommateur) {
+
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (produitId != null) {
+            conditions.add("m.produit_id = ?");
+            args.add(produitId);
+        }
+        if (lotId != null) {
+            conditions.add("m.lot_id = ?");
+            args.add(lotId);
+        }
+        if (type != null) {
+            conditions.add("m.type_mouvement = ?");
+            args.add(type.name());
+        }
+        if (startDate != null) {
+            conditions.add("m.date_mouvement >= ?");
+            args.add(Timestamp.valueOf(startDate));
+        }
+        if (endDate != null) {
+            conditions.add("m.date_mouvement <= ?");
+            args.add(Timestamp.valueOf(endDate));
+        }
+
+        String sql = SELECT_SQL
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY m.date_mouvement DESC, m.id DESC";
+
+        jdbcTemplate.query(connexion -> {
+            PreparedStatement ps = connexion.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            consommateur.accept(MouvementStockExportDTO.builder()
+                    .id(rs.getLong(1))
+                    .typeMouvement(TypeMouvement.valueOf(rs.getString(2)))
+                    .dateMouvement(rs.getTimestamp(3).toLocalDateTime())
+                    .quantite(rs.getInt(4))
+                    .prixUnitaireLot(rs.getDouble(5))
+                    .produitId(rs.getLong(6))
+                    .produitReference(rs.getString(7))
+                    .lotId(rs.getLong(8))
+                    .numeroLot(rs.getString(9))
+                    .build());
+        });
+    }
+
+    /**
+     * Every movement dated before {@code avant}, oldest first, in the (date,
+     * id) order of the journal index.
+     */
+    public void parcourirChronologique(LocalDateTime avant, LecteurMouvement lecteur) {
+        jdbcTemplate.query(connexion -> {
+            PreparedStatement ps = connexion.prepareStatement(CHRONOLOGIQUE_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(avant));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            BigDecimal prix = rs.getBigDecimal(5).stripTrailingZeros();
+            int echelle = Math.max(prix.scale(), 0);
+            lecteur.lire(
+                    rs.getLong(1),
+                    rs.getLong(6),
+                    TypeMouvement.ENTREE.name().equals(rs.getString(2)),
+                    rs.getInt(4),
+                    prix.movePointRight(echelle).longValueExact(),
+                    echelle,
+                    rs.getTimestamp(3).getTime());
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.restapi.gestion_bons.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.regex.Pattern;
+
+/**
+ * Native sequences seq_&lt;nom&gt; whose values are the first of a block of
+ * {@code increment} values.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NumeroSequenceDAO {
+
+    private static final Pattern NOM = Pattern.compile("[a-z_]+");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserves the next block and returns its first value. NEXTVAL is not
+     * transactional and takes no lock until commit: it runs on the caller's
+     * connection, and a rollback of the caller never hands the block out again.
+     */
+    public long reserver(String nom) {
+        return jdbcTemplate.queryForObject("SELECT NEXTVAL(" + sequence(nom) + ")", Long.class);
+    }
+
+    /** Size of the blocks handed out by the sequence. */
+    public int taille(String nom) {
+        return jdbcTemplate.queryForObject("SELECT increment FROM " + sequence(nom), Integer.class);
+    }
+
+    private static String sequence(String nom) {
+        if (!NOM.matcher(nom).matches()) {
+            throw new IllegalArgumentException("Nom de séquence invalide: " + nom);
+        }
+        return "seq_" + nom;
+    }
+}
@@ -0,0 +1,44 @@
+package com.restapi.gestion_bons.dao;
+
+import com.restapi.gestion_bons.entitie.Produit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * JDBC batch inserts for the product import. Product ids are
+ * IDENTITY-generated, which prevents Hibernate from batching these statements.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProduitBatchDAO {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_PRODUIT_SQL = "INSERT INTO produit "
+            + "(reference, nom, description, categorie, unite_mesure, point_reapprovisionnement) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Inserts the products in one transaction; ids are not read back */
+    @Transactional
+    public void insertProduits(List<Produit> produits) {
+        jdbcTemplate.batchUpdate(INSERT_PRODUIT_SQL, produits, BATCH_SIZE, (ps, produit) -> {
+            ps.setString(1, produit.getReference());
+            ps.setString(2, produit.getNom());
+            ps.setString(3, produit.getDescription());
+            ps.setString(4, produit.getCategorie());
+            ps.setString(5, produit.getUniteMesure());
+            if (produit.getReorderPoint() != null) {
+                ps.setInt(6, produit.getReorderPoint());
+            } else {
+                ps.setNull(6, Types.INTEGER);
+            }
+        });
+    }
+}
@@ -1,17 +1,34 @@
 package com.restapi.gestion_bons.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.restapi.gestion_bons.entitie.Produit;
 
 @Repository
 public interface ProduitDAO extends JpaRepository<Produit, Long> {
+
     Produit findByReference(String reference);
 
     Produit findByNom(String name);
 
     List<Produit> findByCategorie(String category);
+
+    // Import : contrôle d'unicité d'une tranche de lignes en une requête
+    @Query("select p.reference from Produit p where p.reference in :references")
+    Set<String> findReferencesIn(@Param("references") Collection<String> references);
+
+    @Query("select p.nom from Produit p where p.nom in :noms")
+    Set<String> findNomsIn(@Param("noms") Collection<String> noms);
+
+    @EntityGraph(Produit.GRAPH_LOTS)
+    Optional<Produit> findWithLotsById(Long id);
 }
@@ -0,0 +1,66 @@
+package com.restapi.gestion_bons.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.restapi.gestion_bons.dto.stock.StockAlertDTO;
+import com.restapi.gestion_bons.entitie.StockAlerte;
+
+@Repository
+public interface StockAlerteDAO extends JpaRepository<StockAlerte, Long> {
+
+    String ALERTES = "select new com.restapi.gestion_bons.dto.stock.StockAlertDTO(p.id, p.reference, p.nom, "
+            + "a.stockActuel, a.seuil, a.seuil - a.stockActuel) "
+            + "from StockAlerte a join Produit p on p.id = a.produitId ";
+
+    @Query(ALERTES + "order by p.id")
+    List<StockAlertDTO> findAlertes();
+
+    @Query(ALERTES + "where a.produitId in :produitIds")
+    List<StockAlertDTO> findAlertes(@Param("produitIds") Collection<Long> produitIds);
+
+    /**
+     * Opens the alert of every given product now below its reorder point; an
+     * alert already open keeps its date and takes the new quantities.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stock_alerte (produit_id, stock_actuel, seuil, date_alerte) "
+            + "SELECT p.id, COALESCE(b.quantite_disponible, 0), p.point_reapprovisionnement, CURRENT_TIMESTAMP "
+            + "FROM produit p LEFT JOIN stock_balance b ON b.produit_id = p.id "
+            + "WHERE p.id IN (:produitIds) AND COALESCE(b.quantite_disponible, 0) < p.point_reapprovisionnement "
+            + "ON DUPLICATE KEY UPDATE stock_actuel = VALUES(stock_actuel), seuil = VALUES(seuil)",
+            nativeQuery = true)
+    int ouvrir(@Param("produitIds") Collection<Long> produitIds);
+
+    /** Lifts the alert of every given product back at or above its reorder point. */
+    @Modifying
+    @Query(value = "DELETE a FROM stock_alerte a JOIN produit p ON p.id = a.produit_id "
+            + "LEFT JOIN stock_balance b ON b.produit_id = p.id "
+            + "WHERE a.produit_id IN (:produitIds) AND (p.point_reapprovisionnement IS NULL "
+            + "OR COALESCE(b.quantite_disponible, 0) >= p.point_reapprovisionnement)", nativeQuery = true)
+    int lever(@Param("produitIds") Collection<Long> produitIds);
+
+    /** {@link #ouvrir(Collection)} over every product. */
+    @Modifying
+    @Query(value = "INSERT INTO stock_alerte (produit_id, stock_actuel, seuil, date_alerte) "
+            + "SELECT p.id, COALESCE(b.quantite_disponible, 0), p.point_reapprovisionnement, CURRENT_TIMESTAMP "
+            + "FROM produit p LEFT JOIN stock_balance b ON b.produit_id = p.id "
+            + "WHERE COALESCE(b.quantite_disponible, 0) < p.point_reapprovisionnement "
+            + "ON DUPLICATE KEY UPDATE stock_actuel = VALUES(stock_actuel), seuil = VALUES(seuil)",
+            nativeQuery = true)
+    int ouvrirTout();
+
+    /** {@link #lever(Collection)} over every open alert. */
+    @Modifying
+    @Query(value = "DELETE a FROM stock_alerte a JOIN produit p ON p.id = a.produit_id "
+            + "LEFT JOIN stock_balance b ON b.produit_id = p.id "
+            + "WHERE p.point_reapprovisionnement IS NULL "
+            + "OR COALESCE(b.quantite_disponible, 0) >= p.point_reapprovisionnement", nativeQuery = true)
+    int leverTout();
+}
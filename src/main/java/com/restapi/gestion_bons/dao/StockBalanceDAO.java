@@ -0,0 +1,114 @@
+package com.restapi.gestion_bons.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+
+import com.restapi.gestion_bons.dto.stock.StockGlobalDTO;
+import com.restapi.gestion_bons.entitie.StockBalance;
+
+@Repository
+public interface StockBalanceDAO extends JpaRepository<StockBalance, Long> {
+
+    String CALCUL_DEPUIS_LOTS = "SELECT p.id AS produitId, "
+            + "COALESCE(SUM(l.quantite_restante), 0) AS quantite, "
+            + "COALESCE(SUM(l.quantite_restante * l.prix_achat_unitaire), 0) AS valorisation, "
+            + "COUNT(l.id) AS nombreLots "
+            + "FROM produit p LEFT JOIN lot l ON l.produit_id = p.id AND l.statut = 'DISPONIBLE' ";
+
+    String STOCK_GLOBAL = "select new com.restapi.gestion_bons.dto.stock.StockGlobalDTO(p.id, p.reference, p.nom, "
+            + "coalesce(b.quantiteDisponible, 0), coalesce(b.valorisation, 0bd), coalesce(b.nombreLotsActifs, 0)) "
+            + "from Produit p left join StockBalance b on b.produitId = p.id";
+
+    /**
+     * One row per product, read from the join with its balance. Sort on the
+     * balance columns with {@code JpaSort.unsafe("coalesce(b.<champ>, 0)")}.
+     */
+    @Query(value = STOCK_GLOBAL, countQuery = "select count(p) from Produit p")
+    Page<StockGlobalDTO> findStockGlobal(Pageable pageable);
+
+    /** Same rows as {@link #findStockGlobal(Pageable)}, fetched from a cursor; close the stream. */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query(STOCK_GLOBAL + " order by p.id")
+    Stream<StockGlobalDTO> streamStockGlobal();
+
+    @Query("select coalesce(sum(b.valorisation), 0bd) as valorisation, "
+            + "coalesce(sum(case when b.nombreLotsActifs > 0 then 1 else 0 end), 0) as nombreProduits, "
+            + "coalesce(sum(b.quantiteDisponible), 0) as quantite, "
+            + "coalesce(sum(b.nombreLotsActifs), 0) as nombreLots "
+            + "from StockBalance b")
+    Totaux calculerTotaux();
+
+    /** Balances recomputed from the lots, only where they differ from the stored row. */
+    @Query(value = "SELECT c.produitId AS produitId, c.quantite AS quantite, c.valorisation AS valorisation, "
+            + "c.nombreLots AS nombreLots, b.quantite_disponible AS quantiteEnregistree, "
+            + "b.valorisation AS valorisationEnregistree, b.nombre_lots_actifs AS nombreLotsEnregistres "
+            + "FROM (" + CALCUL_DEPUIS_LOTS + "GROUP BY p.id) c "
+            + "LEFT JOIN stock_balance b ON b.produit_id = c.produitId "
+            + "WHERE b.produit_id IS NULL OR b.quantite_disponible <> c.quantite "
+            + "OR b.valorisation <> c.valorisation OR b.nombre_lots_actifs <> c.nombreLots "
+            + "ORDER BY c.produitId", nativeQuery = true)
+    List<Ecart> findEcarts();
+
+    @Modifying
+    @Query(value = "INSERT INTO stock_balance "
+            + "(produit_id, quantite_disponible, valorisation, nombre_lots_actifs, date_mise_a_jour) "
+            + "SELECT c.produitId, c.quantite, c.valorisation, c.nombreLots, CURRENT_TIMESTAMP "
+            + "FROM (" + CALCUL_DEPUIS_LOTS + "WHERE p.id IN (:produitIds) GROUP BY p.id) c "
+            + "ON DUPLICATE KEY UPDATE quantite_disponible = VALUES(quantite_disponible), "
+            + "valorisation = VALUES(valorisation), nombre_lots_actifs = VALUES(nombre_lots_actifs), "
+            + "date_mise_a_jour = VALUES(date_mise_a_jour)", nativeQuery = true)
+    int recalculer(@Param("produitIds") Collection<Long> produitIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM stock_balance", nativeQuery = true)
+    void viderTout();
+
+    @Modifying
+    @Query(value = "INSERT INTO stock_balance "
+            + "(produit_id, quantite_disponible, valorisation, nombre_lots_actifs, date_mise_a_jour) "
+            + "SELECT c.produitId, c.quantite, c.valorisation, c.nombreLots, CURRENT_TIMESTAMP "
+            + "FROM (" + CALCUL_DEPUIS_LOTS + "GROUP BY p.id) c", nativeQuery = true)
+    int recalculerTout();
+
+    interface Totaux {
+        BigDecimal getValorisation();
+
+        Long getNombreProduits();
+
+        Long getQuantite();
+
+        Long getNombreLots();
+    }
+
+    interface Ecart {
+        Long getProduitId();
+
+        Long getQuantite();
+
+        BigDecimal getValorisation();
+
+        Long getNombreLots();
+
+        Long getQuantiteEnregistree();
+
+        BigDecimal getValorisationEnregistree();
+
+        Long getNombreLotsEnregistres();
+    }
+}
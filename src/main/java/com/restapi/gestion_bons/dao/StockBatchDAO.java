@@ -0,0 +1,221 @@
+package com.restapi.gestion_bons.dao;
+
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
+import com.restapi.gestion_bons.entitie.StockBalance;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import com.restapi.gestion_bons.exception.StockConflictException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * JDBC batch writes for the stock hot paths. Lot and movement ids are
+ * IDENTITY-generated, which prevents Hibernate from batching these statements.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockBatchDAO {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_MOUVEMENT_SQL = "INSERT INTO mouvement_stock "
+            + "(type_mouvement, date_mouvement, quantite, prix_unitaire_lot, produit_id, lot_id, solde_lot, "
+            + "solde_produit) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String AVANCER_GRAND_LIVRE_SQL = "INSERT INTO stock_grand_livre "
+            + "(produit_id, solde, date_mise_a_jour) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "solde = solde + VALUES(solde), date_mise_a_jour = VALUES(date_mise_a_jour)";
+
+    private static final String INSERT_LOT_SQL = "INSERT INTO lot "
+            + "(numero_lot, date_entree, quantite_initiale, quantite_restante, prix_achat_unitaire, produit_id, "
+            + "commande_fournisseur_id, statut, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String UPSERT_BALANCE_SQL = "INSERT INTO stock_balance "
+            + "(produit_id, quantite_disponible, valorisation, nombre_lots_actifs, date_mise_a_jour) "
+            + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "quantite_disponible = quantite_disponible + VALUES(quantite_disponible), "
+            + "valorisation = valorisation + VALUES(valorisation), "
+            + "nombre_lots_actifs = nombre_lots_actifs + VALUES(nombre_lots_actifs), "
+            + "date_mise_a_jour = VALUES(date_mise_a_jour)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Writes the new quantity and status of each lot in one statement per chunk.
+     * Every row is matched on its version, so a lot changed by a concurrent
+     * transaction makes the matched row count fall short and the whole
+     * allocation is rejected with a {@link StockConflictException}.
+     */
+    public void updateLots(Collection<Lot> lots) {
+        List<Lot> liste = new ArrayList<>(lots);
+        for (int debut = 0; debut < liste.size(); debut += BATCH_SIZE) {
+            List<Lot> tranche = liste.subList(debut, Math.min(debut + BATCH_SIZE, liste.size()));
+
+            StringBuilder quantites = new StringBuilder("CASE id");
+            StringBuilder statuts = new StringBuilder("CASE id");
+            StringJoiner conditions = new StringJoiner(" OR ");
+            List<Object> quantiteArgs = new ArrayList<>();
+            List<Object> statutArgs = new ArrayList<>();
+            List<Object> conditionArgs = new ArrayList<>();
+
+            for (Lot l : tranche) {
+                quantites.append(" WHEN ? THEN ?");
+                quantiteArgs.add(l.getId());
+                quantiteArgs.add(l.getQuantiteRestante());
+                statuts.append(" WHEN ? THEN ?");
+                statutArgs.add(l.getId());
+                statutArgs.add(l.getStatut().name());
+                conditions.add("(id = ? AND version = ?)");
+                conditionArgs.add(l.getId());
+                conditionArgs.add(l.getVersion());
+            }
+
+            String sql = "UPDATE lot SET quantite_restante = " + quantites + " END, statut = " + statuts
+                    + " END, version = version + 1 WHERE " + conditions;
+            List<Object> args = new ArrayList<>(quantiteArgs);
+            args.addAll(statutArgs);
+            args.addAll(conditionArgs);
+
+            int misAJour = jdbcTemplate.update(sql, args.toArray());
+            if (misAJour != tranche.size()) {
+                throw new StockConflictException(
+                        "Lots modifiés par une autre transaction (" + (tranche.size() - misAJour) + "/" + tranche.size()
+                                + "), nouvelle tentative requise");
+            }
+            tranche.forEach(l -> l.setVersion(l.getVersion() + 1));
+        }
+    }
+
+    /**
+     * Inserts the lots as JDBC batches, then reads their generated ids back by
+     * lot number, one query per chunk. Driver support for generated keys on
+     * batched statements varies, the unique lot number does not.
+     */
+    public void insertLots(List<Lot> lots) {
+        jdbcTemplate.batchUpdate(INSERT_LOT_SQL, lots, BATCH_SIZE, (ps, lot) -> {
+            ps.setString(1, lot.getNumeroLot());
+            ps.setTimestamp(2, Timestamp.valueOf(lot.getDateEntree()));
+            ps.setInt(3, lot.getQuantiteInitiale());
+            ps.setInt(4, lot.getQuantiteRestante());
+            ps.setBigDecimal(5, lot.getPrixAchatUnitaire());
+            ps.setLong(6, lot.getProduit().getId());
+            if (lot.getCommandeFournisseur() != null) {
+                ps.setLong(7, lot.getCommandeFournisseur().getId());
+            } else {
+                ps.setNull(7, Types.BIGINT);
+            }
+            ps.setString(8, lot.getStatut().name());
+        });
+
+        for (int debut = 0; debut < lots.size(); debut += BATCH_SIZE) {
+            List<Lot> tranche = lots.subList(debut, Math.min(debut + BATCH_SIZE, lots.size()));
+            Map<String, Lot> parNumero = new HashMap<>();
+            tranche.forEach(l -> parNumero.put(l.getNumeroLot(), l));
+
+            String marqueurs = String.join(", ", Collections.nCopies(tranche.size(), "?"));
+            jdbcTemplate.query("SELECT id, numero_lot FROM lot WHERE numero_lot IN (" + marqueurs + ")",
+                    (RowCallbackHandler) rs -> {
+                        Lot lot = parNumero.get(rs.getString(2));
+                        lot.setId(rs.getLong(1));
+                        lot.setVersion(0L);
+                    }, parNumero.keySet().toArray());
+        }
+    }
+
+    /**
+     * Inserts the movements with their running balances. Callers have already
+     * applied the movements to the lots, so the balance of a lot is walked
+     * back from its remaining quantity. The balance of a product is walked
+     * back from its ledger head, which is moved forward first: that upsert
+     * locks the head row until commit, so the movements of a product are
+     * numbered by one transaction at a time.
+     */
+    public void insertMouvements(Collection<MouvementStock> mouvements) {
+        calculerSoldes(mouvements);
+        jdbcTemplate.batchUpdate(INSERT_MOUVEMENT_SQL, mouvements, BATCH_SIZE, (ps, mouvement) -> {
+            ps.setString(1, mouvement.getTypeMouvement().name());
+            ps.setTimestamp(2, Timestamp.valueOf(mouvement.getDateMouvement()));
+            ps.setInt(3, mouvement.getQuantite());
+            ps.setDouble(4, mouvement.getPrixUnitaireLot());
+            ps.setLong(5, mouvement.getProduit().getId());
+            ps.setLong(6, mouvement.getLot().getId());
+            ps.setInt(7, mouvement.getSoldeLot());
+            ps.setInt(8, mouvement.getSoldeProduit());
+        });
+    }
+
+    private void calculerSoldes(Collection<MouvementStock> mouvements) {
+        if (mouvements.isEmpty()) {
+            return;
+        }
+        // trié par produit : les têtes sont verrouillées dans le même ordre par toutes les transactions
+        Map<Long, Integer> deltas = new TreeMap<>();
+        mouvements.forEach(m -> deltas.merge(m.getProduit().getId(), quantiteSignee(m), Integer::sum));
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(AVANCER_GRAND_LIVRE_SQL, deltas.entrySet(), BATCH_SIZE, (ps, delta) -> {
+            ps.setLong(1, delta.getKey());
+            ps.setInt(2, delta.getValue());
+            ps.setTimestamp(3, maintenant);
+        });
+
+        Map<Long, Integer> soldesProduit = new HashMap<>();
+        List<Long> produitIds = new ArrayList<>(deltas.keySet());
+        for (int debut = 0; debut < produitIds.size(); debut += BATCH_SIZE) {
+            List<Long> tranche = produitIds.subList(debut, Math.min(debut + BATCH_SIZE, produitIds.size()));
+            String marqueurs = String.join(", ", Collections.nCopies(tranche.size(), "?"));
+            jdbcTemplate.query(
+                    "SELECT produit_id, solde FROM stock_grand_livre WHERE produit_id IN (" + marqueurs + ")",
+                    (RowCallbackHandler) rs -> soldesProduit.put(rs.getLong(1), rs.getInt(2)), tranche.toArray());
+        }
+
+        // du dernier mouvement au premier : chaque solde est celui d'après le mouvement
+        Map<Long, Integer> soldesLot = new HashMap<>();
+        List<MouvementStock> liste = new ArrayList<>(mouvements);
+        for (int i = liste.size() - 1; i >= 0; i--) {
+            MouvementStock mouvement = liste.get(i);
+            Lot lot = mouvement.getLot();
+            Long produitId = mouvement.getProduit().getId();
+            int soldeLot = soldesLot.getOrDefault(lot.getId(), lot.getQuantiteRestante());
+            int soldeProduit = soldesProduit.get(produitId);
+            mouvement.setSoldeLot(soldeLot);
+            mouvement.setSoldeProduit(soldeProduit);
+            soldesLot.put(lot.getId(), soldeLot - quantiteSignee(mouvement));
+            soldesProduit.put(produitId, soldeProduit - quantiteSignee(mouvement));
+        }
+    }
+
+    private static int quantiteSignee(MouvementStock mouvement) {
+        return mouvement.getTypeMouvement() == TypeMouvement.ENTREE
+                ? mouvement.getQuantite()
+                : -mouvement.getQuantite();
+    }
+
+    /**
+     * Adds each delta to the balance row of its product, creating the row on
+     * first use. Callers pass the deltas sorted by product id so that
+     * concurrent transactions lock the rows in the same order.
+     */
+    public void upsertBalances(Collection<StockBalance> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT_BALANCE_SQL, deltas, BATCH_SIZE, (ps, delta) -> {
+            ps.setLong(1, delta.getProduitId());
+            ps.setInt(2, delta.getQuantiteDisponible());
+            ps.setBigDecimal(3, delta.getValorisation());
+            ps.setInt(4, delta.getNombreLotsActifs());
+            ps.setTimestamp(5, Timestamp.valueOf(delta.getDateMiseAJour()));
+        });
+    }
+}
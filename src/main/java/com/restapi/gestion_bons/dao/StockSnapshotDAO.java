@@ -0,0 +1,58 @@
+package com.restapi.gestion_bons.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.restapi.gestion_bons.entitie.StockSnapshot;
+
+@Repository
+public interface StockSnapshotDAO extends JpaRepository<StockSnapshot, Long> {
+
+    /**
+     * Stock per product at {@code :date}: the rows of the snapshot taken at
+     * {@code :snapshot} plus the movements dated after it, up to the date.
+     */
+    String STOCK_DEPUIS_SNAPSHOT = "SELECT s.produit_id AS produit_id, s.quantite AS quantite "
+            + "FROM stock_snapshot s WHERE s.date_snapshot = :snapshot "
+            + "UNION ALL SELECT m.produit_id, "
+            + "CASE WHEN m.type_mouvement = 'ENTREE' THEN m.quantite ELSE -m.quantite END "
+            + "FROM mouvement_stock m WHERE m.date_mouvement > :snapshot AND m.date_mouvement <= :date";
+
+    boolean existsByDateSnapshot(LocalDateTime dateSnapshot);
+
+    @Query("select max(s.dateSnapshot) from StockSnapshot s where s.dateSnapshot <= :date")
+    LocalDateTime findDernierSnapshot(@Param("date") LocalDateTime date);
+
+    @Query("select max(s.dateSnapshot) from StockSnapshot s where s.dateSnapshot < :date")
+    LocalDateTime findSnapshotPrecedent(@Param("date") LocalDateTime date);
+
+    @Query(value = "SELECT c.produit_id AS produitId, p.reference AS produitReference, p.nom AS produitNom, "
+            + "SUM(c.quantite) AS quantite FROM (" + STOCK_DEPUIS_SNAPSHOT + ") c "
+            + "JOIN produit p ON p.id = c.produit_id "
+            + "GROUP BY c.produit_id, p.reference, p.nom HAVING SUM(c.quantite) <> 0 "
+            + "ORDER BY c.produit_id", nativeQuery = true)
+    List<StockALaDate> findStockALaDate(@Param("snapshot") LocalDateTime snapshot,
+            @Param("date") LocalDateTime date);
+
+    @Modifying
+    @Query(value = "INSERT INTO stock_snapshot (date_snapshot, produit_id, quantite) "
+            + "SELECT :date, c.produit_id, SUM(c.quantite) FROM (" + STOCK_DEPUIS_SNAPSHOT + ") c "
+            + "GROUP BY c.produit_id HAVING SUM(c.quantite) <> 0", nativeQuery = true)
+    int creerSnapshot(@Param("snapshot") LocalDateTime snapshot, @Param("date") LocalDateTime date);
+
+    interface StockALaDate {
+        Long getProduitId();
+
+        String getProduitReference();
+
+        String getProduitNom();
+
+        Long getQuantite();
+    }
+}
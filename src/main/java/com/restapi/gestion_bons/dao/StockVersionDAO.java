@@ -0,0 +1,61 @@
+package com.restapi.gestion_bons.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * The stock_version row and the per-product versions of stock_version_produit.
+ * Advancing locks the single stock_version row until commit, so it is meant
+ * to run right before the commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockVersionDAO {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long courante() {
+        return jdbcTemplate.queryForObject("SELECT version FROM stock_version WHERE id = 1", Long.class);
+    }
+
+    /** Version of the last change of the product, or of every product if more recent. */
+    public long courante(Long produitId) {
+        return jdbcTemplate.queryForObject("SELECT GREATEST(v.tous_les_produits, COALESCE("
+                + "(SELECT p.version FROM stock_version_produit p WHERE p.produit_id = ?), 0)) "
+                + "FROM stock_version v WHERE v.id = 1", Long.class, produitId);
+    }
+
+    /** Advances the global version and makes it the version of the given products. */
+    public long avancer(Collection<Long> produitIds) {
+        long version = incrementer("version = LAST_INSERT_ID(version + 1)");
+        if (produitIds.isEmpty()) {
+            return version;
+        }
+        String marqueurs = String.join(",", Collections.nCopies(produitIds.size(), "?"));
+        Object[] parametres = new Object[produitIds.size() + 1];
+        parametres[0] = version;
+        int i = 1;
+        for (Long produitId : produitIds) {
+            parametres[i++] = produitId;
+        }
+        jdbcTemplate.update("INSERT INTO stock_version_produit (produit_id, version) "
+                + "SELECT id, ? FROM produit WHERE id IN (" + marqueurs + ") "
+                + "ON DUPLICATE KEY UPDATE version = VALUES(version)", parametres);
+        return version;
+    }
+
+    /** Advances the global version and makes it the version of every product. */
+    public long avancerTout() {
+        // affectations évaluées de gauche à droite : tous_les_produits prend la nouvelle version
+        return incrementer("version = LAST_INSERT_ID(version + 1), tous_les_produits = version");
+    }
+
+    private long incrementer(String affectations) {
+        jdbcTemplate.update("UPDATE stock_version SET " + affectations + " WHERE id = 1");
+        return jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+    }
+}
@@ -0,0 +1,24 @@
+package com.restapi.gestion_bons.dto.bondesortie;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BonDeSortieBatchCreateDTO {
+
+    /** Each voucher is validated on its own, an invalid one only fails its own item */
+    @NotEmpty(message = "Au moins un bon de sortie est requis")
+    @Size(max = 500, message = "Au plus 500 bons de sortie par requête")
+    @Builder.Default
+    private List<BonDeSortieCreateDTO> bons = new ArrayList<>();
+
+    /** Validate the created vouchers in the same transaction */
+    private boolean valider;
+}
@@ -0,0 +1,31 @@
+package com.restapi.gestion_bons.dto.bondesortie;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BonDeSortieBatchResultatDTO {
+    private int total;
+    private int succes;
+    private int echecs;
+
+    /** One entry per submitted item, in request order */
+    @Builder.Default
+    private List<Resultat> resultats = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Resultat {
+        private int index;
+        private boolean succes;
+        private BonDeSortieResponseDTO bon;
+        private String erreur;
+    }
+}
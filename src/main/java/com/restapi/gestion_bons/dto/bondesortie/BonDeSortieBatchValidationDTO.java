@@ -0,0 +1,20 @@
+package com.restapi.gestion_bons.dto.bondesortie;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BonDeSortieBatchValidationDTO {
+
+    @NotEmpty(message = "Au moins un bon de sortie est requis")
+    @Size(max = 500, message = "Au plus 500 bons de sortie par requête")
+    @Builder.Default
+    private List<Long> ids = new ArrayList<>();
+}
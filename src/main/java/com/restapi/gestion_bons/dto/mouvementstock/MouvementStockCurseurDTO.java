@@ -0,0 +1,17 @@
+package com.restapi.gestion_bons.dto.mouvementstock;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MouvementStockCurseurDTO {
+    private List<MouvementStockResponseDTO> mouvements;
+    /** Token for the next page, null on the last one */
+    private String curseurSuivant;
+    /** Only computed when requested */
+    private Long total;
+}
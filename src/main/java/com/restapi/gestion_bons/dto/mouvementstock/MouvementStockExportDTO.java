@@ -0,0 +1,23 @@
+package com.restapi.gestion_bons.dto.mouvementstock;
+
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/** Flat movement row as written by the journal export */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MouvementStockExportDTO {
+    private Long id;
+    private TypeMouvement typeMouvement;
+    private LocalDateTime dateMouvement;
+    private Integer quantite;
+    private Double prixUnitaireLot;
+    private Long produitId;
+    private String produitReference;
+    private Long lotId;
+    private String numeroLot;
+}
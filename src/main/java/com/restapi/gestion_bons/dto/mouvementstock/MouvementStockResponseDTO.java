@@ -8,4 +8,8 @@ import lombok.experimental.SuperBuilder;
 @SuperBuilder
 public class MouvementStockResponseDTO extends RelationalMouvementStockDTO {
     // inherits all relational fields from RelationalMouvementStockDTO
+
+    /** Running balances of the ledger after this movement */
+    private Integer soldeLot;
+    private Integer soldeProduit;
 }
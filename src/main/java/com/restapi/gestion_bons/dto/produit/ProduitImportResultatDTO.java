@@ -0,0 +1,34 @@
+package com.restapi.gestion_bons.dto.produit;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProduitImportResultatDTO {
+    private long lignesLues;
+    private long importees;
+    private long rejetees;
+
+    /** Rejected rows, truncated to the first ones when there are too many */
+    @Builder.Default
+    private List<Rejet> rejets = new ArrayList<>();
+    private boolean rejetsTronques;
+
+    /** Why reading the input stopped early, or null when it was read to the end */
+    private String interruption;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Rejet {
+        private long ligne;
+        private String reference;
+        private String motif;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
 @Data
@@ -34,6 +35,6 @@ public class ProduitRequestDTO {
     @NotBlank(message = "L'unité de mesure est obligatoire")
     private String uniteMesure;
 
-    @NotBlank(message = "Le point de réapprovisionnement est obligatoire")
+    @NotNull(message = "Le point de réapprovisionnement est obligatoire")
     private Integer reorderPoint;
 }
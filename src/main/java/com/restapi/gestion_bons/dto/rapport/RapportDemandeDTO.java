@@ -0,0 +1,42 @@
+package com.restapi.gestion_bons.dto.rapport;
+
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Report to run in the background. The filters only apply to the report
+ * types that take them: movements for MOUVEMENTS, cut-off dates for
+ * VALORISATION_HISTORIQUE.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportDemandeDTO {
+
+    @NotNull(message = "Le type de rapport est obligatoire")
+    private TypeRapport type;
+
+    /** 0 to 9, highest first; 5 when omitted. */
+    @Min(value = 0, message = "La priorité doit être comprise entre 0 et 9")
+    @Max(value = 9, message = "La priorité doit être comprise entre 0 et 9")
+    private Integer priorite;
+
+    private FormatExport format;
+
+    private Long produitId;
+    private Long lotId;
+    private TypeMouvement typeMouvement;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+
+    private List<LocalDate> dates;
+}
@@ -0,0 +1,24 @@
+package com.restapi.gestion_bons.dto.rapport;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportJobDTO {
+    private String id;
+    private TypeRapport type;
+    private StatutRapport statut;
+    private Integer priorite;
+    private LocalDateTime dateSoumission;
+    private LocalDateTime dateDebut;
+    private LocalDateTime dateFin;
+    /** Stock version the report was computed at */
+    private Long versionStock;
+    /** Compressed size of the result, in bytes */
+    private Long taille;
+    private String erreur;
+}
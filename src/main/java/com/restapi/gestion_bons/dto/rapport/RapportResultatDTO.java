@@ -0,0 +1,17 @@
+package com.restapi.gestion_bons.dto.rapport;
+
+import lombok.*;
+import org.springframework.http.MediaType;
+
+import java.nio.file.Path;
+
+/** Gzip file holding the result of a finished report */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportResultatDTO {
+    private Path fichier;
+    private MediaType mediaType;
+    private String nomFichier;
+}
@@ -0,0 +1,11 @@
+package com.restapi.gestion_bons.dto.rapport;
+
+public enum StatutRapport {
+    EN_ATTENTE,
+    EN_COURS,
+    TERMINE,
+    ECHOUE,
+    ANNULE,
+    /** Finished, but the stock has changed since: the result is no longer served. */
+    EXPIRE
+}
@@ -0,0 +1,9 @@
+package com.restapi.gestion_bons.dto.rapport;
+
+public enum TypeRapport {
+    VALORISATION,
+    STOCK_GLOBAL,
+    ALERTES,
+    MOUVEMENTS,
+    VALORISATION_HISTORIQUE
+}
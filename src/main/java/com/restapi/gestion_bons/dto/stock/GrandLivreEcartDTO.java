@@ -0,0 +1,19 @@
+package com.restapi.gestion_bons.dto.stock;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GrandLivreEcartDTO {
+    private Long lotId;
+    private String numeroLot;
+    private Long produitId;
+    /** Remaining quantity stored on the lot */
+    private Integer quantiteLot;
+    /** Sum of the movements of the lot */
+    private Integer quantiteGrandLivre;
+    /** Running balance of the last movement of the lot, null without movement */
+    private Integer soldeDernierMouvement;
+}
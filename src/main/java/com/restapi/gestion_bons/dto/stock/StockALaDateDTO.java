@@ -0,0 +1,14 @@
+package com.restapi.gestion_bons.dto.stock;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockALaDateDTO {
+    private Long produitId;
+    private String produitReference;
+    private String produitNom;
+    private Integer quantite;
+}
@@ -0,0 +1,15 @@
+package com.restapi.gestion_bons.dto.stock;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAlerteEvenementDTO {
+    private TypeEvenementAlerte type;
+    /** State of the alert after the change; for a lifted alert, its last state */
+    private StockAlertDTO alerte;
+    private LocalDateTime date;
+}
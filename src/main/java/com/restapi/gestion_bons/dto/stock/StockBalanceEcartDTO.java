@@ -0,0 +1,19 @@
+package com.restapi.gestion_bons.dto.stock;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockBalanceEcartDTO {
+    private Long produitId;
+    private Integer quantiteAttendue;
+    private Integer quantiteEnregistree;
+    private BigDecimal valorisationAttendue;
+    private BigDecimal valorisationEnregistree;
+    private Integer nombreLotsAttendus;
+    private Integer nombreLotsEnregistres;
+    private boolean corrige;
+}
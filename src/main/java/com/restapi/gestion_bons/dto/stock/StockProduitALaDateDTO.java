@@ -0,0 +1,26 @@
+package com.restapi.gestion_bons.dto.stock;
+
+import lombok.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockProduitALaDateDTO {
+    private Long produitId;
+    private LocalDateTime date;
+    private Integer quantite;
+    private List<LotALaDate> lots;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class LotALaDate {
+        private Long lotId;
+        private String numeroLot;
+        private Integer quantite;
+    }
+}
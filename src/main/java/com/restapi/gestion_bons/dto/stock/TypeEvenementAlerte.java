@@ -0,0 +1,12 @@
+package com.restapi.gestion_bons.dto.stock;
+
+public enum TypeEvenementAlerte {
+    /** The stock of the product went below its reorder point. */
+    OUVERTE,
+
+    /** The product is still below its reorder point, with a different quantity. */
+    MISE_A_JOUR,
+
+    /** The stock of the product is back at or above its reorder point. */
+    LEVEE
+}
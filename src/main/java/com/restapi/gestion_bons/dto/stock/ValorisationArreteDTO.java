@@ -0,0 +1,18 @@
+package com.restapi.gestion_bons.dto.stock;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** FIFO value of one product's stock at the end of a cut-off day */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ValorisationArreteDTO {
+    private LocalDate dateArrete;
+    private Long produitId;
+    private Integer quantite;
+    private BigDecimal valorisation;
+}
@@ -21,7 +21,7 @@ public class BonDeSortie {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name="numero_bon", nullable = false)
+    @Column(name="numero_bon", nullable = false, unique = true)
     private String numeroBon;
 
     @Column(name = "date_sortie", nullable = false)
@@ -61,4 +61,9 @@ public class Lot {
     @JoinColumn(name = "mouvement_stock_id")
     private MouvementStock mouvementStock;
 
+    /** Optimistic lock, also checked by the FIFO batch writer */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
 }
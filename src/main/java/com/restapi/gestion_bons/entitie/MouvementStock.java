@@ -41,4 +41,12 @@ public class MouvementStock {
     @JoinColumn(name = "lot_id", nullable = false)
     private Lot lot;
 
+    /** Remaining quantity of the lot right after this movement */
+    @Column(name = "solde_lot")
+    private Integer soldeLot;
+
+    /** Stock of the product right after this movement, in (date, id) order */
+    @Column(name = "solde_produit")
+    private Integer soldeProduit;
+
 }
@@ -9,6 +9,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "produit")
+@NamedEntityGraph(name = Produit.GRAPH_LOTS, attributeNodes = @NamedAttributeNode("lots"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,6 +18,9 @@ import java.util.List;
 @EqualsAndHashCode(of = "id")
 public class Produit {
 
+    /** Product with all of its lots in one select; lots are lazy otherwise */
+    public static final String GRAPH_LOTS = "produit-with-lots";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
@@ -46,7 +50,8 @@ public class Produit {
     @OneToMany(mappedBy = "produit", fetch = FetchType.LAZY)
     private final List<LigneCommande> lignesCommande = new ArrayList<>();
 
-    @OneToMany(mappedBy = "produit", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "produit", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @OrderBy("dateEntree ASC, id ASC")
     private final List<Lot> lots = new ArrayList<>();
 
 }
\ No newline at end of file
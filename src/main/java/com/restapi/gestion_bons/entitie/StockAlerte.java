@@ -0,0 +1,36 @@
+package com.restapi.gestion_bons.entitie;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Product whose available stock is below its reorder point. A row exists
+ * only while the alert is open; it is written in the same transaction as
+ * the stock change that opens, updates or lifts it.
+ */
+@Entity
+@Table(name = "stock_alerte")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAlerte {
+
+    @Id
+    @Column(name = "produit_id")
+    private Long produitId;
+
+    @Column(name = "stock_actuel", nullable = false)
+    private Integer stockActuel;
+
+    /** Reorder point of the product when the alert was last written */
+    @Column(name = "seuil", nullable = false)
+    private Integer seuil;
+
+    /** Date the stock went below the reorder point */
+    @Column(name = "date_alerte")
+    private LocalDateTime dateAlerte;
+
+}
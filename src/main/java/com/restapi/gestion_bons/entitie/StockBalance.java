@@ -0,0 +1,39 @@
+package com.restapi.gestion_bons.entitie;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Available stock of a product, maintained incrementally in the same
+ * transaction as every lot entry and exit.
+ */
+@Entity
+@Table(name = "stock_balance")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockBalance {
+
+    @Id
+    @Column(name = "produit_id")
+    private Long produitId;
+
+    /** Sum of the remaining quantity of the available lots */
+    @Column(name = "quantite_disponible", nullable = false)
+    private Integer quantiteDisponible;
+
+    /** FIFO valuation: remaining quantity times purchase price, per lot */
+    @Column(name = "valorisation", nullable = false, precision = 19, scale = 2)
+    private BigDecimal valorisation;
+
+    @Column(name = "nombre_lots_actifs", nullable = false)
+    private Integer nombreLotsActifs;
+
+    @Column(name = "date_mise_a_jour")
+    private LocalDateTime dateMiseAJour;
+
+}
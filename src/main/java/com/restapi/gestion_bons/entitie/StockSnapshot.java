@@ -0,0 +1,33 @@
+package com.restapi.gestion_bons.entitie;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Stock of a product at a snapshot date, built from the previous snapshot
+ * and the movements in between. Products without stock have no row.
+ */
+@Entity
+@Table(name = "stock_snapshot")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "date_snapshot", nullable = false)
+    private LocalDateTime dateSnapshot;
+
+    @Column(name = "produit_id", nullable = false)
+    private Long produitId;
+
+    @Column(name = "quantite", nullable = false)
+    private Integer quantite;
+
+}
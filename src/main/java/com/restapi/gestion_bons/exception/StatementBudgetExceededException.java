@@ -0,0 +1,13 @@
+package com.restapi.gestion_bons.exception;
+
+/**
+ * Raised before running a statement that would take a request over its
+ * statement budget, typically an N+1 loop. The current transaction is rolled
+ * back.
+ */
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException(int budget) {
+        super("Budget de " + budget + " requêtes SQL dépassé pour cette requête");
+    }
+}
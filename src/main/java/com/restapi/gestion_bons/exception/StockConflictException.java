@@ -0,0 +1,14 @@
+package com.restapi.gestion_bons.exception;
+
+import org.springframework.dao.ConcurrencyFailureException;
+
+/**
+ * Raised when lots read for a FIFO allocation were changed or locked by a
+ * concurrent transaction. The operation can safely be retried.
+ */
+public class StockConflictException extends ConcurrencyFailureException {
+
+    public StockConflictException(String message) {
+        super(message);
+    }
+}
@@ -3,7 +3,9 @@ package com.restapi.gestion_bons.handler;
 import com.restapi.gestion_bons.controller.StockController;
 import com.restapi.gestion_bons.controller.BonDeSortieController;
 import com.restapi.gestion_bons.controller.AtelierController;
+import com.restapi.gestion_bons.controller.RapportController;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -13,7 +15,8 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
-@RestControllerAdvice(assignableTypes = { StockController.class, BonDeSortieController.class, AtelierController.class })
+@RestControllerAdvice(assignableTypes = { StockController.class, BonDeSortieController.class, AtelierController.class,
+        RapportController.class })
 public class StockExceptionHandler {
 
     @ExceptionHandler(EntityNotFoundException.class)
@@ -36,6 +39,16 @@ public class StockExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
     }
 
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConcurrencyFailure(ConcurrencyFailureException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now().toString());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Conflict");
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException ex) {
         Map<String, Object> body = new HashMap<>();
@@ -19,11 +19,13 @@ public interface LotMapper {
     @Mapping(target = "produit.id", source = "produitId")
     @Mapping(target = "commandeFournisseur.id", source = "commandeFournisseurId")
     @Mapping(target = "mouvementStock", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Lot toEntity(ResponseLotDTO dto);
 
     @Mapping(target = "produit.id", source = "produitId")
     @Mapping(target = "mouvementStock", ignore = true)
     @Mapping(target = "commandeFournisseur", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Lot toEntity(BaseLotDTO bsl);
 
     List<ResponseLotDTO> toResponseDtoList(List<Lot> lots);
@@ -18,6 +18,8 @@ public interface MouvementStockMapper {
 
     @Mapping(target = "produit.id", source = "produitId")
     @Mapping(target = "lot.id", source = "lotId")
+    @Mapping(target = "soldeLot", ignore = true)
+    @Mapping(target = "soldeProduit", ignore = true)
     MouvementStock toEntity(MouvementStockRequestDTO dto);
 
     List<MouvementStockResponseDTO> toResponseDtoList(List<MouvementStock> mouvements);
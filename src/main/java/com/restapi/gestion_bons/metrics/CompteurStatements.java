@@ -0,0 +1,84 @@
+package com.restapi.gestion_bons.metrics;
+
+import com.restapi.gestion_bons.exception.StatementBudgetExceededException;
+
+/**
+ * Number of JDBC statements executed by the current thread in the open
+ * counting scopes. A JDBC batch counts as one statement, as it is one round
+ * trip. Scopes nest: a statement counts in every enclosing scope. Statements
+ * executed outside any scope are not recorded.
+ */
+public final class CompteurStatements {
+
+    private static final ThreadLocal<Portee> PORTEE = new ThreadLocal<>();
+
+    private CompteurStatements() {
+    }
+
+    /** Opens a scope without budget */
+    public static Portee ouvrir() {
+        return ouvrir(Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Opens a scope; with {@code rejeter}, the statement that would exceed the
+     * budget is not executed and a {@link StatementBudgetExceededException}
+     * is thrown instead.
+     */
+    public static Portee ouvrir(int budget, boolean rejeter) {
+        Portee portee = new Portee(PORTEE.get(), budget, rejeter);
+        PORTEE.set(portee);
+        return portee;
+    }
+
+    /** Closes the scope and returns the number of statements it counted */
+    public static int fermer(Portee portee) {
+        if (portee.englobante == null) {
+            PORTEE.remove();
+        } else {
+            PORTEE.set(portee.englobante);
+        }
+        return portee.statements;
+    }
+
+    /** Statements executed so far in the innermost open scope, 0 if none */
+    public static int courant() {
+        Portee portee = PORTEE.get();
+        return portee == null ? 0 : portee.statements;
+    }
+
+    static void avantExecution() {
+        for (Portee portee = PORTEE.get(); portee != null; portee = portee.englobante) {
+            if (portee.rejeter && portee.statements >= portee.budget) {
+                portee.depasse = true;
+                throw new StatementBudgetExceededException(portee.budget);
+            }
+        }
+        for (Portee portee = PORTEE.get(); portee != null; portee = portee.englobante) {
+            portee.statements++;
+        }
+    }
+
+    public static final class Portee {
+        private final Portee englobante;
+        private final int budget;
+        private final boolean rejeter;
+        private int statements;
+        private boolean depasse;
+
+        private Portee(Portee englobante, int budget, boolean rejeter) {
+            this.englobante = englobante;
+            this.budget = budget;
+            this.rejeter = rejeter;
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        /** Whether a statement was rejected for exceeding the budget */
+        public boolean isDepasse() {
+            return depasse;
+        }
+    }
+}
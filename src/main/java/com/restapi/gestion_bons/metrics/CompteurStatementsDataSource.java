@@ -0,0 +1,76 @@
+package com.restapi.gestion_bons.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Counts every statement executed through its connections into
+ * {@link CompteurStatements}, whether it comes from Hibernate, a
+ * JdbcTemplate or the batch DAOs.
+ */
+public class CompteurStatementsDataSource extends DelegatingDataSource {
+
+    public CompteurStatementsDataSource(DataSource cible) {
+        super(cible);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password));
+    }
+
+    private static <T> T proxy(Class<T> type, T cible) {
+        boolean statement = Statement.class.isAssignableFrom(type);
+        InvocationHandler handler = (proxy, methode, arguments) -> {
+            String nom = methode.getName();
+            switch (nom) {
+                case "equals":
+                    return proxy == arguments[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (statement && nom.startsWith("execute")) {
+                CompteurStatements.avantExecution();
+            }
+            Object resultat;
+            try {
+                resultat = methode.invoke(cible, arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            // unwrap doit renvoyer l'objet du pilote, pas un nouveau proxy
+            if (statement || nom.equals("unwrap")) {
+                return resultat;
+            }
+            if (resultat instanceof CallableStatement s) {
+                return proxy(CallableStatement.class, s);
+            }
+            if (resultat instanceof PreparedStatement s) {
+                return proxy(PreparedStatement.class, s);
+            }
+            if (resultat instanceof Statement s) {
+                return proxy(Statement.class, s);
+            }
+            return resultat;
+        };
+        return type.cast(Proxy.newProxyInstance(CompteurStatementsDataSource.class.getClassLoader(),
+                new Class<?>[] { type }, handler));
+    }
+}
@@ -0,0 +1,128 @@
+package com.restapi.gestion_bons.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
+import com.restapi.gestion_bons.service.fifo.FifoAllocation;
+import com.restapi.gestion_bons.service.fifo.FifoStockState;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency of every {@code *Contract} method ({@code stock.service}, tagged
+ * with the contract, the method and the exception thrown) and the business
+ * counters of the stock hot paths:
+ * <ul>
+ * <li>{@code stock.fifo.lots.consommes}: lots taken by one voucher</li>
+ * <li>{@code stock.fifo.lots.parcourus}: lots visited to serve one line, skipped empty ones included</li>
+ * <li>{@code stock.mouvements.ecrits}: movements written, by type</li>
+ * <li>{@code stock.reception.lignes}: order lines received at once</li>
+ * </ul>
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private static final String PACKAGE_CONTRATS = "com.restapi.gestion_bons.contracts";
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary lotsConsommes;
+    private final DistributionSummary lotsParcourus;
+    private final DistributionSummary lignesReception;
+    private final Map<Class<?>, String> contrats = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.lotsConsommes = DistributionSummary.builder("stock.fifo.lots.consommes")
+                .description("Lots consumed by one voucher validation")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lotsParcourus = DistributionSummary.builder("stock.fifo.lots.parcourus")
+                .description("FIFO lots visited to serve one voucher line")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lignesReception = DistributionSummary.builder("stock.reception.lignes")
+                .description("Order lines turned into lots by one reception")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Around("execution(public * com.restapi.gestion_bons.contracts.*+.*(..))")
+    public Object chronometrer(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("stock.service")
+                    .description("Latency of the service contract methods")
+                    .tag("contrat", contrat(joinPoint.getTarget()))
+                    .tag("methode", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    @AfterReturning(
+            pointcut = "execution(* com.restapi.gestion_bons.service.fifo.FifoAllocationEngine.planifier(..)) "
+                    + "&& args(stock, ..)",
+            returning = "allocations")
+    public void compterLotsFifo(FifoStockState stock, List<FifoAllocation> allocations) {
+        Set<Lot> lots = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (FifoAllocation allocation : allocations) {
+            lots.add(allocation.getLot());
+        }
+        lotsConsommes.record(lots.size());
+        for (int parcourus : stock.getLotsParcourus()) {
+            lotsParcourus.record(parcourus);
+        }
+    }
+
+    @AfterReturning("execution(* com.restapi.gestion_bons.dao.StockBatchDAO.insertMouvements(..)) && args(mouvements)")
+    public void compterMouvements(Collection<MouvementStock> mouvements) {
+        Map<String, Integer> parType = new HashMap<>();
+        mouvements.forEach(m -> parType.merge(String.valueOf(m.getTypeMouvement()), 1, Integer::sum));
+        parType.forEach((type, nombre) -> Counter.builder("stock.mouvements.ecrits")
+                .description("Stock movements written")
+                .tag("type", type)
+                .register(meterRegistry)
+                .increment(nombre));
+    }
+
+    @AfterReturning("execution(* com.restapi.gestion_bons.dao.StockBatchDAO.insertLots(..)) && args(lots)")
+    public void compterLignesReception(List<Lot> lots) {
+        lignesReception.record(lots.size());
+    }
+
+    private String contrat(Object cible) {
+        return contrats.computeIfAbsent(AopUtils.getTargetClass(cible), classe ->
+                ClassUtils.getAllInterfacesForClassAsSet(classe).stream()
+                        .filter(i -> i.getPackageName().equals(PACKAGE_CONTRATS))
+                        .map(Class::getSimpleName)
+                        .findFirst()
+                        .orElse(classe.getSimpleName()));
+    }
+}
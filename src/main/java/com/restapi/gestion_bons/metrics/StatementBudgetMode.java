@@ -0,0 +1,12 @@
+package com.restapi.gestion_bons.metrics;
+
+/**
+ * What to do with an HTTP request that executes more statements than
+ * {@code stock.statements.budget}.
+ */
+public enum StatementBudgetMode {
+    /** Serve the request and log a warning once it completes */
+    LOG,
+    /** Fail the statement over the budget, the request ends in error */
+    REJECT
+}
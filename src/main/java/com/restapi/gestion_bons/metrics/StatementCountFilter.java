@@ -0,0 +1,76 @@
+package com.restapi.gestion_bons.metrics;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.restapi.gestion_bons.util.AppLogger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Records the number of JDBC statements executed by each HTTP request as
+ * {@code http.server.requests.statements}, tagged like
+ * {@code http.server.requests}. Statements run by a streamed response body
+ * after the request thread has returned are not counted.
+ * <p>
+ * With {@code stock.statements.budget} set, requests over the budget are
+ * counted in {@code http.server.requests.statements.depassements} and either
+ * logged or rejected, see {@link StatementBudgetMode}.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    /** 0 disables the budget */
+    @Value("${stock.statements.budget:0}")
+    private int budget;
+
+    @Value("${stock.statements.mode:LOG}")
+    private StatementBudgetMode mode = StatementBudgetMode.LOG;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean limite = budget > 0;
+        CompteurStatements.Portee portee = CompteurStatements.ouvrir(
+                limite ? budget : Integer.MAX_VALUE, limite && mode == StatementBudgetMode.REJECT);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = CompteurStatements.fermer(portee);
+            Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = motif == null ? "UNKNOWN" : motif.toString();
+            DistributionSummary.builder("http.server.requests.statements")
+                    .description("JDBC statements executed per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(statements);
+
+            if (limite && (statements > budget || portee.isDepasse())) {
+                Counter.builder("http.server.requests.statements.depassements")
+                        .description("HTTP requests over the statement budget")
+                        .tag("method", request.getMethod())
+                        .tag("uri", uri)
+                        .register(meterRegistry)
+                        .increment();
+                AppLogger.warn(request.getMethod() + " " + uri + ": " + statements
+                        + " requêtes SQL pour un budget de " + budget);
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.restapi.gestion_bons.seeder;
 import com.restapi.gestion_bons.dao.*;
 import com.restapi.gestion_bons.entitie.*;
 import com.restapi.gestion_bons.entitie.enums.*;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -28,6 +29,7 @@ public class DatabaseSeeder implements CommandLineRunner {
     private final LotDAO lotDAO;
     private final AtelierDAO atelierDAO;
     private final BonDeSortieDAO bonDeSortieDAO;
+    private final StockBalanceService stockBalanceService;
 
     @Override
     @Transactional
@@ -40,6 +42,7 @@ public class DatabaseSeeder implements CommandLineRunner {
         seedLots();
         seedAteliers();
         seedBonsDeSortie();
+        stockBalanceService.reconstruire();
 
         log.info("✅ Database seeding completed successfully!");
     }
@@ -1,5 +1,6 @@
 package com.restapi.gestion_bons.service.atelier;
 
+import com.restapi.gestion_bons.config.CacheConfig;
 import com.restapi.gestion_bons.contracts.AtelierContract;
 import com.restapi.gestion_bons.dao.AtelierDAO;
 import com.restapi.gestion_bons.dto.atelier.AtelierCreateDTO;
@@ -9,6 +10,8 @@ import com.restapi.gestion_bons.entitie.Atelier;
 import com.restapi.gestion_bons.mapper.AtelierMapper;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +27,7 @@ public class AtelierService implements AtelierContract {
     private final AtelierMapper atelierMapper;
 
     @Override
+    @CacheEvict(cacheNames = { CacheConfig.ATELIERS, CacheConfig.ATELIERS_PAR_NOM }, allEntries = true)
     public AtelierResponseDTO save(AtelierCreateDTO dto) {
         Atelier atelier = atelierMapper.toEntity(dto);
         Atelier saved = atelierDAO.save(atelier);
@@ -31,6 +35,7 @@ public class AtelierService implements AtelierContract {
     }
 
     @Override
+    @CacheEvict(cacheNames = { CacheConfig.ATELIERS, CacheConfig.ATELIERS_PAR_NOM }, allEntries = true)
     public AtelierResponseDTO update(Long id, AtelierUpdateDTO dto) {
         if (!atelierDAO.existsById(id)) {
             throw new EntityNotFoundException("Atelier non trouvé avec l'id: " + id);
@@ -44,6 +49,7 @@ public class AtelierService implements AtelierContract {
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.ATELIERS)
     public AtelierResponseDTO findById(Long id) {
         return atelierDAO.findById(id)
                 .map(atelierMapper::toResponseDto)
@@ -59,6 +65,7 @@ public class AtelierService implements AtelierContract {
     }
 
     @Override
+    @CacheEvict(cacheNames = { CacheConfig.ATELIERS, CacheConfig.ATELIERS_PAR_NOM }, allEntries = true)
     public void delete(Long id) {
         if (!atelierDAO.existsById(id)) {
             throw new EntityNotFoundException("Atelier non trouvé avec l'id: " + id);
@@ -68,6 +75,7 @@ public class AtelierService implements AtelierContract {
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.ATELIERS_PAR_NOM)
     public AtelierResponseDTO findByNom(String nom) {
         return atelierDAO.findByNom(nom)
                 .map(atelierMapper::toResponseDto)
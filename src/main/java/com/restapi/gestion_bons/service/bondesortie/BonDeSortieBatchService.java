@@ -0,0 +1,283 @@
+package com.restapi.gestion_bons.service.bondesortie;
+
+import com.restapi.gestion_bons.contracts.BonDeSortieBatchContract;
+import com.restapi.gestion_bons.dao.AtelierDAO;
+import com.restapi.gestion_bons.dao.BonDeSortieBatchDAO;
+import com.restapi.gestion_bons.dao.BonDeSortieDAO;
+import com.restapi.gestion_bons.dao.BonDeSortieLigneDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchResultatDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchValidationDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
+import com.restapi.gestion_bons.entitie.Atelier;
+import com.restapi.gestion_bons.entitie.BonDeSortie;
+import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.BonDeSortieStatus;
+import com.restapi.gestion_bons.mapper.BonDeSortieMapper;
+import com.restapi.gestion_bons.service.fifo.FifoAllocation;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+import com.restapi.gestion_bons.service.fifo.FifoStockState;
+import com.restapi.gestion_bons.service.fifo.ProduitLockManager;
+import com.restapi.gestion_bons.service.numerotation.NumerotationService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk creation and validation of exit vouchers. A whole request runs in one
+ * transaction: references are resolved in one query per entity type, the
+ * FIFO allocation of every voucher is planned against one in-memory stock
+ * state and the successful allocations are written in one set of batches.
+ * A voucher that fails (invalid, unknown reference, not a draft, shortage)
+ * only fails its own item; the others are still saved. The products being
+ * allocated are locked in the JVM before the transaction is opened and until
+ * it ends, as for a single validation.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class BonDeSortieBatchService implements BonDeSortieBatchContract {
+
+    private final BonDeSortieDAO bonDeSortieDAO;
+    private final BonDeSortieLigneDAO bonDeSortieLigneDAO;
+    private final BonDeSortieBatchDAO bonDeSortieBatchDAO;
+    private final AtelierDAO atelierDAO;
+    private final ProduitDAO produitDAO;
+    private final FifoAllocationEngine fifoAllocationEngine;
+    private final StockBalanceService stockBalanceService;
+    private final BonDeSortieMapper bonDeSortieMapper;
+    private final NumerotationService numerotationService;
+    private final Validator validator;
+    private final ProduitLockManager produitLockManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    @Retryable(retryFor = ConcurrencyFailureException.class,
+            maxAttemptsExpression = "${stock.fifo.max-attempts:5}",
+            backoff = @Backoff(delayExpression = "${stock.fifo.retry-delay-ms:20}", multiplier = 2, maxDelay = 500, random = true))
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BonDeSortieBatchResultatDTO creer(BonDeSortieBatchCreateDTO dto) {
+        if (!dto.isValider()) {
+            return transaction().execute(status -> creerSousVerrous(dto));
+        }
+        Set<Long> produitIds = dto.getBons().stream()
+                .filter(demande -> demande.getLignes() != null)
+                .flatMap(demande -> demande.getLignes().stream())
+                .map(BonDeSortieLigneDTO::getProduitId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        return produitLockManager.executer(produitIds, () -> transaction().execute(status -> creerSousVerrous(dto)));
+    }
+
+    private BonDeSortieBatchResultatDTO creerSousVerrous(BonDeSortieBatchCreateDTO dto) {
+        List<BonDeSortieCreateDTO> demandes = dto.getBons();
+        Map<Integer, String> erreurs = new LinkedHashMap<>();
+
+        for (int i = 0; i < demandes.size(); i++) {
+            String violations = violations(demandes.get(i));
+            if (!violations.isEmpty()) {
+                erreurs.put(i, violations);
+            }
+        }
+
+        // Résolution des références : une requête pour les ateliers, une pour les produits
+        Set<Long> atelierIds = new HashSet<>();
+        Set<Long> produitIds = new HashSet<>();
+        for (int i = 0; i < demandes.size(); i++) {
+            if (!erreurs.containsKey(i)) {
+                atelierIds.add(demandes.get(i).getAtelierId());
+                demandes.get(i).getLignes().forEach(l -> produitIds.add(l.getProduitId()));
+            }
+        }
+        Map<Long, Atelier> ateliers = atelierDAO.findAllById(atelierIds).stream()
+                .collect(Collectors.toMap(Atelier::getId, Function.identity()));
+        Map<Long, Produit> produits = produitDAO.findAllById(produitIds).stream()
+                .collect(Collectors.toMap(Produit::getId, Function.identity()));
+
+        Map<Integer, BonDeSortie> bons = new LinkedHashMap<>();
+        for (int i = 0; i < demandes.size(); i++) {
+            if (!erreurs.containsKey(i)) {
+                try {
+                    bons.put(i, construire(demandes.get(i), ateliers, produits));
+                } catch (IllegalArgumentException e) {
+                    erreurs.put(i, e.getMessage());
+                }
+            }
+        }
+
+        List<FifoAllocation> allocations = new ArrayList<>();
+        if (dto.isValider()) {
+            allocations = planifier(bons, erreurs);
+        }
+
+        List<BonDeSortie> aEnregistrer = new ArrayList<>(bons.values());
+        aEnregistrer.forEach(bon -> bon.setNumeroBon(numerotationService.prochainNumeroBon()));
+        if (!aEnregistrer.isEmpty()) {
+            bonDeSortieBatchDAO.insertBons(aEnregistrer);
+        }
+        if (!allocations.isEmpty()) {
+            stockBalanceService.enregistrerSorties(fifoAllocationEngine.appliquer(allocations));
+        }
+
+        return resultat(demandes.size(), bons, erreurs);
+    }
+
+    @Override
+    @Retryable(retryFor = ConcurrencyFailureException.class,
+            maxAttemptsExpression = "${stock.fifo.max-attempts:5}",
+            backoff = @Backoff(delayExpression = "${stock.fifo.retry-delay-ms:20}", multiplier = 2, maxDelay = 500, random = true))
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BonDeSortieBatchResultatDTO valider(BonDeSortieBatchValidationDTO dto) {
+        Set<Long> idsDistincts = dto.getIds().stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        // lu sur le primaire dans sa propre transaction, la connexion est rendue avant l'attente
+        List<Long> produitIds = new TransactionTemplate(transactionManager)
+                .execute(status -> bonDeSortieLigneDAO.findProduitIdsByBonDeSortieIdIn(idsDistincts));
+        return produitLockManager.executer(produitIds,
+                () -> transaction().execute(status -> validerSousVerrous(dto.getIds(), idsDistincts)));
+    }
+
+    private BonDeSortieBatchResultatDTO validerSousVerrous(List<Long> ids, Set<Long> idsDistincts) {
+        Map<Long, BonDeSortie> trouves = bonDeSortieDAO.findByIdIn(idsDistincts).stream()
+                .collect(Collectors.toMap(BonDeSortie::getId, Function.identity()));
+
+        Map<Integer, String> erreurs = new LinkedHashMap<>();
+        Map<Integer, BonDeSortie> bons = new LinkedHashMap<>();
+        Set<Long> dejaDemandes = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            BonDeSortie bon = trouves.get(id);
+            if (bon == null) {
+                erreurs.put(i, "Bon de sortie non trouvé avec l'id: " + id);
+            } else if (bon.getStatut() != BonDeSortieStatus.BROUILLON || !dejaDemandes.add(id)) {
+                erreurs.put(i, "Seuls les bons de sortie brouillons peuvent être validés");
+            } else {
+                bons.put(i, bon);
+            }
+        }
+
+        List<FifoAllocation> allocations = planifier(bons, erreurs);
+        if (!allocations.isEmpty()) {
+            stockBalanceService.enregistrerSorties(fifoAllocationEngine.appliquer(allocations));
+        }
+
+        return resultat(ids.size(), bons, erreurs);
+    }
+
+    /**
+     * Plans every voucher against one stock state loaded in a single query.
+     * A voucher that cannot be served is removed from {@code bons} and its
+     * reservations are released for the following ones; the others are
+     * marked VALIDE.
+     */
+    private List<FifoAllocation> planifier(Map<Integer, BonDeSortie> bons, Map<Integer, String> erreurs) {
+        List<FifoAllocation> allocations = new ArrayList<>();
+        if (bons.isEmpty()) {
+            return allocations;
+        }
+
+        List<BonDeSortieLigne> toutesLignes = bons.values().stream()
+                .flatMap(bon -> bon.getBonDeSortieLignes().stream())
+                .toList();
+        FifoStockState stock = fifoAllocationEngine.charger(toutesLignes);
+
+        Iterator<Map.Entry<Integer, BonDeSortie>> iterateur = bons.entrySet().iterator();
+        while (iterateur.hasNext()) {
+            Map.Entry<Integer, BonDeSortie> entree = iterateur.next();
+            BonDeSortie bon = entree.getValue();
+            try {
+                allocations.addAll(fifoAllocationEngine.planifier(stock, bon.getBonDeSortieLignes()));
+                bon.setStatut(BonDeSortieStatus.VALIDE);
+            } catch (IllegalStateException e) {
+                erreurs.put(entree.getKey(), e.getMessage());
+                iterateur.remove();
+            }
+        }
+        return allocations;
+    }
+
+    /** Transaction of a request, opened once its products are locked. */
+    private TransactionTemplate transaction() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return transaction;
+    }
+
+    private String violations(BonDeSortieCreateDTO dto) {
+        Set<String> messages = new TreeSet<>();
+        validator.validate(dto).forEach(v -> messages.add(v.getMessage()));
+        if (dto.getLignes() != null) {
+            dto.getLignes().forEach(ligne -> validator.validate(ligne).forEach(v -> messages.add(v.getMessage())));
+        }
+        return String.join(", ", messages);
+    }
+
+    private BonDeSortie construire(BonDeSortieCreateDTO dto, Map<Long, Atelier> ateliers, Map<Long, Produit> produits) {
+        Atelier atelier = ateliers.get(dto.getAtelierId());
+        if (atelier == null) {
+            throw new IllegalArgumentException("Atelier non trouvé avec l'id: " + dto.getAtelierId());
+        }
+
+        BonDeSortie bonDeSortie = BonDeSortie.builder()
+                .dateSortie(dto.getDateSortie())
+                .motifSortie(dto.getMotifSortie())
+                .statut(BonDeSortieStatus.BROUILLON)
+                .atelier(atelier)
+                .build();
+
+        for (BonDeSortieLigneDTO ligneDTO : dto.getLignes()) {
+            Produit produit = produits.get(ligneDTO.getProduitId());
+            if (produit == null) {
+                throw new IllegalArgumentException("Produit non trouvé avec l'id: " + ligneDTO.getProduitId());
+            }
+            bonDeSortie.getBonDeSortieLignes().add(BonDeSortieLigne.builder()
+                    .bonDeSortie(bonDeSortie)
+                    .produit(produit)
+                    .quantiteDemandee(ligneDTO.getQuantiteDemandee())
+                    .build());
+        }
+        return bonDeSortie;
+    }
+
+    private BonDeSortieBatchResultatDTO resultat(int total, Map<Integer, BonDeSortie> bons, Map<Integer, String> erreurs) {
+        List<BonDeSortieBatchResultatDTO.Resultat> resultats = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            BonDeSortie bon = bons.get(i);
+            resultats.add(BonDeSortieBatchResultatDTO.Resultat.builder()
+                    .index(i)
+                    .succes(bon != null)
+                    .bon(bon != null ? bonDeSortieMapper.toResponseDto(bon) : null)
+                    .erreur(erreurs.get(i))
+                    .build());
+        }
+        return BonDeSortieBatchResultatDTO.builder()
+                .total(total)
+                .succes(bons.size())
+                .echecs(total - bons.size())
+                .resultats(resultats)
+                .build();
+    }
+}
@@ -1,23 +1,38 @@
 package com.restapi.gestion_bons.service.bondesortie;
 
+import com.restapi.gestion_bons.contracts.AtelierContract;
 import com.restapi.gestion_bons.contracts.BonDeSortieContract;
 import com.restapi.gestion_bons.dao.*;
+import com.restapi.gestion_bons.dto.atelier.AtelierResponseDTO;
 import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
 import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieResponseDTO;
 import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieUpdateDTO;
 import com.restapi.gestion_bons.entitie.*;
 import com.restapi.gestion_bons.entitie.enums.BonDeSortieStatus;
-import com.restapi.gestion_bons.entitie.enums.LotStatus;
-import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
 import com.restapi.gestion_bons.mapper.BonDeSortieMapper;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+import com.restapi.gestion_bons.service.fifo.FifoStockState;
+import com.restapi.gestion_bons.service.fifo.ProduitLockManager;
+import com.restapi.gestion_bons.service.numerotation.NumerotationService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.persistence.EntityNotFoundException;
 
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,29 +44,40 @@ public class BonDeSortieService implements BonDeSortieContract {
     private final BonDeSortieLigneDAO bonDeSortieLigneDAO;
     private final AtelierDAO atelierDAO;
     private final ProduitDAO produitDAO;
-    private final LotDAO lotDAO;
-    private final MouvementStockDAO mouvementStockDAO;
+    private final AtelierContract atelierService;
+    private final FifoAllocationEngine fifoAllocationEngine;
+    private final StockBalanceService stockBalanceService;
     private final BonDeSortieMapper bonDeSortieMapper;
+    private final NumerotationService numerotationService;
+    private final ProduitLockManager produitLockManager;
+    private final PlatformTransactionManager transactionManager;
 
     @Override
     public BonDeSortieResponseDTO save(BonDeSortieCreateDTO dto) {
-        Atelier atelier = atelierDAO.findById(dto.getAtelierId())
-                .orElseThrow(() -> new EntityNotFoundException("Atelier non trouvé avec l'id: " + dto.getAtelierId()));
+        Atelier atelier = atelier(dto.getAtelierId());
 
         BonDeSortie bonDeSortie = BonDeSortie.builder()
-                .numeroBon(genererNumeroBon())
+                .numeroBon(numerotationService.prochainNumeroBon())
                 .dateSortie(dto.getDateSortie())
                 .motifSortie(dto.getMotifSortie())
                 .statut(BonDeSortieStatus.BROUILLON)
                 .atelier(atelier)
                 .build();
 
+        // Une requête pour les produits de toutes les lignes
+        Set<Long> produitIds = dto.getLignes().stream()
+                .map(BonDeSortieLigneDTO::getProduitId)
+                .collect(Collectors.toSet());
+        Map<Long, Produit> produits = produitDAO.findAllById(produitIds).stream()
+                .collect(Collectors.toMap(Produit::getId, Function.identity()));
+
         // Créer les lignes du bon
         List<BonDeSortieLigne> lignes = dto.getLignes().stream()
                 .map(ligneDTO -> {
-                    Produit produit = produitDAO.findById(ligneDTO.getProduitId())
-                            .orElseThrow(() -> new EntityNotFoundException(
-                                    "Produit non trouvé avec l'id: " + ligneDTO.getProduitId()));
+                    Produit produit = produits.get(ligneDTO.getProduitId());
+                    if (produit == null) {
+                        throw new EntityNotFoundException("Produit non trouvé avec l'id: " + ligneDTO.getProduitId());
+                    }
 
                     return BonDeSortieLigne.builder()
                             .bonDeSortie(bonDeSortie)
@@ -85,10 +111,7 @@ public class BonDeSortieService implements BonDeSortieContract {
         bonDeSortie.setMotifSortie(dto.getMotifSortie());
 
         if (dto.getAtelierId() != null) {
-            Atelier atelier = atelierDAO.findById(dto.getAtelierId())
-                    .orElseThrow(
-                            () -> new EntityNotFoundException("Atelier non trouvé avec l'id: " + dto.getAtelierId()));
-            bonDeSortie.setAtelier(atelier);
+            bonDeSortie.setAtelier(atelier(dto.getAtelierId()));
         }
 
         BonDeSortie updated = bonDeSortieDAO.save(bonDeSortie);
@@ -144,8 +167,27 @@ public class BonDeSortieService implements BonDeSortieContract {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Takes the locks of the voucher's products before its transaction is
+     * opened: a validation waiting for a busy product holds no connection.
+     * The bon and the lots are read after the locks, in READ COMMITTED, to see
+     * the writes of the previous validation.
+     */
     @Override
+    @Retryable(retryFor = ConcurrencyFailureException.class,
+            maxAttemptsExpression = "${stock.fifo.max-attempts:5}",
+            backoff = @Backoff(delayExpression = "${stock.fifo.retry-delay-ms:20}", multiplier = 2, maxDelay = 500, random = true))
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BonDeSortieResponseDTO valider(Long id) {
+        // lu sur le primaire dans sa propre transaction, la connexion est rendue avant l'attente
+        List<Long> produitIds = new TransactionTemplate(transactionManager)
+                .execute(status -> bonDeSortieLigneDAO.findProduitIdsByBonDeSortieIdIn(List.of(id)));
+        TransactionTemplate validation = new TransactionTemplate(transactionManager);
+        validation.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return produitLockManager.executer(produitIds, () -> validation.execute(status -> validerSousVerrous(id)));
+    }
+
+    private BonDeSortieResponseDTO validerSousVerrous(Long id) {
         BonDeSortie bonDeSortie = bonDeSortieDAO.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Bon de sortie non trouvé avec l'id: " + id));
 
@@ -153,10 +195,11 @@ public class BonDeSortieService implements BonDeSortieContract {
             throw new IllegalStateException("Seuls les bons de sortie brouillons peuvent être validés");
         }
 
-        // Traiter chaque ligne avec FIFO
-        for (BonDeSortieLigne ligne : bonDeSortie.getBonDeSortieLignes()) {
-            traiterSortieFIFO(ligne, bonDeSortie);
-        }
+        // Allocation FIFO de toutes les lignes : une requête pour les lots, écritures en batch
+        List<BonDeSortieLigne> lignes = bonDeSortie.getBonDeSortieLignes();
+        FifoStockState stock = fifoAllocationEngine.charger(lignes);
+        stockBalanceService.enregistrerSorties(
+                fifoAllocationEngine.appliquer(fifoAllocationEngine.planifier(stock, lignes)));
 
         bonDeSortie.setStatut(BonDeSortieStatus.VALIDE);
         BonDeSortie validated = bonDeSortieDAO.save(bonDeSortie);
@@ -179,56 +222,16 @@ public class BonDeSortieService implements BonDeSortieContract {
         return bonDeSortieMapper.toResponseDto(cancelled);
     }
 
-    private void traiterSortieFIFO(BonDeSortieLigne ligne, BonDeSortie bonDeSortie) {
-        Produit produit = ligne.getProduit();
-        int quantiteRestante = ligne.getQuantiteDemandee();
-
-        // Récupérer les lots FIFO (plus anciens en premier)
-        List<Lot> lots = lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(
-                produit.getId(), LotStatus.DISPONIBLE);
-
-        if (lots.isEmpty()) {
-            throw new IllegalStateException("Aucun lot disponible pour le produit: " + produit.getNom());
-        }
-
-        for (Lot lot : lots) {
-            if (quantiteRestante <= 0)
-                break;
-
-            int quantiteAPrever = Math.min(quantiteRestante, lot.getQuantiteRestante());
-
-            // Créer le mouvement de stock
-            MouvementStock mouvement = MouvementStock.builder()
-                    .typeMouvement(TypeMouvement.SORTIE)
-                    .dateMouvement(LocalDateTime.now())
-                    .quantite(quantiteAPrever)
-                    .prixUnitaireLot(lot.getPrixAchatUnitaire().doubleValue())
-                    .produit(produit)
-                    .lot(lot)
-                    .build();
-
-            mouvementStockDAO.save(mouvement);
-
-            // Mettre à jour le lot
-            lot.setQuantiteRestante(lot.getQuantiteRestante() - quantiteAPrever);
-            if (lot.getQuantiteRestante() == 0) {
-                lot.setStatut(LotStatus.EPUISE);
-            }
-            lotDAO.save(lot);
-
-            quantiteRestante -= quantiteAPrever;
-        }
-
-        if (quantiteRestante > 0) {
-            throw new IllegalStateException(
-                    "Stock insuffisant pour le produit: " + produit.getNom() +
-                            ". Manque: " + quantiteRestante + " unités");
-        }
-    }
-
-    private String genererNumeroBon() {
-        String prefix = "BS-";
-        long count = bonDeSortieDAO.count() + 1;
-        return prefix + String.format("%06d", count);
+    /**
+     * The atelier of a voucher, from the cache of ateliers: the voucher only
+     * needs its id for the foreign key and its name for the response, so a
+     * detached instance built from the cached entry saves the lookup.
+     */
+    private Atelier atelier(Long atelierId) {
+        AtelierResponseDTO atelier = atelierService.findById(atelierId);
+        return Atelier.builder()
+                .id(atelier.getId())
+                .nom(atelier.getNom())
+                .build();
     }
 }
@@ -11,6 +11,7 @@ import com.restapi.gestion_bons.entitie.enums.CommandeStatus;
 import com.restapi.gestion_bons.mapper.CommandeFournisseurMapper;
 import com.restapi.gestion_bons.mapper.LigneCommandeMapper;
 import com.restapi.gestion_bons.service.fournisseur.FournisseurService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
 import com.restapi.gestion_bons.util.LotHelper;
 import com.restapi.gestion_bons.util.MouvementStockHelper;
 
@@ -21,6 +22,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,13 +34,13 @@ public class CommandeFournisseurService implements CommandeFournisseurContract {
     private final CommandeFournisseurDAO commandeFournisseurDAO;
     private final CommandeFournisseurMapper commandeFournisseurMapper;
     private final FournisseurService fournisseurService;
-    private final LotDAO lotDAO;
-    private final MouvementStockDAO mouvementStockDAO;
+    private final StockBatchDAO stockBatchDAO;
     private final LotHelper lotHelper;
     private final ProduitDAO produitDAO;
     private final LigneCommandeDAO ligneCommandeDAO;
     private final FournisseurDAO fournisseurDAO;
     private final LigneCommandeMapper ligneCommandeMapper;
+    private final StockBalanceService stockBalanceService;
 
     @Transactional
     public CommandeFournisseurResponseDTO save(CommandeFournisseurCreateDTO createDto) {
@@ -49,6 +52,12 @@ public class CommandeFournisseurService implements CommandeFournisseurContract {
             throw new IllegalArgumentException("Commande must have at least one ligne commande");
         }
 
+        // une requête pour les produits de toutes les lignes
+        Map<Long, Produit> produits = produitDAO.findAllById(createDto.getLignesCommande().stream()
+                .map(LigneCommandeCreateDTO::getProduitId)
+                .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Produit::getId, Function.identity()));
+
         CommandeFournisseur commandeFournisseur = commandeFournisseurMapper.toEntityCreate(createDto);
         CommandeFournisseur saved = commandeFournisseurDAO.save(commandeFournisseur);
 
@@ -56,8 +65,10 @@ public class CommandeFournisseurService implements CommandeFournisseurContract {
             LigneCommande ligne = ligneCommandeMapper.toEntity(ligneDto);
             ligne.setCommande(saved);
 
-            Produit produit = produitDAO.findById(ligneDto.getProduitId())
-                    .orElseThrow(() -> new EntityNotFoundException("Produit not found"));
+            Produit produit = produits.get(ligneDto.getProduitId());
+            if (produit == null) {
+                throw new EntityNotFoundException("Produit not found");
+            }
             ligne.setProduit(produit);
 
             ligneCommandeDAO.save(ligne);
@@ -125,10 +136,12 @@ public class CommandeFournisseurService implements CommandeFournisseurContract {
         commande.setStatut(CommandeStatus.LIVREE);
 
         List<Lot> lots = lotHelper.createLotsFromLignesCommande(commande);
-        lotDAO.saveAll(lots);
+        stockBatchDAO.insertLots(lots);
 
+        // tête du grand livre avant la balance, dans le même ordre que les validations
         List<MouvementStock> mvms = MouvementStockHelper.creaMouvementStocksFromLots(lots);
-        mouvementStockDAO.saveAll(mvms);
+        stockBatchDAO.insertMouvements(mvms);
+        stockBalanceService.enregistrerEntrees(lots);
 
         CommandeFournisseur saved = commandeFournisseurDAO.save(commande);
         return commandeFournisseurMapper.toResponseDto(saved);
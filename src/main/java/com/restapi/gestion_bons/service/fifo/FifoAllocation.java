@@ -0,0 +1,17 @@
+package com.restapi.gestion_bons.service.fifo;
+
+import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
+import com.restapi.gestion_bons.entitie.Lot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Quantity taken from one lot to serve one voucher line.
+ */
+@Getter
+@AllArgsConstructor
+public class FifoAllocation {
+    private final BonDeSortieLigne ligne;
+    private final Lot lot;
+    private final int quantite;
+}
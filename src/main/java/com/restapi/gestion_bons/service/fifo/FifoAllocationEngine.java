@@ -0,0 +1,102 @@
+package com.restapi.gestion_bons.service.fifo;
+
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
+import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import com.restapi.gestion_bons.exception.StockConflictException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based FIFO allocation: one query loads the lots of every product of the
+ * voucher(s), allocations are planned in memory, and lot updates and SORTIE
+ * movements are written back as JDBC batches.
+ *
+ * Concurrent allocations on the same lots are handled according to
+ * {@link FifoConcurrencyMode}: a stale optimistic write ends in a
+ * {@link StockConflictException}, a deadlock between row locks in a
+ * {@link org.springframework.dao.DeadlockLoserDataAccessException}; callers
+ * retry both in a new transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class FifoAllocationEngine {
+
+    private final LotDAO lotDAO;
+    private final StockBatchDAO stockBatchDAO;
+
+    @Value("${stock.fifo.concurrency:OPTIMISTIC}")
+    private FifoConcurrencyMode mode = FifoConcurrencyMode.OPTIMISTIC;
+
+    public FifoStockState charger(Collection<BonDeSortieLigne> lignes) {
+        Set<Long> produitIds = produitIds(lignes);
+
+        Map<Long, List<Lot>> lotsParProduit = new LinkedHashMap<>();
+        if (!produitIds.isEmpty()) {
+            List<Lot> lots = mode == FifoConcurrencyMode.PESSIMISTIC
+                    ? lotDAO.findDisponiblesForUpdate(produitIds)
+                    : lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(produitIds, LotStatus.DISPONIBLE);
+            lots.forEach(lot -> lotsParProduit
+                    .computeIfAbsent(lot.getProduit().getId(), id -> new ArrayList<>())
+                    .add(lot));
+        }
+        return new FifoStockState(lotsParProduit);
+    }
+
+    /** Plans one voucher against the loaded lots. */
+    public List<FifoAllocation> planifier(FifoStockState stock, List<BonDeSortieLigne> lignes) {
+        return stock.planifier(lignes);
+    }
+
+    public List<MouvementStock> appliquer(List<FifoAllocation> allocations) {
+        LocalDateTime dateMouvement = LocalDateTime.now();
+        Set<Lot> lotsModifies = new LinkedHashSet<>();
+        List<MouvementStock> mouvements = new ArrayList<>(allocations.size());
+
+        for (FifoAllocation allocation : allocations) {
+            Lot lot = allocation.getLot();
+
+            mouvements.add(MouvementStock.builder()
+                    .typeMouvement(TypeMouvement.SORTIE)
+                    .dateMouvement(dateMouvement)
+                    .quantite(allocation.getQuantite())
+                    .prixUnitaireLot(lot.getPrixAchatUnitaire().doubleValue())
+                    .produit(allocation.getLigne().getProduit())
+                    .lot(lot)
+                    .build());
+
+            lot.setQuantiteRestante(lot.getQuantiteRestante() - allocation.getQuantite());
+            if (lot.getQuantiteRestante() == 0) {
+                lot.setStatut(LotStatus.EPUISE);
+            }
+            lotsModifies.add(lot);
+        }
+
+        if (!mouvements.isEmpty()) {
+            stockBatchDAO.updateLots(lotsModifies);
+            stockBatchDAO.insertMouvements(mouvements);
+        }
+        return mouvements;
+    }
+
+    private static Set<Long> produitIds(Collection<BonDeSortieLigne> lignes) {
+        return lignes.stream()
+                .map(ligne -> ligne.getProduit().getId())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,17 @@
+package com.restapi.gestion_bons.service.fifo;
+
+/**
+ * How concurrent FIFO allocations on the same lots are kept consistent.
+ * Selected with the {@code stock.fifo.concurrency} property.
+ */
+public enum FifoConcurrencyMode {
+    /** Lots are read without locks; the version check on write rejects stale reads, which are retried. */
+    OPTIMISTIC,
+
+    /**
+     * Lots are locked with SELECT ... FOR UPDATE for the duration of the
+     * transaction; a concurrent allocation on the same lots waits, so FIFO
+     * order holds across instances too.
+     */
+    PESSIMISTIC
+}
@@ -0,0 +1,115 @@
+package com.restapi.gestion_bons.service.fifo;
+
+import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory view of the DISPONIBLE lots of a set of products, oldest first.
+ * Plans FIFO allocations without touching the database; lots are only
+ * modified once the allocations are applied by {@link FifoAllocationEngine}.
+ */
+public class FifoStockState {
+
+    private final Map<Long, ProduitLots> parProduit;
+    private int[] lotsParcourus = new int[0];
+
+    FifoStockState(Map<Long, List<Lot>> lotsParProduit) {
+        this.parProduit = new HashMap<>();
+        lotsParProduit.forEach((produitId, lots) -> parProduit.put(produitId, new ProduitLots(lots)));
+    }
+
+    /**
+     * Plans the allocations of all lines of one voucher. Either every line is
+     * served or nothing is reserved and an {@link IllegalStateException} is thrown.
+     */
+    public List<FifoAllocation> planifier(List<BonDeSortieLigne> lignes) {
+        List<FifoAllocation> allocations = new ArrayList<>();
+        List<Prelevement> prelevements = new ArrayList<>();
+        Map<ProduitLots, Integer> curseursInitiaux = new IdentityHashMap<>();
+        int[] parcourus = new int[lignes.size()];
+
+        try {
+            for (int i = 0; i < lignes.size(); i++) {
+                BonDeSortieLigne ligne = lignes.get(i);
+                ProduitLots stock = parProduit.get(ligne.getProduit().getId());
+                if (stock != null) {
+                    curseursInitiaux.putIfAbsent(stock, stock.curseur);
+                }
+                parcourus[i] = allouer(ligne, stock, allocations, prelevements);
+            }
+        } catch (IllegalStateException e) {
+            prelevements.forEach(p -> p.stock.restant[p.index] += p.quantite);
+            curseursInitiaux.forEach((stock, curseur) -> stock.curseur = curseur);
+            throw e;
+        }
+        lotsParcourus = parcourus;
+        return allocations;
+    }
+
+    /**
+     * Lots visited by each line of the last successful plan, in line order,
+     * including the empty lots the cursor skipped without taking anything.
+     */
+    public int[] getLotsParcourus() {
+        return lotsParcourus;
+    }
+
+    /** Returns the number of lots visited to serve the line. */
+    private int allouer(BonDeSortieLigne ligne, ProduitLots stock,
+            List<FifoAllocation> allocations, List<Prelevement> prelevements) {
+        Produit produit = ligne.getProduit();
+
+        if (stock == null || stock.curseur >= stock.lots.size()) {
+            throw new IllegalStateException("Aucun lot disponible pour le produit: " + produit.getNom());
+        }
+
+        int quantiteRestante = ligne.getQuantiteDemandee();
+        int parcourus = 0;
+        while (quantiteRestante > 0 && stock.curseur < stock.lots.size()) {
+            int index = stock.curseur;
+            parcourus++;
+            int quantiteAPrelever = Math.min(quantiteRestante, stock.restant[index]);
+
+            if (quantiteAPrelever > 0) {
+                stock.restant[index] -= quantiteAPrelever;
+                quantiteRestante -= quantiteAPrelever;
+                allocations.add(new FifoAllocation(ligne, stock.lots.get(index), quantiteAPrelever));
+                prelevements.add(new Prelevement(stock, index, quantiteAPrelever));
+            }
+            if (stock.restant[index] == 0) {
+                stock.curseur++;
+            }
+        }
+
+        if (quantiteRestante > 0) {
+            throw new IllegalStateException(
+                    "Stock insuffisant pour le produit: " + produit.getNom() +
+                            ". Manque: " + quantiteRestante + " unités");
+        }
+        return parcourus;
+    }
+
+    private static final class ProduitLots {
+        private final List<Lot> lots;
+        private final int[] restant;
+        private int curseur;
+
+        private ProduitLots(List<Lot> lots) {
+            this.lots = lots;
+            this.restant = new int[lots.size()];
+            for (int i = 0; i < restant.length; i++) {
+                restant[i] = lots.get(i).getQuantiteRestante();
+            }
+        }
+    }
+
+    private record Prelevement(ProduitLots stock, int index, int quantite) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.restapi.gestion_bons.service.fifo;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * In-JVM serialization of FIFO allocations per product. Products are mapped
+ * onto a fixed set of striped {@link ReentrantLock}s: allocations on the same
+ * product wait for each other, allocations on products of other stripes run
+ * in parallel. Stripes are always taken in ascending order, so allocations
+ * spanning several products cannot deadlock each other.
+ * <p>
+ * This only removes contention between requests of the same instance; the
+ * lot version check (or row locks in PESSIMISTIC mode) still guards against
+ * other instances.
+ */
+@Component
+public class ProduitLockManager {
+
+    private final ReentrantLock[] verrous;
+    private final AtomicInteger enAttente = new AtomicInteger();
+    private final Timer attente;
+    private final DistributionSummary fileAttente;
+
+    public ProduitLockManager(MeterRegistry meterRegistry, @Value("${stock.fifo.lock-stripes:256}") int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stock.fifo.lock-stripes doit être positif");
+        }
+        this.verrous = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            verrous[i] = new ReentrantLock();
+        }
+        this.attente = Timer.builder("stock.fifo.lock.wait")
+                .description("Attente avant d'obtenir les verrous produit d'une allocation FIFO")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.fileAttente = DistributionSummary.builder("stock.fifo.lock.queue")
+                .description("Threads déjà en attente sur le verrou au moment de la demande")
+                .register(meterRegistry);
+        Gauge.builder("stock.fifo.lock.waiting", enAttente, AtomicInteger::get)
+                .description("Threads en attente d'un verrou produit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action while holding the locks of all given products. The
+     * action opens its own transaction, so that the locks are taken before a
+     * pooled connection is borrowed and released only after the commit: the
+     * next allocation on these products then reads the lots written by this
+     * one, provided it reads them with READ COMMITTED isolation.
+     */
+    public <T> T executer(Collection<Long> produitIds, Supplier<T> action) {
+        int[] stripes = acquerir(produitIds);
+        try {
+            return action.get();
+        } finally {
+            liberer(stripes);
+        }
+    }
+
+    private int[] acquerir(Collection<Long> produitIds) {
+        int[] stripes = produitIds.stream()
+                .mapToInt(this::stripe)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        long debut = System.nanoTime();
+        for (int stripe : stripes) {
+            ReentrantLock verrou = verrous[stripe];
+            if (verrou.tryLock()) {
+                fileAttente.record(0);
+                continue;
+            }
+            fileAttente.record(verrou.getQueueLength() + 1);
+            enAttente.incrementAndGet();
+            try {
+                verrou.lock();
+            } finally {
+                enAttente.decrementAndGet();
+            }
+        }
+        attente.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        return stripes;
+    }
+
+    private void liberer(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            verrous[stripes[i]].unlock();
+        }
+    }
+
+    private int stripe(Long produitId) {
+        return Math.floorMod(Long.hashCode(produitId), verrous.length);
+    }
+}
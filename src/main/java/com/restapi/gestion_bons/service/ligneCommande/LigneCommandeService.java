@@ -1,6 +1,7 @@
 package com.restapi.gestion_bons.service.ligneCommande;
 
 import com.restapi.gestion_bons.contracts.LigneCommandeContract;
+import com.restapi.gestion_bons.contracts.ProduitServiceContract;
 import com.restapi.gestion_bons.dao.CommandeFournisseurDAO;
 import com.restapi.gestion_bons.dao.LigneCommandeDAO;
 import com.restapi.gestion_bons.dao.ProduitDAO;
@@ -26,15 +27,18 @@ public class LigneCommandeService implements LigneCommandeContract {
     private final LigneCommandeMapper ligneCommandeMapper;
     private final CommandeFournisseurDAO commandeFournisseurDAO;
     private final ProduitDAO produitDAO;
+    private final ProduitServiceContract produitService;
 
     public LigneCommandeService(
             LigneCommandeMapper ligneCommandeMapper,
             LigneCommandeDAO ligneCommandeDAO,
-            CommandeFournisseurDAO commandeFournisseurDAO, ProduitDAO produitDAO){
+            CommandeFournisseurDAO commandeFournisseurDAO, ProduitDAO produitDAO,
+            ProduitServiceContract produitService){
         this.ligneCommandeDAO = ligneCommandeDAO;
         this.ligneCommandeMapper = ligneCommandeMapper;
         this.commandeFournisseurDAO = commandeFournisseurDAO;
         this.produitDAO = produitDAO;
+        this.produitService = produitService;
     }
 
 
@@ -47,8 +51,7 @@ public class LigneCommandeService implements LigneCommandeContract {
         CommandeFournisseur commandeFournisseur = commandeFournisseurDAO.findById(createDTO.getCommandeId())
                 .orElseThrow(() -> new EntityNotFoundException("No commande avec cette id !"));
 
-        Produit produit = produitDAO.findById(createDTO.getProduitId())
-                .orElseThrow(() -> new EntityNotFoundException("No commande avec cette id !"));
+        Produit produit = produit(createDTO.getProduitId());
 
         LigneCommande ligneCommande = ligneCommandeMapper.toEntity(createDTO);
         ligneCommande.setCommande(commandeFournisseur);
@@ -71,8 +74,7 @@ public class LigneCommandeService implements LigneCommandeContract {
         CommandeFournisseur commandeFournisseur = commandeFournisseurDAO.findById(updateDTO.getCommandeId())
                 .orElseThrow(() -> new EntityNotFoundException("No commande avec cette id !"));
 
-        Produit produit = produitDAO.findById(updateDTO.getProduitId())
-                .orElseThrow(() -> new EntityNotFoundException("No commande avec cette id !"));
+        Produit produit = produit(updateDTO.getProduitId());
 
         ligneExist.setCommande(commandeFournisseur);
         ligneExist.setProduit(produit);
@@ -138,4 +140,15 @@ public class LigneCommandeService implements LigneCommandeContract {
         }
         return dtos;
     }
+
+    /**
+     * The line only keeps the product's id, so its existence is checked
+     * against the product cache and the entity is a reference, never loaded.
+     */
+    private Produit produit(Long produitId) {
+        if (produitService.findById(produitId).isEmpty()) {
+            throw new EntityNotFoundException("Pas de produit avec cette id !");
+        }
+        return produitDAO.getReferenceById(produitId);
+    }
 }
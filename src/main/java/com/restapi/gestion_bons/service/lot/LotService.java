@@ -1,28 +1,51 @@
 package com.restapi.gestion_bons.service.lot;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import lombok.RequiredArgsConstructor;
 
 import com.restapi.gestion_bons.contracts.LotContract;
 import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.MouvementStockDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
 import com.restapi.gestion_bons.dto.lot.BaseLotDTO;
 import com.restapi.gestion_bons.dto.lot.ResponseLotDTO;
 import com.restapi.gestion_bons.entitie.CommandeFournisseur;
 import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
 import com.restapi.gestion_bons.mapper.LotMapper;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
 
+/**
+ * Manual lot edits. Each one records adjustment movements so the ledger
+ * keeps matching the lots: a new lot enters its quantity, an edited lot
+ * enters or exits the difference (or exits entirely and re-enters when its
+ * product or price changes). A lot already in the ledger cannot be deleted.
+ */
 @Service
 @Primary
 @RequiredArgsConstructor
+@Transactional
 public class LotService implements LotContract {
     private final LotDAO lotDAO;
     private final LotMapper lotMapper;
+    private final StockBalanceService stockBalanceService;
+    private final StockBatchDAO stockBatchDAO;
+    private final MouvementStockDAO mouvementStockDAO;
 
     @Override
     public ResponseLotDTO save(BaseLotDTO dto, CommandeFournisseur cf) {
@@ -34,7 +57,12 @@ public class LotService implements LotContract {
         }
 
         Lot lot = lotMapper.toEntity(dto);
-        Lot saved = lotDAO.save(lot);
+        Lot saved = lotDAO.saveAndFlush(lot);
+        List<MouvementStock> ajustements = new ArrayList<>();
+        ajuster(ajustements, TypeMouvement.ENTREE, saved, dto.getProduitId(), quantite(saved),
+                saved.getPrixAchatUnitaire());
+        stockBatchDAO.insertMouvements(ajustements);
+        stockBalanceService.recalculer(List.of(dto.getProduitId()));
 
         ResponseLotDTO response = lotMapper.toResponseDto(saved);
         // populate commande ref if present
@@ -49,12 +77,35 @@ public class LotService implements LotContract {
         if (id == null)
             throw new IllegalArgumentException("id must not be null");
 
-        lotDAO.findById(id)
+        Lot existing = lotDAO.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Lot not found with id: " + id));
+        // l'entité gérée reçoit l'état fusionné : l'ancien état est relevé avant
+        Long ancienProduitId = existing.getProduit().getId();
+        int ancienneQuantite = quantite(existing);
+        BigDecimal ancienPrix = existing.getPrixAchatUnitaire();
 
         Lot toUpdate = lotMapper.toEntity(dto);
         toUpdate.setId(id);
-        Lot updated = lotDAO.save(toUpdate);
+        toUpdate.setVersion(existing.getVersion());
+        Lot updated = lotDAO.saveAndFlush(toUpdate);
+        Long produitId = dto.getProduitId() != null ? dto.getProduitId() : ancienProduitId;
+
+        List<MouvementStock> ajustements = new ArrayList<>();
+        if (produitId.equals(ancienProduitId) && memePrix(ancienPrix, updated.getPrixAchatUnitaire())) {
+            int ecart = quantite(updated) - ancienneQuantite;
+            ajuster(ajustements, ecart > 0 ? TypeMouvement.ENTREE : TypeMouvement.SORTIE, updated, produitId,
+                    Math.abs(ecart), ancienPrix);
+        } else {
+            ajuster(ajustements, TypeMouvement.SORTIE, updated, ancienProduitId, ancienneQuantite, ancienPrix);
+            ajuster(ajustements, TypeMouvement.ENTREE, updated, produitId, quantite(updated),
+                    updated.getPrixAchatUnitaire());
+        }
+        stockBatchDAO.insertMouvements(ajustements);
+
+        Set<Long> produitIds = new LinkedHashSet<>();
+        produitIds.add(ancienProduitId);
+        produitIds.add(produitId);
+        stockBalanceService.recalculer(produitIds);
 
         ResponseLotDTO response = lotMapper.toResponseDto(updated);
         if (cf != null) {
@@ -77,11 +128,40 @@ public class LotService implements LotContract {
         return all.stream().map(lotMapper::toResponseDto).collect(Collectors.toList());
     }
 
+    /** Only lots without movements: a lot in the ledger is emptied through {@link #update} instead. */
     @Override
     public void delete(Long id) {
-        if (!lotDAO.existsById(id)) {
-            throw new NoSuchElementException("Lot not found with id: " + id);
+        Lot existing = lotDAO.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Lot not found with id: " + id));
+        if (mouvementStockDAO.existsByLotId(id)) {
+            throw new IllegalStateException(
+                    "Le lot " + existing.getNumeroLot() + " a des mouvements de stock et ne peut pas être supprimé");
         }
-        lotDAO.deleteById(id);
+        lotDAO.delete(existing);
+        lotDAO.flush();
+        stockBalanceService.recalculer(List.of(existing.getProduit().getId()));
+    }
+
+    private static void ajuster(List<MouvementStock> ajustements, TypeMouvement type, Lot lot, Long produitId,
+            int quantite, BigDecimal prix) {
+        if (quantite == 0) {
+            return;
+        }
+        ajustements.add(MouvementStock.builder()
+                .typeMouvement(type)
+                .dateMouvement(LocalDateTime.now())
+                .quantite(quantite)
+                .prixUnitaireLot(prix != null ? prix.doubleValue() : 0d)
+                .produit(Produit.builder().id(produitId).build())
+                .lot(lot)
+                .build());
+    }
+
+    private static int quantite(Lot lot) {
+        return lot.getQuantiteRestante() != null ? lot.getQuantiteRestante() : 0;
+    }
+
+    private static boolean memePrix(BigDecimal avant, BigDecimal apres) {
+        return Objects.equals(avant, apres) || avant != null && apres != null && avant.compareTo(apres) == 0;
     }
 }
@@ -0,0 +1,63 @@
+package com.restapi.gestion_bons.service.numerotation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out the values of a block reserved in the database. Taking a value is
+ * a single atomic increment; only the thread that finds the block exhausted
+ * reserves the next one, the others wait for it on the refill lock.
+ */
+public class NumeroSequence {
+
+    private final int tailleBloc;
+    private final LongSupplier reserverBloc;
+    private final ReentrantLock recharge = new ReentrantLock();
+    private volatile Bloc bloc = new Bloc(0, 0);
+
+    /**
+     * @param reserverBloc reserves {@code tailleBloc} values and returns the first
+     */
+    public NumeroSequence(int tailleBloc, LongSupplier reserverBloc) {
+        if (tailleBloc < 1) {
+            throw new IllegalArgumentException("La taille de bloc doit être positive");
+        }
+        this.tailleBloc = tailleBloc;
+        this.reserverBloc = reserverBloc;
+    }
+
+    public long suivant() {
+        while (true) {
+            Bloc courant = bloc;
+            long valeur = courant.prochain.getAndIncrement();
+            if (valeur < courant.fin) {
+                return valeur;
+            }
+            recharger(courant);
+        }
+    }
+
+    private void recharger(Bloc epuise) {
+        recharge.lock();
+        try {
+            // Another thread may have reserved the next block while we waited
+            if (bloc == epuise) {
+                long debut = reserverBloc.getAsLong();
+                bloc = new Bloc(debut, debut + tailleBloc);
+            }
+        } finally {
+            recharge.unlock();
+        }
+    }
+
+    private static final class Bloc {
+        private final AtomicLong prochain;
+        private final long fin;
+
+        private Bloc(long debut, long fin) {
+            this.prochain = new AtomicLong(debut);
+            this.fin = fin;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.restapi.gestion_bons.service.numerotation;
+
+import com.restapi.gestion_bons.dao.NumeroSequenceDAO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Voucher and lot numbers. Each JVM reserves blocks of values from a native
+ * sequence, so numbers are unique across instances but not gap-free: values
+ * of a block left unused at shutdown are lost. The block size is the
+ * increment of the sequence ({@code ALTER SEQUENCE seq_lot INCREMENT BY n}).
+ */
+@Service
+@RequiredArgsConstructor
+public class NumerotationService {
+
+    static final String SEQUENCE_BON = "bon_de_sortie";
+    static final String SEQUENCE_LOT = "lot";
+
+    private static final DateTimeFormatter FORMAT_DATE_LOT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final NumeroSequenceDAO numeroSequenceDAO;
+    private final Map<String, NumeroSequence> sequences = new ConcurrentHashMap<>();
+
+    public String prochainNumeroBon() {
+        return String.format("BS-%06d", sequence(SEQUENCE_BON).suivant());
+    }
+
+    public String prochainNumeroLot(String referenceProduit) {
+        return String.format("LOT-%s-%s-%06d", referenceProduit, LocalDate.now().format(FORMAT_DATE_LOT),
+                sequence(SEQUENCE_LOT).suivant());
+    }
+
+    private NumeroSequence sequence(String nom) {
+        return sequences.computeIfAbsent(nom,
+                n -> new NumeroSequence(numeroSequenceDAO.taille(n), () -> numeroSequenceDAO.reserver(n)));
+    }
+}
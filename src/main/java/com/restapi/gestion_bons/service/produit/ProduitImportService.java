@@ -0,0 +1,326 @@
+package com.restapi.gestion_bons.service.produit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restapi.gestion_bons.config.CacheConfig;
+import com.restapi.gestion_bons.contracts.ProduitImportContract;
+import com.restapi.gestion_bons.dao.ProduitBatchDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.produit.ProduitImportResultatDTO;
+import com.restapi.gestion_bons.dto.produit.ProduitRequestDTO;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.mapper.ProduitMapper;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
+import com.restapi.gestion_bons.util.AppLogger;
+import com.restapi.gestion_bons.util.CsvLecteur;
+
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Streaming product import. Rows are parsed one at a time and handled in
+ * slices: each slice is validated, checked for duplicates (within the file
+ * with in-memory sets, against the database with one IN query per column)
+ * and inserted as one JDBC batch in its own transaction. Only the current
+ * slice and the keys seen so far are kept in memory.
+ *
+ * Malformed records are rejected like invalid rows. If reading the input
+ * fails midway, the rows read so far are still imported and the result says
+ * where the import stopped; the product caches and the stock alerts are
+ * refreshed whenever something was inserted.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProduitImportService implements ProduitImportContract {
+
+    static final int TAILLE_TRANCHE = 1000;
+    static final int REJETS_MAX = 1000;
+
+    static final List<String> COLONNES = List.of(
+            "reference", "nom", "description", "categorie", "uniteMesure", "reorderPoint");
+
+    private final ProduitDAO produitDAO;
+    private final ProduitBatchDAO produitBatchDAO;
+    private final ProduitMapper produitMapper;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final StockAlerteService stockAlerteService;
+    private final CacheManager cacheManager;
+
+    @Override
+    public ProduitImportResultatDTO importer(InputStream contenu, FormatExport format) {
+        Import etat = new Import();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(contenu, StandardCharsets.UTF_8));
+
+        try {
+            try {
+                if (format == FormatExport.CSV) {
+                    lireCsv(new CsvLecteur(reader), etat);
+                } else {
+                    lireNdjson(reader, etat);
+                }
+            } catch (IOException e) {
+                // les tranches déjà insérées restent validées : on importe les lignes lues et on le signale
+                etat.resultat.setInterruption("Lecture interrompue après la ligne "
+                        + etat.derniereLigne + ": " + e.getMessage());
+                AppLogger.warn("Import produits interrompu: " + e.getMessage());
+            }
+            etat.traiterTranche();
+        } finally {
+            // aussi quand une tranche échoue : les tranches précédentes sont validées
+            if (etat.resultat.getImportees() > 0) {
+                invaliderCaches();
+                stockAlerteService.reconstruire();
+            }
+        }
+
+        AppLogger.info(String.format("Import produits terminé: %d lignes lues, %d importées, %d rejetées",
+                etat.resultat.getLignesLues(), etat.resultat.getImportees(), etat.resultat.getRejetees()));
+        return etat.resultat;
+    }
+
+    private void lireCsv(CsvLecteur lecteur, Import etat) throws IOException {
+        List<String> entete = lecteur.lire();
+        if (entete == null) {
+            return;
+        }
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < entete.size(); i++) {
+            index.put(entete.get(i).trim(), i);
+        }
+        for (String colonne : COLONNES) {
+            if (!index.containsKey(colonne)) {
+                throw new IllegalArgumentException("Colonne manquante dans l'en-tête CSV: " + colonne);
+            }
+        }
+
+        while (true) {
+            List<String> champs;
+            try {
+                champs = lecteur.lire();
+            } catch (IllegalArgumentException e) {
+                // guillemet non fermé : l'enregistrement court jusqu'à la fin du fichier
+                etat.resultat.setLignesLues(etat.resultat.getLignesLues() + 1);
+                etat.ajouterRejet(lecteur.getLigne(), null, e.getMessage());
+                break;
+            }
+            if (champs == null) {
+                break;
+            }
+            long ligne = lecteur.getLigne();
+            etat.derniereLigne = ligne;
+            etat.resultat.setLignesLues(etat.resultat.getLignesLues() + 1);
+
+            String point = champ(champs, index.get("reorderPoint"));
+            Integer reorderPoint;
+            try {
+                reorderPoint = point == null ? null : Integer.valueOf(point);
+            } catch (NumberFormatException e) {
+                etat.ajouterRejet(ligne, champ(champs, index.get("reference")),
+                        "Point de réapprovisionnement invalide: " + point);
+                continue;
+            }
+
+            etat.ajouter(ligne, ProduitRequestDTO.builder()
+                    .reference(champ(champs, index.get("reference")))
+                    .nom(champ(champs, index.get("nom")))
+                    .description(champ(champs, index.get("description")))
+                    .categorie(champ(champs, index.get("categorie")))
+                    .uniteMesure(champ(champs, index.get("uniteMesure")))
+                    .reorderPoint(reorderPoint)
+                    .build());
+        }
+    }
+
+    private void lireNdjson(BufferedReader reader, Import etat) throws IOException {
+        long ligne = 0;
+        String texte;
+        while ((texte = reader.readLine()) != null) {
+            ligne++;
+            etat.derniereLigne = ligne;
+            if (texte.isBlank()) {
+                continue;
+            }
+            etat.resultat.setLignesLues(etat.resultat.getLignesLues() + 1);
+            try {
+                ProduitRequestDTO produit = objectMapper.readValue(texte, ProduitRequestDTO.class);
+                if (produit == null) {
+                    etat.ajouterRejet(ligne, null, "Ligne vide");
+                } else {
+                    etat.ajouter(ligne, produit);
+                }
+            } catch (JsonProcessingException e) {
+                etat.ajouterRejet(ligne, null, "JSON invalide: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static String champ(List<String> champs, int index) {
+        if (index >= champs.size()) {
+            return null;
+        }
+        String valeur = champs.get(index).trim();
+        return valeur.isEmpty() ? null : valeur;
+    }
+
+    private void invaliderCaches() {
+        for (String nom : List.of(CacheConfig.PRODUITS, CacheConfig.PRODUITS_PAR_REFERENCE,
+                CacheConfig.PRODUITS_PAR_NOM, CacheConfig.PRODUITS_PAR_CATEGORIE)) {
+            Cache cache = cacheManager.getCache(nom);
+            if (cache != null) {
+                cache.invalidate();
+            }
+        }
+    }
+
+    private static String cle(String valeur) {
+        // les contraintes d'unicité MariaDB ignorent la casse
+        return valeur.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** A parsed row, or a row already rejected by the parser when erreur is set */
+    private record LigneImport(long ligne, String reference, ProduitRequestDTO produit, String erreur) {
+    }
+
+    private final class Import {
+        private final ProduitImportResultatDTO resultat = ProduitImportResultatDTO.builder().build();
+        private final List<LigneImport> tranche = new ArrayList<>(TAILLE_TRANCHE);
+        private final Set<String> referencesVues = new HashSet<>();
+        private final Set<String> nomsVus = new HashSet<>();
+        private long derniereLigne;
+
+        void ajouter(long ligne, ProduitRequestDTO produit) {
+            ajouter(new LigneImport(ligne, produit.getReference(), produit, null));
+        }
+
+        void ajouterRejet(long ligne, String reference, String motif) {
+            ajouter(new LigneImport(ligne, reference, null, motif));
+        }
+
+        private void ajouter(LigneImport ligne) {
+            tranche.add(ligne);
+            if (tranche.size() == TAILLE_TRANCHE) {
+                traiterTranche();
+            }
+        }
+
+        void traiterTranche() {
+            if (tranche.isEmpty()) {
+                return;
+            }
+
+            // motifs de rejet, restitués dans l'ordre des lignes du fichier
+            Map<LigneImport, String> motifs = new IdentityHashMap<>();
+            List<LigneImport> valides = new ArrayList<>(tranche.size());
+            for (LigneImport ligne : tranche) {
+                if (ligne.erreur() != null) {
+                    motifs.put(ligne, ligne.erreur());
+                    continue;
+                }
+                Set<String> messages = new TreeSet<>();
+                validator.validate(ligne.produit()).forEach(v -> messages.add(v.getMessage()));
+                if (messages.isEmpty()) {
+                    valides.add(ligne);
+                } else {
+                    motifs.put(ligne, String.join(", ", messages));
+                }
+            }
+
+            Set<String> referencesExistantes = Set.of();
+            Set<String> nomsExistants = Set.of();
+            if (!valides.isEmpty()) {
+                referencesExistantes = produitDAO.findReferencesIn(valides.stream()
+                        .map(l -> l.produit().getReference()).collect(Collectors.toSet()))
+                        .stream().map(ProduitImportService::cle).collect(Collectors.toSet());
+                nomsExistants = produitDAO.findNomsIn(valides.stream()
+                        .map(l -> l.produit().getNom()).collect(Collectors.toSet()))
+                        .stream().map(ProduitImportService::cle).collect(Collectors.toSet());
+            }
+
+            List<LigneImport> aInserer = new ArrayList<>(valides.size());
+            for (LigneImport ligne : valides) {
+                String reference = cle(ligne.produit().getReference());
+                String nom = cle(ligne.produit().getNom());
+                if (referencesExistantes.contains(reference)) {
+                    motifs.put(ligne, "Référence déjà existante: " + ligne.produit().getReference());
+                } else if (nomsExistants.contains(nom)) {
+                    motifs.put(ligne, "Nom déjà existant: " + ligne.produit().getNom());
+                } else if (referencesVues.contains(reference)) {
+                    motifs.put(ligne, "Référence en double dans le fichier: " + ligne.produit().getReference());
+                } else if (nomsVus.contains(nom)) {
+                    motifs.put(ligne, "Nom en double dans le fichier: " + ligne.produit().getNom());
+                } else {
+                    referencesVues.add(reference);
+                    nomsVus.add(nom);
+                    aInserer.add(ligne);
+                }
+            }
+
+            if (!aInserer.isEmpty()) {
+                try {
+                    produitBatchDAO.insertProduits(aInserer.stream()
+                            .map(l -> produitMapper.toEntity(l.produit()))
+                            .toList());
+                    resultat.setImportees(resultat.getImportees() + aInserer.size());
+                } catch (DataIntegrityViolationException e) {
+                    // un produit de la tranche a été créé entre le contrôle et l'insertion :
+                    // la tranche est annulée, ses lignes sont reprises une à une
+                    for (LigneImport ligne : aInserer) {
+                        try {
+                            produitBatchDAO.insertProduits(List.of(produitMapper.toEntity(ligne.produit())));
+                            resultat.setImportees(resultat.getImportees() + 1);
+                        } catch (DataIntegrityViolationException conflit) {
+                            motifs.put(ligne, "Conflit d'unicité avec une écriture concurrente");
+                        }
+                    }
+                }
+            }
+
+            tranche.forEach(ligne -> {
+                String motif = motifs.get(ligne);
+                if (motif != null) {
+                    rejeter(ligne, motif);
+                }
+            });
+            tranche.clear();
+
+            AppLogger.info(String.format("Import produits: %d lignes lues, %d importées, %d rejetées",
+                    resultat.getLignesLues(), resultat.getImportees(), resultat.getRejetees()));
+        }
+
+        void rejeter(LigneImport ligne, String motif) {
+            resultat.setRejetees(resultat.getRejetees() + 1);
+            if (resultat.getRejets().size() < REJETS_MAX) {
+                resultat.getRejets().add(ProduitImportResultatDTO.Rejet.builder()
+                        .ligne(ligne.ligne())
+                        .reference(ligne.reference())
+                        .motif(motif)
+                        .build());
+            } else {
+                resultat.setRejetsTronques(true);
+            }
+        }
+    }
+}
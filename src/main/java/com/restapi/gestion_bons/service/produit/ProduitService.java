@@ -1,9 +1,12 @@
 package com.restapi.gestion_bons.service.produit;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 
+import com.restapi.gestion_bons.config.CacheConfig;
 import com.restapi.gestion_bons.contracts.ProduitServiceContract;
 import com.restapi.gestion_bons.dao.ProduitDAO;
 import com.restapi.gestion_bons.entitie.Produit;
@@ -11,6 +14,7 @@ import com.restapi.gestion_bons.dto.produit.ProduitResponseDTO;
 import com.restapi.gestion_bons.dto.produit.ProduitRequestDTO;
 import com.restapi.gestion_bons.exception.DuplicateResourceException;
 import com.restapi.gestion_bons.mapper.ProduitMapper;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -27,6 +31,7 @@ import java.util.stream.IntStream;
 public class ProduitService implements ProduitServiceContract {
     private final ProduitDAO produitDAO;
     private final ProduitMapper produitMapper;
+    private final StockAlerteService stockAlerteService;
 
     @Override
     public Page<ProduitResponseDTO> findAllWithPagination(Pageable pageable) {
@@ -38,10 +43,18 @@ public class ProduitService implements ProduitServiceContract {
         return produitDAO.findAll().stream().map(produitMapper::toResponseDto).toList();
     }
 
+    /**
+     * Cached as response DTOs, never as entities, and evicted by the writes
+     * below; a hit runs no query. Changes made on another instance are seen
+     * once the entry expires.
+     */
+    @Cacheable(cacheNames = CacheConfig.PRODUITS, unless = "#result == null")
     public Optional<ProduitResponseDTO> findById(Long id) {
         return produitDAO.findById(id).map(produitMapper::toResponseDto);
     }
 
+    @CacheEvict(cacheNames = { CacheConfig.PRODUITS, CacheConfig.PRODUITS_PAR_REFERENCE, CacheConfig.PRODUITS_PAR_NOM,
+            CacheConfig.PRODUITS_PAR_CATEGORIE }, allEntries = true)
     public ProduitResponseDTO save(ProduitRequestDTO dto) {
         if (dto.getReference() != null && produitDAO.findByReference(dto.getReference()) != null) {
             throw new DuplicateResourceException("reference", dto.getReference());
@@ -51,9 +64,13 @@ public class ProduitService implements ProduitServiceContract {
         }
         Produit p = produitMapper.toEntity(dto);
         Produit saved = produitDAO.save(p);
+        // un produit sans stock est en alerte dès sa création s'il a un point de réapprovisionnement
+        stockAlerteService.actualiser(List.of(saved.getId()));
         return produitMapper.toResponseDto(saved);
     }
 
+    @CacheEvict(cacheNames = { CacheConfig.PRODUITS, CacheConfig.PRODUITS_PAR_REFERENCE, CacheConfig.PRODUITS_PAR_NOM,
+            CacheConfig.PRODUITS_PAR_CATEGORIE }, allEntries = true)
     public ProduitResponseDTO update(Long id, ProduitRequestDTO dto) {
         return produitDAO.findById(id).map(existing -> {
             // if reference changed, ensure new reference is not taken
@@ -78,22 +95,30 @@ public class ProduitService implements ProduitServiceContract {
             existing.setCategorie(updated.getCategorie());
             existing.setUniteMesure(updated.getUniteMesure());
             Produit saved = produitDAO.save(existing);
+            // nom et référence figurent dans les alertes et le détail du stock en cache
+            stockAlerteService.actualiser(List.of(id));
             return produitMapper.toResponseDto(saved);
         }).orElseThrow(() -> new NoSuchElementException("Produit not found with id " + id));
     }
 
+    @CacheEvict(cacheNames = { CacheConfig.PRODUITS, CacheConfig.PRODUITS_PAR_REFERENCE, CacheConfig.PRODUITS_PAR_NOM,
+            CacheConfig.PRODUITS_PAR_CATEGORIE }, allEntries = true)
     public void delete(Long id) {
         produitDAO.deleteById(id);
+        stockAlerteService.actualiser(List.of(id));
     }
 
+    @Cacheable(cacheNames = CacheConfig.PRODUITS_PAR_NOM, unless = "#result == null")
     public Optional<ProduitResponseDTO> findByNom(String name) {
         return Optional.ofNullable(produitDAO.findByNom(name)).map(produitMapper::toResponseDto);
     }
 
+    @Cacheable(cacheNames = CacheConfig.PRODUITS_PAR_REFERENCE, unless = "#result == null")
     public Optional<ProduitResponseDTO> findByReference(String reference) {
         return Optional.ofNullable(produitDAO.findByReference(reference)).map(produitMapper::toResponseDto);
     }
 
+    @Cacheable(cacheNames = CacheConfig.PRODUITS_PAR_CATEGORIE)
     public List<ProduitResponseDTO> findByCategorie(String category) {
         return produitDAO.findByCategorie(category).stream().map(produitMapper::toResponseDto).toList();
     }
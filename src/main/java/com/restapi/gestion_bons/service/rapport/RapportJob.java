@@ -0,0 +1,120 @@
+package com.restapi.gestion_bons.service.rapport;
+
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.rapport.RapportJobDTO;
+import com.restapi.gestion_bons.dto.rapport.StatutRapport;
+import com.restapi.gestion_bons.dto.rapport.TypeRapport;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * State of one background report. Transitions are guarded so that a job
+ * cancelled while running cannot be marked finished by its worker.
+ */
+@Getter
+class RapportJob {
+
+    private final String id;
+    private final String cle;
+    private final TypeRapport type;
+    private final FormatExport format;
+    private final int priorite;
+    private final LocalDateTime dateSoumission = LocalDateTime.now();
+
+    private volatile StatutRapport statut = StatutRapport.EN_ATTENTE;
+    private volatile Long versionStock;
+    private volatile LocalDateTime dateDebut;
+    private volatile LocalDateTime dateFin;
+    private volatile Path fichier;
+    private volatile Long taille;
+    private volatile String erreur;
+
+    RapportJob(String id, String cle, TypeRapport type, FormatExport format, int priorite) {
+        this.id = id;
+        this.cle = cle;
+        this.type = type;
+        this.format = format;
+        this.priorite = priorite;
+    }
+
+    synchronized boolean demarrer(long version) {
+        if (statut != StatutRapport.EN_ATTENTE) {
+            return false;
+        }
+        statut = StatutRapport.EN_COURS;
+        versionStock = version;
+        dateDebut = LocalDateTime.now();
+        return true;
+    }
+
+    synchronized boolean terminer(Path fichier, long taille) {
+        if (statut != StatutRapport.EN_COURS) {
+            return false;
+        }
+        statut = StatutRapport.TERMINE;
+        this.fichier = fichier;
+        this.taille = taille;
+        dateFin = LocalDateTime.now();
+        return true;
+    }
+
+    synchronized void echouer(String erreur) {
+        if (statut == StatutRapport.EN_COURS) {
+            statut = StatutRapport.ECHOUE;
+            this.erreur = erreur;
+            dateFin = LocalDateTime.now();
+        }
+    }
+
+    /** @return the result file to delete, if any */
+    synchronized Path annuler() {
+        if (statut == StatutRapport.ECHOUE || statut == StatutRapport.ANNULE) {
+            return null;
+        }
+        statut = StatutRapport.ANNULE;
+        dateFin = LocalDateTime.now();
+        return detacherFichier();
+    }
+
+    /** @return the result file to delete when the stock has changed since it was computed */
+    synchronized Path expirer(long versionCourante) {
+        if (statut != StatutRapport.TERMINE || versionStock == versionCourante) {
+            return null;
+        }
+        statut = StatutRapport.EXPIRE;
+        return detacherFichier();
+    }
+
+    /** Same report requested again: still queued, or computed at the current stock version. */
+    synchronized boolean reutilisable(long version) {
+        return statut == StatutRapport.EN_ATTENTE
+                || (statut == StatutRapport.EN_COURS || statut == StatutRapport.TERMINE) && versionStock == version;
+    }
+
+    synchronized boolean finiAvant(LocalDateTime limite) {
+        return dateFin != null && dateFin.isBefore(limite);
+    }
+
+    synchronized RapportJobDTO toDTO() {
+        return RapportJobDTO.builder()
+                .id(id)
+                .type(type)
+                .statut(statut)
+                .priorite(priorite)
+                .dateSoumission(dateSoumission)
+                .dateDebut(dateDebut)
+                .dateFin(dateFin)
+                .versionStock(versionStock)
+                .taille(taille)
+                .erreur(erreur)
+                .build();
+    }
+
+    private Path detacherFichier() {
+        Path resultat = fichier;
+        fichier = null;
+        return resultat;
+    }
+}
@@ -0,0 +1,355 @@
+package com.restapi.gestion_bons.service.rapport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restapi.gestion_bons.contracts.RapportContract;
+import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.rapport.RapportDemandeDTO;
+import com.restapi.gestion_bons.dto.rapport.RapportJobDTO;
+import com.restapi.gestion_bons.dto.rapport.RapportResultatDTO;
+import com.restapi.gestion_bons.dto.rapport.StatutRapport;
+import com.restapi.gestion_bons.dto.rapport.TypeRapport;
+import com.restapi.gestion_bons.service.stock.StockVersion;
+import com.restapi.gestion_bons.util.AppLogger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs the heavy stock reports in the background. Jobs wait in a priority
+ * queue in front of a fixed pool of workers; each result is written gzipped
+ * to the report directory and served until the stock changes. A request for
+ * a report already queued, running or computed at the current stock version
+ * gets the existing job back instead of a new one.
+ */
+@Service
+@RequiredArgsConstructor
+public class RapportService implements RapportContract {
+
+    private static final int PRIORITE_DEFAUT = 5;
+    private static final int TAILLE_TAMPON = 64 * 1024;
+
+    private final StockContract stockService;
+    private final ObjectMapper objectMapper;
+    private final StockVersion stockVersion;
+
+    @Value("${rapports.threads:2}")
+    private int threads = 2;
+
+    @Value("${rapports.file.max:50}")
+    private int fileMax = 50;
+
+    @Value("${rapports.repertoire:${java.io.tmpdir}/gestion-bons-rapports}")
+    private Path repertoire = Path.of(System.getProperty("java.io.tmpdir"), "gestion-bons-rapports");
+
+    @Value("${rapports.retention:1h}")
+    private Duration retention = Duration.ofHours(1);
+
+    private final Map<String, RapportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, RapportJob> parCle = new ConcurrentHashMap<>();
+    private final Map<String, Tache> taches = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ThreadPoolExecutor executeur;
+
+    @PostConstruct
+    public void demarrer() throws IOException {
+        Files.createDirectories(repertoire);
+        // résultats d'une exécution précédente : leur version de stock est inconnue
+        try (Stream<Path> fichiers = Files.list(repertoire)) {
+            fichiers.forEach(RapportService::supprimer);
+        }
+        AtomicInteger numero = new AtomicInteger();
+        executeur = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "rapports-" + numero.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executeur.shutdownNow();
+    }
+
+    @Override
+    public synchronized RapportJobDTO soumettre(RapportDemandeDTO demande) {
+        FormatExport format = format(demande);
+        String cle = cle(demande, format);
+        RapportJob existant = parCle.get(cle);
+        if (existant != null && existant.reutilisable(stockVersion.courante())) {
+            return existant.toDTO();
+        }
+        if (executeur.getQueue().size() >= fileMax) {
+            throw new IllegalStateException("File des rapports pleine (" + fileMax + " en attente), réessayer plus tard");
+        }
+
+        int priorite = demande.getPriorite() != null ? demande.getPriorite() : PRIORITE_DEFAUT;
+        RapportJob job = new RapportJob(UUID.randomUUID().toString(), cle, demande.getType(), format, priorite);
+        jobs.put(job.getId(), job);
+        parCle.put(cle, job);
+        Tache tache = new Tache(job, sequence.incrementAndGet(), () -> executer(job, demande));
+        taches.put(job.getId(), tache);
+        executeur.execute(tache);
+        return job.toDTO();
+    }
+
+    @Override
+    public RapportJobDTO getJob(String id) {
+        RapportJob job = job(id);
+        expirerSiPerime(job);
+        return job.toDTO();
+    }
+
+    @Override
+    public synchronized RapportJobDTO annuler(String id) {
+        RapportJob job = job(id);
+        supprimer(job.annuler());
+        Tache tache = taches.get(id);
+        if (tache != null) {
+            // en attente : ne démarrera pas ; en cours : interrompu à sa prochaine écriture
+            tache.cancel(true);
+            executeur.remove(tache);
+        }
+        parCle.remove(job.getCle(), job);
+        return job.toDTO();
+    }
+
+    @Override
+    public RapportResultatDTO getResultat(String id) {
+        RapportJob job = job(id);
+        expirerSiPerime(job);
+        Path fichier = job.getFichier();
+        if (job.getStatut() != StatutRapport.TERMINE || fichier == null) {
+            throw new IllegalStateException("Résultat du rapport " + id + " indisponible: " + job.getStatut());
+        }
+        boolean json = job.getFormat() == null;
+        return RapportResultatDTO.builder()
+                .fichier(fichier)
+                .mediaType(json ? MediaType.APPLICATION_JSON : job.getFormat().getMediaType())
+                .nomFichier(job.getType().name().toLowerCase() + "." + (json ? "json" : job.getFormat().getExtension()))
+                .build();
+    }
+
+    /** Drops the results outdated by a stock change and forgets the jobs finished for longer than the retention. */
+    @Scheduled(fixedDelayString = "${rapports.purge.delai:60000}")
+    public void purger() {
+        LocalDateTime limite = LocalDateTime.now().minus(retention);
+        long version = stockVersion.courante();
+        for (RapportJob job : jobs.values()) {
+            expirerSiPerime(job, version);
+            if (job.finiAvant(limite)) {
+                jobs.remove(job.getId());
+                parCle.remove(job.getCle(), job);
+                supprimer(job.annuler());
+            }
+        }
+    }
+
+    private void executer(RapportJob job, RapportDemandeDTO demande) {
+        if (!job.demarrer(stockVersion.courante())) {
+            return;
+        }
+        Path temporaire = repertoire.resolve(job.getId() + ".tmp");
+        try {
+            try (OutputStream sortie = new SortieInterruptible(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temporaire)), TAILLE_TAMPON))) {
+                // lu sur le primaire : le résultat n'est pas plus ancien que la version du job
+                stockVersion.lire(() -> {
+                    try {
+                        ecrire(demande, job.getFormat(), sortie);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+            }
+            Path fichier = Files.move(temporaire, repertoire.resolve(job.getId() + ".gz"),
+                    StandardCopyOption.ATOMIC_MOVE);
+            if (!job.terminer(fichier, Files.size(fichier))) {
+                supprimer(fichier);
+            }
+        } catch (Exception e) {
+            supprimer(temporaire);
+            if (job.getStatut() != StatutRapport.ANNULE) {
+                job.echouer(e.getMessage());
+                parCle.remove(job.getCle(), job);
+                AppLogger.warn("Rapport " + job.getType() + " " + job.getId() + " en échec: " + e.getMessage());
+            }
+        }
+    }
+
+    private void ecrire(RapportDemandeDTO demande, FormatExport format, OutputStream sortie) throws IOException {
+        switch (demande.getType()) {
+            case VALORISATION -> sortie.write(objectMapper.writeValueAsBytes(stockService.getValorisation()));
+            case ALERTES -> sortie.write(objectMapper.writeValueAsBytes(stockService.getAlertes()));
+            case STOCK_GLOBAL -> {
+                try {
+                    stockService.parcourirStockGlobal(ligne -> {
+                        try {
+                            sortie.write(objectMapper.writeValueAsBytes(ligne));
+                            sortie.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            case MOUVEMENTS -> stockService.exporterMouvements(demande.getProduitId(), demande.getLotId(),
+                    demande.getTypeMouvement(), demande.getStartDate(), demande.getEndDate(), format, sortie);
+            case VALORISATION_HISTORIQUE -> stockService.exporterValorisations(demande.getDates(), format, sortie);
+        }
+    }
+
+    /** Output format of the report; null for the reports returned as one JSON document. */
+    private static FormatExport format(RapportDemandeDTO demande) {
+        TypeRapport type = demande.getType();
+        if (type == null) {
+            throw new IllegalArgumentException("Le type de rapport est obligatoire");
+        }
+        return switch (type) {
+            case VALORISATION, ALERTES -> null;
+            case STOCK_GLOBAL -> {
+                if (demande.getFormat() == FormatExport.CSV) {
+                    throw new IllegalArgumentException("Le rapport STOCK_GLOBAL n'existe qu'en NDJSON");
+                }
+                yield FormatExport.NDJSON;
+            }
+            case VALORISATION_HISTORIQUE -> {
+                if (demande.getDates() == null || demande.getDates().isEmpty()) {
+                    throw new IllegalArgumentException("Au moins une date d'arrêté est requise");
+                }
+                yield Objects.requireNonNullElse(demande.getFormat(), FormatExport.NDJSON);
+            }
+            case MOUVEMENTS -> Objects.requireNonNullElse(demande.getFormat(), FormatExport.NDJSON);
+        };
+    }
+
+    /** Identity of a report: its type, format and the filters it takes, priority excluded. */
+    private static String cle(RapportDemandeDTO demande, FormatExport format) {
+        StringBuilder cle = new StringBuilder(demande.getType().name()).append('|').append(format);
+        if (demande.getType() == TypeRapport.MOUVEMENTS) {
+            cle.append('|').append(demande.getProduitId())
+                    .append('|').append(demande.getLotId())
+                    .append('|').append(demande.getTypeMouvement())
+                    .append('|').append(demande.getStartDate())
+                    .append('|').append(demande.getEndDate());
+        } else if (demande.getType() == TypeRapport.VALORISATION_HISTORIQUE) {
+            cle.append('|').append(new TreeSet<>(demande.getDates()));
+        }
+        return cle.toString();
+    }
+
+    private void expirerSiPerime(RapportJob job) {
+        expirerSiPerime(job, stockVersion.courante());
+    }
+
+    private void expirerSiPerime(RapportJob job, long version) {
+        Path fichier = job.expirer(version);
+        if (fichier != null) {
+            parCle.remove(job.getCle(), job);
+            supprimer(fichier);
+        }
+    }
+
+    private RapportJob job(String id) {
+        RapportJob job = jobs.get(id);
+        if (job == null) {
+            throw new EntityNotFoundException("Rapport non trouvé avec l'id: " + id);
+        }
+        return job;
+    }
+
+    private static void supprimer(Path fichier) {
+        if (fichier == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fichier);
+        } catch (IOException e) {
+            AppLogger.warn("Impossible de supprimer le rapport " + fichier + ": " + e.getMessage());
+        }
+    }
+
+    /** Queued job, ordered by priority then submission. */
+    private final class Tache extends FutureTask<Void> implements Comparable<Tache> {
+
+        private final RapportJob job;
+        private final long numero;
+
+        Tache(RapportJob job, long numero, Runnable travail) {
+            super(travail, null);
+            this.job = job;
+            this.numero = numero;
+        }
+
+        @Override
+        protected void done() {
+            taches.remove(job.getId(), this);
+        }
+
+        @Override
+        public int compareTo(Tache autre) {
+            int parPriorite = Integer.compare(autre.job.getPriorite(), job.getPriorite());
+            return parPriorite != 0 ? parPriorite : Long.compare(numero, autre.numero);
+        }
+    }
+
+    /** Stops the report at its next write once the job has been cancelled. */
+    private static final class SortieInterruptible extends FilterOutputStream {
+
+        SortieInterruptible(OutputStream sortie) {
+            super(sortie);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            verifier();
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            verifier();
+            out.write(b, off, len);
+        }
+
+        private static void verifier() throws InterruptedIOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Rapport annulé");
+            }
+        }
+    }
+}
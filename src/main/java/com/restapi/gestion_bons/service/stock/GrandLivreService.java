@@ -0,0 +1,146 @@
+package com.restapi.gestion_bons.service.stock;
+
+import com.restapi.gestion_bons.dao.MouvementStockDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockSnapshotDAO;
+import com.restapi.gestion_bons.dto.stock.GrandLivreEcartDTO;
+import com.restapi.gestion_bons.dto.stock.StockALaDateDTO;
+import com.restapi.gestion_bons.dto.stock.StockProduitALaDateDTO;
+import com.restapi.gestion_bons.util.AppLogger;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Stock at a past date, read from the movement ledger. Each movement carries
+ * the running balance of its lot and product, so the stock of one product is
+ * the balance of its last movement before the date. The stock of every
+ * product starts from the last snapshot before the date and only replays the
+ * movements after it.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class GrandLivreService {
+
+    /**
+     * Replay start when no snapshot precedes the date. Compared with the
+     * TIMESTAMP date_snapshot, it must be in its range in any session time
+     * zone: strict mode turns the out-of-range comparison of the snapshot
+     * INSERT ... SELECT into an error.
+     */
+    static final LocalDateTime ORIGINE = LocalDateTime.of(1970, 1, 2, 0, 0);
+
+    private final StockSnapshotDAO stockSnapshotDAO;
+    private final MouvementStockDAO mouvementStockDAO;
+    private final ProduitDAO produitDAO;
+
+    /**
+     * Age a snapshot date must have, so that the movements dated before it
+     * have been committed: a snapshot is never taken again.
+     */
+    @Value("${stock.snapshot.delai:1h}")
+    private Duration delai = Duration.ofHours(1);
+
+    /**
+     * Snapshot of the last midnight at least {@code stock.snapshot.delai} old:
+     * with the default cron and delay, the previous midnight.
+     */
+    @Scheduled(cron = "${stock.snapshot.cron:0 0 1 * * *}")
+    public void creerSnapshotQuotidien() {
+        try {
+            creerSnapshot(dateLimite().toLocalDate().atStartOfDay());
+        } catch (DataIntegrityViolationException e) {
+            // une autre instance a pris le même snapshot
+            AppLogger.info("Snapshot de stock déjà pris: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stores the stock of every product at the date, by default the latest
+     * date allowed (now minus {@code stock.snapshot.delai}); does nothing if
+     * that snapshot exists.
+     */
+    public int creerSnapshot(LocalDateTime date) {
+        LocalDateTime limite = dateLimite();
+        if (date == null) {
+            date = limite;
+        } else if (date.isAfter(limite)) {
+            throw new IllegalArgumentException("Un snapshot ne peut pas être pris après " + limite
+                    + " (délai de " + delai + "): " + date);
+        }
+        if (stockSnapshotDAO.existsByDateSnapshot(date)) {
+            return 0;
+        }
+        LocalDateTime precedent = stockSnapshotDAO.findSnapshotPrecedent(date);
+        int produits = stockSnapshotDAO.creerSnapshot(precedent != null ? precedent : ORIGINE, date);
+        AppLogger.info("Snapshot de stock au " + date + ": " + produits + " produit(s) en stock");
+        return produits;
+    }
+
+    private LocalDateTime dateLimite() {
+        return LocalDateTime.now().minus(delai).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockALaDateDTO> getStockALaDate(LocalDateTime date) {
+        LocalDateTime snapshot = stockSnapshotDAO.findDernierSnapshot(date);
+        return stockSnapshotDAO.findStockALaDate(snapshot != null ? snapshot : ORIGINE, date).stream()
+                .map(s -> StockALaDateDTO.builder()
+                        .produitId(s.getProduitId())
+                        .produitReference(s.getProduitReference())
+                        .produitNom(s.getProduitNom())
+                        .quantite(s.getQuantite().intValue())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public StockProduitALaDateDTO getStockProduitALaDate(Long produitId, LocalDateTime date) {
+        if (!produitDAO.existsById(produitId)) {
+            throw new EntityNotFoundException("Produit non trouvé avec l'id: " + produitId);
+        }
+        Integer solde = mouvementStockDAO.findSoldeProduit(produitId, date);
+        return StockProduitALaDateDTO.builder()
+                .produitId(produitId)
+                .date(date)
+                .quantite(solde != null ? solde : 0)
+                .lots(mouvementStockDAO.findLotsALaDate(produitId, date).stream()
+                        .map(l -> StockProduitALaDateDTO.LotALaDate.builder()
+                                .lotId(l.getLotId())
+                                .numeroLot(l.getNumeroLot())
+                                .quantite(l.getQuantite())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    /** Lots whose stored quantity does not match their movements. */
+    @Transactional(readOnly = true)
+    public List<GrandLivreEcartDTO> verifier() {
+        List<GrandLivreEcartDTO> ecarts = mouvementStockDAO.findEcartsGrandLivre().stream()
+                .map(e -> GrandLivreEcartDTO.builder()
+                        .lotId(e.getLotId())
+                        .numeroLot(e.getNumeroLot())
+                        .produitId(e.getProduitId())
+                        .quantiteLot(e.getQuantiteLot())
+                        .quantiteGrandLivre(e.getQuantiteGrandLivre().intValue())
+                        .soldeDernierMouvement(e.getSoldeDernierMouvement())
+                        .build())
+                .collect(Collectors.toList());
+        if (!ecarts.isEmpty()) {
+            AppLogger.warn(ecarts.size() + " lot(s) en écart avec le grand livre des mouvements");
+        }
+        return ecarts;
+    }
+}
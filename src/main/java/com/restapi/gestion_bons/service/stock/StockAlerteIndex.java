@@ -0,0 +1,176 @@
+package com.restapi.gestion_bons.service.stock;
+
+import com.restapi.gestion_bons.dto.stock.StockAlertDTO;
+import com.restapi.gestion_bons.dto.stock.StockAlerteEvenementDTO;
+import com.restapi.gestion_bons.dto.stock.TypeEvenementAlerte;
+import com.restapi.gestion_bons.util.AppLogger;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Open reorder alerts held in memory, sorted by product, as a copy of the
+ * stock_alerte table. It only changes once the transaction that wrote the
+ * table has committed, by re-reading the table: reads and applies are done
+ * under the index lock, so that a refresh never overwrites a newer state
+ * read by another one. Every change is pushed to the SSE subscribers from a
+ * single thread, in the order it was applied.
+ */
+@Component
+public class StockAlerteIndex {
+
+    /** Distinguishes the revisions of the instances and successive runs, which all start at 0. */
+    private final String instance = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong revision = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, StockAlertDTO> alertes = new ConcurrentSkipListMap<>();
+    private final List<SseEmitter> abonnes = new CopyOnWriteArrayList<>();
+    private final ExecutorService diffusion = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "stock-alertes-flux");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${stock.alertes.flux.timeout:30m}")
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * Strong entity tag of the open alerts held by this index. It moves with
+     * their content rather than with the stock version, which may already
+     * count a change made by another instance that this index has not yet
+     * reconciled.
+     */
+    public String etag() {
+        return instance + "-" + revision.get();
+    }
+
+    /** Open alerts by product id, without touching the database. */
+    public List<StockAlertDTO> lister() {
+        return new ArrayList<>(alertes.values());
+    }
+
+    /**
+     * Re-reads the alerts of the given products with {@code lecture} and
+     * applies them: the products it does not return are no longer in alert.
+     */
+    public synchronized List<StockAlerteEvenementDTO> relire(Collection<Long> produitIds,
+            Supplier<List<StockAlertDTO>> lecture) {
+        Map<Long, StockAlertDTO> ouvertes = lecture.get().stream()
+                .collect(Collectors.toMap(StockAlertDTO::getProduitId, Function.identity()));
+        return appliquer(produitIds, ouvertes);
+    }
+
+    /** Re-reads every open alert with {@code lecture} and replaces the whole index. */
+    public synchronized List<StockAlerteEvenementDTO> relireTout(Supplier<List<StockAlertDTO>> lecture) {
+        Map<Long, StockAlertDTO> ouvertes = lecture.get().stream()
+                .collect(Collectors.toMap(StockAlertDTO::getProduitId, Function.identity()));
+        Set<Long> produitIds = new HashSet<>(alertes.keySet());
+        produitIds.addAll(ouvertes.keySet());
+        return appliquer(produitIds, ouvertes);
+    }
+
+    /**
+     * New state of the given products: those present in {@code ouvertes} are
+     * in alert, the others are not.
+     */
+    private List<StockAlerteEvenementDTO> appliquer(Collection<Long> produitIds,
+            Map<Long, StockAlertDTO> ouvertes) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<StockAlerteEvenementDTO> evenements = new ArrayList<>();
+        for (Long produitId : produitIds) {
+            StockAlertDTO avant = alertes.get(produitId);
+            StockAlertDTO apres = ouvertes.get(produitId);
+            if (apres != null) {
+                alertes.put(produitId, apres);
+                if (avant == null) {
+                    evenements.add(evenement(TypeEvenementAlerte.OUVERTE, apres, maintenant));
+                } else if (!avant.equals(apres)) {
+                    evenements.add(evenement(TypeEvenementAlerte.MISE_A_JOUR, apres, maintenant));
+                }
+            } else if (avant != null) {
+                alertes.remove(produitId);
+                evenements.add(evenement(TypeEvenementAlerte.LEVEE, avant, maintenant));
+            }
+        }
+        if (!evenements.isEmpty()) {
+            revision.incrementAndGet();
+        }
+        diffuser(evenements);
+        return evenements;
+    }
+
+    /**
+     * Subscribes to the alert changes. The open alerts are sent first, as one
+     * "alertes" event; each change then follows as an "alerte" event.
+     */
+    public SseEmitter abonner() {
+        SseEmitter emetteur = new SseEmitter(timeout.toMillis());
+        emetteur.onCompletion(() -> abonnes.remove(emetteur));
+        emetteur.onTimeout(() -> abonnes.remove(emetteur));
+        emetteur.onError(e -> abonnes.remove(emetteur));
+        abonnes.add(emetteur);
+        List<StockAlertDTO> etat = lister();
+        diffusion.execute(() -> envoyer(emetteur, SseEmitter.event().name("alertes")
+                .data(etat, MediaType.APPLICATION_JSON)));
+        return emetteur;
+    }
+
+    int nombreAbonnes() {
+        return abonnes.size();
+    }
+
+    @PreDestroy
+    void fermer() {
+        diffusion.shutdownNow();
+        abonnes.forEach(SseEmitter::complete);
+    }
+
+    private void diffuser(List<StockAlerteEvenementDTO> evenements) {
+        if (evenements.isEmpty() || abonnes.isEmpty()) {
+            return;
+        }
+        diffusion.execute(() -> {
+            for (StockAlerteEvenementDTO evenement : evenements) {
+                for (SseEmitter emetteur : abonnes) {
+                    envoyer(emetteur, SseEmitter.event().name("alerte").data(evenement, MediaType.APPLICATION_JSON));
+                }
+            }
+        });
+    }
+
+    private void envoyer(SseEmitter emetteur, SseEmitter.SseEventBuilder evenement) {
+        try {
+            emetteur.send(evenement);
+        } catch (IOException | IllegalStateException e) {
+            // client parti : il ne reçoit plus rien
+            abonnes.remove(emetteur);
+            emetteur.completeWithError(e);
+            AppLogger.info("Abonné au flux des alertes déconnecté: " + e.getMessage());
+        }
+    }
+
+    private static StockAlerteEvenementDTO evenement(TypeEvenementAlerte type, StockAlertDTO alerte,
+            LocalDateTime date) {
+        return StockAlerteEvenementDTO.builder().type(type).alerte(alerte).date(date).build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.restapi.gestion_bons.service.stock;
+
+import com.restapi.gestion_bons.dao.StockAlerteDAO;
+import com.restapi.gestion_bons.dto.stock.StockAlertDTO;
+import com.restapi.gestion_bons.dto.stock.StockAlerteEvenementDTO;
+import com.restapi.gestion_bons.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the stock_alerte table and its in-memory index in step with the
+ * balances. Only the products touched by a stock change are re-evaluated,
+ * in the caller's transaction; the index re-reads their rows after the
+ * commit, on the same connection. The changes made by other instances reach
+ * the index through a periodic reconciliation with the table.
+ *
+ * Every change of a product's stock or reorder point passes here, so the
+ * {@link StockVersion} is advanced with the transaction, and the cached stock
+ * reads of this instance are evicted by the same after-commit step.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class StockAlerteService implements SmartInitializingSingleton {
+
+    private final StockAlerteDAO stockAlerteDAO;
+    private final StockAlerteIndex stockAlerteIndex;
+    private final StockVersion stockVersion;
+    private final StockCache stockCache;
+
+    /** Loads the index from the table once the schema is migrated. */
+    @Override
+    public void afterSingletonsInstantiated() {
+        stockAlerteIndex.relireTout(stockAlerteDAO::findAlertes);
+    }
+
+    /**
+     * Re-reads the whole table into the index, on the primary, so that the
+     * alerts opened or lifted by other instances are picked up.
+     */
+    @Scheduled(fixedDelayString = "${stock.alertes.reconciliation.delai:60000}")
+    public void reconcilier() {
+        List<StockAlerteEvenementDTO> evenements = stockAlerteIndex.relireTout(stockAlerteDAO::findAlertes);
+        if (!evenements.isEmpty()) {
+            AppLogger.info("Index des alertes réconcilié: " + evenements.size() + " changement(s)");
+        }
+    }
+
+    /** Opens, updates or lifts the alert of each product after a change of its stock or reorder point. */
+    public void actualiser(Collection<Long> produitIds) {
+        if (produitIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new TreeSet<>(produitIds);
+        stockAlerteDAO.lever(ids);
+        stockAlerteDAO.ouvrir(ids);
+        stockVersion.avancer(ids);
+        apresCommit(() -> {
+            // relu après le commit : l'état écrit par un commit plus récent n'est jamais écrasé
+            stockAlerteIndex.relire(ids, () -> stockAlerteDAO.findAlertes(ids));
+            stockCache.invalider(ids);
+        });
+    }
+
+    /**
+     * Re-evaluates every product, e.g. after the balances were rebuilt or
+     * products were imported, and replaces the index. Alerts still open keep
+     * their date.
+     */
+    public int reconstruire() {
+        stockAlerteDAO.leverTout();
+        stockAlerteDAO.ouvrirTout();
+        int ouvertes = (int) stockAlerteDAO.count();
+        stockVersion.avancer();
+        apresCommit(() -> {
+            stockAlerteIndex.relireTout(stockAlerteDAO::findAlertes);
+            stockCache.invaliderTout();
+        });
+        AppLogger.info("Alertes de stock reconstruites: " + ouvertes + " produit(s) sous le seuil");
+        return ouvertes;
+    }
+
+    public String etag() {
+        return stockAlerteIndex.etag();
+    }
+
+    public List<StockAlertDTO> lister() {
+        return stockAlerteIndex.lister();
+    }
+
+    public SseEmitter abonner() {
+        return stockAlerteIndex.abonner();
+    }
+
+    private static void apresCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package com.restapi.gestion_bons.service.stock;
+
+import com.restapi.gestion_bons.dao.StockBalanceDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
+import com.restapi.gestion_bons.dto.stock.StockBalanceEcartDTO;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
+import com.restapi.gestion_bons.entitie.StockBalance;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the stock_balance table in step with the lots. Entries and exits
+ * apply deltas in the caller's transaction; lot edits outside of those flows
+ * recompute the affected products from their lots. Every write re-evaluates
+ * the reorder alerts of the products it touched.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class StockBalanceService {
+
+    private final StockBalanceDAO stockBalanceDAO;
+    private final StockBatchDAO stockBatchDAO;
+    private final StockAlerteService stockAlerteService;
+
+    /** Reception of new lots: each one adds its quantity, value and one active lot. */
+    public void enregistrerEntrees(Collection<Lot> lots) {
+        Map<Long, StockBalance> deltas = new TreeMap<>();
+        for (Lot lot : lots) {
+            if (lot.getStatut() != LotStatus.DISPONIBLE) {
+                continue;
+            }
+            StockBalance delta = delta(deltas, lot.getProduit().getId());
+            delta.setQuantiteDisponible(delta.getQuantiteDisponible() + lot.getQuantiteRestante());
+            delta.setValorisation(delta.getValorisation().add(valeur(lot, lot.getQuantiteRestante())));
+            delta.setNombreLotsActifs(delta.getNombreLotsActifs() + 1);
+        }
+        ecrire(deltas);
+    }
+
+    /**
+     * FIFO exit: each movement removes its quantity at the price of its lot,
+     * and every lot left empty is no longer counted as active.
+     */
+    public void enregistrerSorties(Collection<MouvementStock> mouvements) {
+        Map<Long, StockBalance> deltas = new TreeMap<>();
+        Set<Long> lotsEpuises = new HashSet<>();
+        for (MouvementStock mouvement : mouvements) {
+            Lot lot = mouvement.getLot();
+            StockBalance delta = delta(deltas, mouvement.getProduit().getId());
+            delta.setQuantiteDisponible(delta.getQuantiteDisponible() - mouvement.getQuantite());
+            delta.setValorisation(delta.getValorisation().subtract(valeur(lot, mouvement.getQuantite())));
+            if (lot.getStatut() == LotStatus.EPUISE && lotsEpuises.add(lot.getId())) {
+                delta.setNombreLotsActifs(delta.getNombreLotsActifs() - 1);
+            }
+        }
+        ecrire(deltas);
+    }
+
+    /** Recomputes the balance of the given products from their lots. */
+    public void recalculer(Collection<Long> produitIds) {
+        if (!produitIds.isEmpty()) {
+            stockBalanceDAO.recalculer(produitIds);
+            stockAlerteService.actualiser(produitIds);
+        }
+    }
+
+    public int reconstruire() {
+        stockBalanceDAO.viderTout();
+        int produits = stockBalanceDAO.recalculerTout();
+        stockAlerteService.reconstruire();
+        AppLogger.info("Balances de stock reconstruites pour " + produits + " produits");
+        return produits;
+    }
+
+    /**
+     * Compares every balance with its lots and lists the differences. With
+     * {@code corriger}, the products in error are recomputed in the same call.
+     */
+    public List<StockBalanceEcartDTO> reconcilier(boolean corriger) {
+        List<StockBalanceEcartDTO> ecarts = stockBalanceDAO.findEcarts().stream()
+                .map(e -> StockBalanceEcartDTO.builder()
+                        .produitId(e.getProduitId())
+                        .quantiteAttendue(entier(e.getQuantite()))
+                        .quantiteEnregistree(entier(e.getQuantiteEnregistree()))
+                        .valorisationAttendue(e.getValorisation())
+                        .valorisationEnregistree(e.getValorisationEnregistree())
+                        .nombreLotsAttendus(entier(e.getNombreLots()))
+                        .nombreLotsEnregistres(entier(e.getNombreLotsEnregistres()))
+                        .corrige(corriger)
+                        .build())
+                .collect(Collectors.toList());
+
+        if (!ecarts.isEmpty()) {
+            AppLogger.warn(ecarts.size() + " balance(s) de stock en écart avec les lots");
+            if (corriger) {
+                recalculer(ecarts.stream().map(StockBalanceEcartDTO::getProduitId).collect(Collectors.toList()));
+            }
+        }
+        return ecarts;
+    }
+
+    private void ecrire(Map<Long, StockBalance> deltas) {
+        if (!deltas.isEmpty()) {
+            stockBatchDAO.upsertBalances(deltas.values());
+            stockAlerteService.actualiser(deltas.keySet());
+        }
+    }
+
+    private static StockBalance delta(Map<Long, StockBalance> deltas, Long produitId) {
+        return deltas.computeIfAbsent(produitId, id -> StockBalance.builder()
+                .produitId(id)
+                .quantiteDisponible(0)
+                .valorisation(BigDecimal.ZERO)
+                .nombreLotsActifs(0)
+                .dateMiseAJour(LocalDateTime.now())
+                .build());
+    }
+
+    private static BigDecimal valeur(Lot lot, int quantite) {
+        return lot.getPrixAchatUnitaire().multiply(BigDecimal.valueOf(quantite));
+    }
+
+    private static Integer entier(Long valeur) {
+        return valeur == null ? null : valeur.intValue();
+    }
+}
@@ -0,0 +1,42 @@
+package com.restapi.gestion_bons.service.stock;
+
+import com.restapi.gestion_bons.config.CacheConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Evicts the cached stock reads. Called after the commit of a stock change,
+ * so a rolled-back transaction never evicts anything. The entries are also
+ * checked against the {@link StockVersion} when read, which covers the
+ * changes committed by other instances.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockCache {
+
+    private final CacheManager cacheManager;
+
+    /** The detail of each product and the overall valuation. */
+    public void invalider(Collection<Long> produitIds) {
+        Cache produits = cache(CacheConfig.STOCK_PRODUITS);
+        produitIds.forEach(produits::evictIfPresent);
+        cache(CacheConfig.STOCK_VALORISATION).invalidate();
+    }
+
+    public void invaliderTout() {
+        cache(CacheConfig.STOCK_PRODUITS).invalidate();
+        cache(CacheConfig.STOCK_VALORISATION).invalidate();
+    }
+
+    private Cache cache(String nom) {
+        Cache cache = cacheManager.getCache(nom);
+        if (cache == null) {
+            throw new IllegalStateException("Cache non configuré: " + nom);
+        }
+        return cache;
+    }
+}
@@ -1,13 +1,24 @@
 package com.restapi.gestion_bons.service.stock;
 
+import com.restapi.gestion_bons.config.CacheConfig;
 import com.restapi.gestion_bons.contracts.StockContract;
-import com.restapi.gestion_bons.dao.LotDAO;
 import com.restapi.gestion_bons.dao.MouvementStockDAO;
+import com.restapi.gestion_bons.dao.MouvementStockExportDAO;
 import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockBalanceDAO;
+import com.restapi.gestion_bons.dto.stock.GrandLivreEcartDTO;
+import com.restapi.gestion_bons.dto.stock.StockALaDateDTO;
 import com.restapi.gestion_bons.dto.stock.StockAlertDTO;
+import com.restapi.gestion_bons.dto.stock.StockBalanceEcartDTO;
 import com.restapi.gestion_bons.dto.stock.StockGlobalDTO;
+import com.restapi.gestion_bons.dto.stock.StockProduitALaDateDTO;
 import com.restapi.gestion_bons.dto.stock.StockProduitDetailDTO;
 import com.restapi.gestion_bons.dto.stock.StockValorisationDTO;
+import com.restapi.gestion_bons.dto.stock.ValorisationArreteDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockCurseurDTO;
+import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockExportDTO;
 import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockResponseDTO;
 import com.restapi.gestion_bons.entitie.Lot;
 import com.restapi.gestion_bons.entitie.MouvementStock;
@@ -16,70 +27,117 @@ import com.restapi.gestion_bons.entitie.enums.LotStatus;
 import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
 import com.restapi.gestion_bons.mapper.MouvementStockMapper;
 import com.restapi.gestion_bons.specification.MouvementStockSpecification;
+import com.restapi.gestion_bons.util.MouvementStockCurseur;
+import com.restapi.gestion_bons.util.ValorisationHelper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.JpaSort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.persistence.EntityNotFoundException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class StockService implements StockContract {
 
-        private final LotDAO lotDAO;
         private final ProduitDAO produitDAO;
         private final MouvementStockDAO mouvementStockDAO;
         private final MouvementStockMapper mouvementStockMapper;
+        private final StockBalanceDAO stockBalanceDAO;
+        private final StockBalanceService stockBalanceService;
+        private final StockAlerteService stockAlerteService;
+        private final GrandLivreService grandLivreService;
+        private final MouvementStockExportDAO mouvementStockExportDAO;
+        private final ValorisationFifoEngine valorisationFifoEngine;
+        private final ObjectMapper objectMapper;
+
+        private static final int TAILLE_MAX_CURSEUR = 1000;
+
+        private static final String ENTETE_CSV = "id,type_mouvement,date_mouvement,quantite,prix_unitaire_lot,"
+                        + "produit_id,produit_reference,lot_id,numero_lot\n";
+
+        private static final String ENTETE_CSV_VALORISATION = "date_arrete,produit_id,quantite,valorisation\n";
+
+        /** Sortable fields of the stock overview, by their name in {@link StockGlobalDTO}. */
+        private static final Map<String, String> TRIS_STOCK_GLOBAL = Map.of(
+                        "produitId", "id",
+                        "produitReference", "reference",
+                        "produitNom", "nom",
+                        "quantiteDisponible", "coalesce(b.quantiteDisponible, 0)",
+                        "valorisation", "coalesce(b.valorisation, 0)",
+                        "nombreLots", "coalesce(b.nombreLotsActifs, 0)");
 
         @Override
         @Transactional(readOnly = true)
-        public List<StockGlobalDTO> getStockGlobal() {
-                List<Produit> produits = produitDAO.findAll();
-
-                return produits.stream().map(produit -> {
-                        List<Lot> lots = lotDAO.findByProduitIdAndStatut(produit.getId(), LotStatus.DISPONIBLE);
-                        int quantiteTotale = lots.stream()
-                                        .mapToInt(Lot::getQuantiteRestante)
-                                        .sum();
+        public Page<StockGlobalDTO> getStockGlobal(Pageable pageable) {
+                Sort tri = Sort.unsorted();
+                for (Sort.Order ordre : pageable.getSort()) {
+                        String expression = TRIS_STOCK_GLOBAL.get(ordre.getProperty());
+                        if (expression == null) {
+                                throw new IllegalArgumentException("Tri non supporté: " + ordre.getProperty());
+                        }
+                        tri = tri.and(expression.startsWith("coalesce")
+                                        ? JpaSort.unsafe(ordre.getDirection(), expression)
+                                        : Sort.by(ordre.getDirection(), expression));
+                }
+                // Tie-breaker so that pages stay stable when sorting on non-unique columns
+                tri = tri.and(Sort.by("id"));
 
-                        BigDecimal valorisation = lots.stream()
-                                        .map(lot -> lot.getPrixAchatUnitaire()
-                                                        .multiply(BigDecimal.valueOf(lot.getQuantiteRestante())))
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                return stockBalanceDAO.findStockGlobal(
+                                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), tri));
+        }
 
-                        return StockGlobalDTO.builder()
-                                        .produitId(produit.getId())
-                                        .produitReference(produit.getReference())
-                                        .produitNom(produit.getNom())
-                                        .quantiteDisponible(quantiteTotale)
-                                        .valorisation(valorisation)
-                                        .nombreLots(lots.size())
-                                        .build();
-                }).collect(Collectors.toList());
+        @Override
+        @Transactional(readOnly = true)
+        public void parcourirStockGlobal(Consumer<StockGlobalDTO> consommateur) {
+                try (Stream<StockGlobalDTO> lignes = stockBalanceDAO.streamStockGlobal()) {
+                        lignes.forEach(consommateur);
+                }
         }
 
         @Override
         @Transactional(readOnly = true)
+        @Cacheable(cacheNames = CacheConfig.STOCK_PRODUITS, sync = true)
         public StockProduitDetailDTO getStockByProduitId(Long produitId) {
-                Produit produit = produitDAO.findById(produitId)
+                Produit produit = produitDAO.findWithLotsById(produitId)
                                 .orElseThrow(() -> new EntityNotFoundException(
                                                 "Produit non trouvé avec l'id: " + produitId));
 
-                List<Lot> lots = lotDAO.findByProduitIdOrderByDateEntreeAsc(produitId);
+                List<Lot> lots = produit.getLots();
 
                 int quantiteTotale = lots.stream()
                                 .filter(lot -> lot.getStatut() == LotStatus.DISPONIBLE)
                                 .mapToInt(Lot::getQuantiteRestante)
                                 .sum();
 
-                BigDecimal valorisationFIFO = calculerValorisationFIFO(lots);
+                BigDecimal valorisationFIFO = ValorisationHelper.valorisationFIFO(lots);
 
                 List<StockProduitDetailDTO.LotInfo> lotsInfo = lots.stream()
                                 .map(lot -> StockProduitDetailDTO.LotInfo.builder()
@@ -122,71 +180,189 @@ public class StockService implements StockContract {
 
         @Override
         @Transactional(readOnly = true)
-        public List<StockAlertDTO> getAlertes() {
-                List<Produit> produits = produitDAO.findAll();
-
-                return produits.stream()
-                                .filter(produit -> {
-                                        int stockActuel = lotDAO
-                                                        .findByProduitIdAndStatut(produit.getId(), LotStatus.DISPONIBLE)
-                                                        .stream()
-                                                        .mapToInt(Lot::getQuantiteRestante)
-                                                        .sum();
-                                        return stockActuel < produit.getReorderPoint();
-                                })
-                                .map(produit -> {
-                                        int stockActuel = lotDAO
-                                                        .findByProduitIdAndStatut(produit.getId(), LotStatus.DISPONIBLE)
-                                                        .stream()
-                                                        .mapToInt(Lot::getQuantiteRestante)
-                                                        .sum();
-
-                                        return StockAlertDTO.builder()
-                                                        .produitId(produit.getId())
-                                                        .produitReference(produit.getReference())
-                                                        .produitNom(produit.getNom())
-                                                        .stockActuel(stockActuel)
-                                                        .seuilMinimum(produit.getReorderPoint())
-                                                        .quantiteAReapprovisionner(
-                                                                        produit.getReorderPoint() - stockActuel)
-                                                        .build();
-                                })
-                                .collect(Collectors.toList());
+        public MouvementStockCurseurDTO getMouvementsParCurseur(
+                        Long produitId,
+                        Long lotId,
+                        TypeMouvement type,
+                        LocalDateTime startDate,
+                        LocalDateTime endDate,
+                        String curseur,
+                        int taille,
+                        boolean avecTotal) {
+
+                if (taille < 1 || taille > TAILLE_MAX_CURSEUR) {
+                        throw new IllegalArgumentException(
+                                        "La taille de page doit être comprise entre 1 et " + TAILLE_MAX_CURSEUR);
+                }
+                Specification<MouvementStock> criteres = MouvementStockSpecification.withCriteria(
+                                produitId, lotId, type, startDate, endDate);
+                KeysetScrollPosition position = MouvementStockCurseur.decoder(curseur);
+
+                Window<MouvementStock> fenetre = mouvementStockDAO.findBy(criteres, requete -> requete
+                                .sortBy(MouvementStockCurseur.ORDRE)
+                                .limit(taille)
+                                .project("produit", "lot")
+                                .scroll(position));
+
+                String curseurSuivant = fenetre.hasNext() && !fenetre.isEmpty()
+                                ? MouvementStockCurseur.encoder(
+                                                (KeysetScrollPosition) fenetre.positionAt(fenetre.size() - 1))
+                                : null;
+
+                return MouvementStockCurseurDTO.builder()
+                                .mouvements(fenetre.map(mouvementStockMapper::toResponseDto).getContent())
+                                .curseurSuivant(curseurSuivant)
+                                .total(avecTotal ? mouvementStockDAO.count(criteres) : null)
+                                .build();
         }
 
         @Override
         @Transactional(readOnly = true)
-        public StockValorisationDTO getValorisation() {
-                List<Lot> lotsDisponibles = lotDAO.findByStatut(LotStatus.DISPONIBLE);
+        public void exporterMouvements(
+                        Long produitId,
+                        Long lotId,
+                        TypeMouvement type,
+                        LocalDateTime startDate,
+                        LocalDateTime endDate,
+                        FormatExport format,
+                        OutputStream sortie) throws IOException {
 
-                BigDecimal valorisationTotale = lotsDisponibles.stream()
-                                .map(lot -> lot.getPrixAchatUnitaire()
-                                                .multiply(BigDecimal.valueOf(lot.getQuantiteRestante())))
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8));
+                if (format == FormatExport.CSV) {
+                        writer.write(ENTETE_CSV);
+                }
+                try {
+                        mouvementStockExportDAO.parcourir(produitId, lotId, type, startDate, endDate, ligne -> {
+                                try {
+                                        writer.write(format == FormatExport.CSV
+                                                        ? ligneCsv(ligne)
+                                                        : objectMapper.writeValueAsString(ligne));
+                                        writer.write('\n');
+                                } catch (IOException e) {
+                                        throw new UncheckedIOException(e);
+                                }
+                        });
+                } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                }
+                writer.flush();
+        }
 
-                int nombreProduitsDistincts = (int) lotsDisponibles.stream()
-                                .map(lot -> lot.getProduit().getId())
-                                .distinct()
-                                .count();
+        /** Served from the alert index: no transaction, no connection taken from the pool. */
+        @Override
+        @Transactional(propagation = Propagation.NOT_SUPPORTED)
+        public List<StockAlertDTO> getAlertes() {
+                return stockAlerteService.lister();
+        }
 
-                int quantiteTotale = lotsDisponibles.stream()
-                                .mapToInt(Lot::getQuantiteRestante)
-                                .sum();
+        @Override
+        @Transactional(propagation = Propagation.NOT_SUPPORTED)
+        public SseEmitter abonnerAlertes() {
+                return stockAlerteService.abonner();
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        @Cacheable(cacheNames = CacheConfig.STOCK_VALORISATION, sync = true)
+        public StockValorisationDTO getValorisation() {
+                StockBalanceDAO.Totaux totaux = stockBalanceDAO.calculerTotaux();
 
                 return StockValorisationDTO.builder()
-                                .valorisationTotale(valorisationTotale)
-                                .nombreProduitsDistincts(nombreProduitsDistincts)
-                                .quantiteTotaleArticles(quantiteTotale)
-                                .nombreLotsActifs(lotsDisponibles.size())
+                                .valorisationTotale(totaux.getValorisation())
+                                .nombreProduitsDistincts(totaux.getNombreProduits().intValue())
+                                .quantiteTotaleArticles(totaux.getQuantite().intValue())
+                                .nombreLotsActifs(totaux.getNombreLots().intValue())
                                 .methodeVlorisation("FIFO")
                                 .build();
         }
 
-        private BigDecimal calculerValorisationFIFO(List<Lot> lots) {
-                return lots.stream()
-                                .filter(lot -> lot.getStatut() == LotStatus.DISPONIBLE)
-                                .map(lot -> lot.getPrixAchatUnitaire()
-                                                .multiply(BigDecimal.valueOf(lot.getQuantiteRestante())))
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        @Override
+        @Transactional(readOnly = true)
+        public void exporterValorisations(Collection<LocalDate> dates, FormatExport format, OutputStream sortie)
+                        throws IOException {
+
+                Writer writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8));
+                if (format == FormatExport.CSV) {
+                        writer.write(ENTETE_CSV_VALORISATION);
+                }
+                try {
+                        valorisationFifoEngine.valoriser(dates, ligne -> {
+                                try {
+                                        writer.write(format == FormatExport.CSV
+                                                        ? ligneCsv(ligne)
+                                                        : objectMapper.writeValueAsString(ligne));
+                                        writer.write('\n');
+                                } catch (IOException e) {
+                                        throw new UncheckedIOException(e);
+                                }
+                        });
+                } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                }
+                writer.flush();
+        }
+
+        @Override
+        public int reconstruireBalances() {
+                return stockBalanceService.reconstruire();
+        }
+
+        @Override
+        public List<StockBalanceEcartDTO> reconcilierBalances(boolean corriger) {
+                return stockBalanceService.reconcilier(corriger);
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public List<StockALaDateDTO> getStockALaDate(LocalDateTime date) {
+                return grandLivreService.getStockALaDate(date);
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public StockProduitALaDateDTO getStockProduitALaDate(Long produitId, LocalDateTime date) {
+                return grandLivreService.getStockProduitALaDate(produitId, date);
+        }
+
+        @Override
+        public int creerSnapshot(LocalDateTime date) {
+                return grandLivreService.creerSnapshot(date);
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public List<GrandLivreEcartDTO> verifierGrandLivre() {
+                return grandLivreService.verifier();
+        }
+
+        private static String ligneCsv(MouvementStockExportDTO ligne) {
+                return String.join(",",
+                                String.valueOf(ligne.getId()),
+                                ligne.getTypeMouvement().name(),
+                                ligne.getDateMouvement().toString(),
+                                String.valueOf(ligne.getQuantite()),
+                                String.valueOf(ligne.getPrixUnitaireLot()),
+                                String.valueOf(ligne.getProduitId()),
+                                champCsv(ligne.getProduitReference()),
+                                String.valueOf(ligne.getLotId()),
+                                champCsv(ligne.getNumeroLot()));
+        }
+
+        private static String ligneCsv(ValorisationArreteDTO ligne) {
+                return String.join(",",
+                                ligne.getDateArrete().toString(),
+                                String.valueOf(ligne.getProduitId()),
+                                String.valueOf(ligne.getQuantite()),
+                                ligne.getValorisation().toPlainString());
+        }
+
+        private static String champCsv(String valeur) {
+                if (valeur == null) {
+                        return "";
+                }
+                if (valeur.contains(",") || valeur.contains("\"") || valeur.contains("\n") || valeur.contains("\r")) {
+                        return "\"" + valeur.replace("\"", "\"\"") + "\"";
+                }
+                return valeur;
         }
 }
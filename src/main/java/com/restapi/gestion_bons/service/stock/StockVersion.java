@@ -0,0 +1,98 @@
+package com.restapi.gestion_bons.service.stock;
+
+import com.restapi.gestion_bons.config.ReplicaRoutingDataSource;
+import com.restapi.gestion_bons.dao.StockVersionDAO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Version of the committed stock, kept in the database so that every
+ * instance sees the changes made by the others. Anything derived from the
+ * stock (report results, cached reads, ETags) is still valid as long as the
+ * version it was computed at is the current one.
+ *
+ * The version is advanced in the transaction that changes the stock, right
+ * before its commit, so a rollback never moves it. A product's version is the
+ * global version of its last change, so it only moves when that product (or
+ * every product) changed. It is read on the primary, once per HTTP request:
+ * the ETag and the cached body of a request are checked against the same value.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockVersion {
+
+    private static final String ATTRIBUT = StockVersion.class.getName() + ".";
+
+    private final StockVersionDAO stockVersionDAO;
+
+    public long courante() {
+        return memoriser("*", stockVersionDAO::courante);
+    }
+
+    public long courante(Long produitId) {
+        return memoriser(produitId, () -> stockVersionDAO.courante(produitId));
+    }
+
+    /** Advances the version of every product when the current transaction commits. */
+    public void avancer() {
+        avantCommit(stockVersionDAO::avancerTout);
+    }
+
+    /** Advances the version of these products when the current transaction commits. */
+    public void avancer(Collection<Long> produitIds) {
+        avantCommit(() -> stockVersionDAO.avancer(produitIds));
+    }
+
+    /** Strong entity tag of the resources derived from the whole stock. */
+    public String etag() {
+        return Long.toString(courante());
+    }
+
+    /** Strong entity tag of the resources derived from one product. */
+    public String etag(Long produitId) {
+        return Long.toString(courante(produitId));
+    }
+
+    /**
+     * Reads a resource tagged with the version on the primary, so that it is
+     * at least as recent as the version read before it.
+     */
+    public <T> T lire(Supplier<T> lecture) {
+        return ReplicaRoutingDataSource.surLePrimaire(lecture);
+    }
+
+    private long memoriser(Object cle, Supplier<Long> lecture) {
+        RequestAttributes requete = RequestContextHolder.getRequestAttributes();
+        if (requete == null) {
+            return lecture.get();
+        }
+        String attribut = ATTRIBUT + cle;
+        Long version = (Long) requete.getAttribute(attribut, RequestAttributes.SCOPE_REQUEST);
+        if (version == null) {
+            version = lecture.get();
+            requete.setAttribute(attribut, version, RequestAttributes.SCOPE_REQUEST);
+        }
+        return version;
+    }
+
+    private static void avantCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        // la ligne stock_version reste verrouillée jusqu'au commit : elle est prise le plus tard possible
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package com.restapi.gestion_bons.service.stock;
+
+import com.restapi.gestion_bons.dao.MouvementStockExportDAO;
+import com.restapi.gestion_bons.dto.stock.ValorisationArreteDTO;
+import com.restapi.gestion_bons.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * FIFO valuation of every product at past cut-off dates, e.g. month-ends. The
+ * movement journal is read once, oldest first, through a forward-only cursor
+ * that stops after the last cut-off; nothing but the purchase layers still in
+ * stock is kept in memory.
+ */
+@Component
+@RequiredArgsConstructor
+public class ValorisationFifoEngine {
+
+    private final MouvementStockExportDAO mouvementStockExportDAO;
+
+    @Value("${stock.valorisation.arretes.max:120}")
+    private int arretesMax = 120;
+
+    /** Hands the valuation of each product to the consumer, cut-off by cut-off, in product order. */
+    public void valoriser(Collection<LocalDate> dates, Consumer<ValorisationArreteDTO> consommateur) {
+        if (dates == null || dates.isEmpty()) {
+            throw new IllegalArgumentException("Au moins une date d'arrêté est requise");
+        }
+        if (dates.size() > arretesMax) {
+            throw new IllegalArgumentException("Trop de dates d'arrêté: " + dates.size() + " (max " + arretesMax + ")");
+        }
+        ValorisationFifoPasse passe = new ValorisationFifoPasse(dates, consommateur);
+        long debut = System.nanoTime();
+        mouvementStockExportDAO.parcourirChronologique(passe.getDernierArrete().plusDays(1).atStartOfDay(),
+                passe::mouvement);
+        passe.terminer();
+        AppLogger.info("Valorisation FIFO historique: " + passe.getMouvements() + " mouvement(s) lus pour "
+                + dates.size() + " arrêté(s) en " + (System.nanoTime() - debut) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,155 @@
+package com.restapi.gestion_bons.service.stock;
+
+import com.restapi.gestion_bons.dto.stock.ValorisationArreteDTO;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * One pass of the historical FIFO valuation. Movements are fed oldest first;
+ * each lot still in stock is a purchase layer at its own unit price, kept as
+ * an exact unscaled value and scale. An ENTREE adds to its lot, a SORTIE takes
+ * from the lot it names: the allocation already picked the lots in FIFO
+ * order (skipping expired or reserved ones), so replaying each movement on
+ * its lot gives the same value as the live valuation of the lots. When a
+ * movement passes a cut-off, every product is valued as of the end of that
+ * day before the movement is applied.
+ *
+ * Not thread-safe: one instance per report.
+ */
+public class ValorisationFifoPasse {
+
+    private final LocalDate[] arretes;
+    private final long[] finsArrete;
+    private final Consumer<ValorisationArreteDTO> consommateur;
+    private final Map<Long, Solde> soldes = new HashMap<>();
+    private final Map<Long, Couche> couches = new HashMap<>();
+
+    private int prochainArrete;
+    private long mouvements;
+
+    public ValorisationFifoPasse(Collection<LocalDate> dates, Consumer<ValorisationArreteDTO> consommateur) {
+        this.arretes = new TreeSet<>(dates).toArray(LocalDate[]::new);
+        this.finsArrete = new long[arretes.length];
+        for (int i = 0; i < arretes.length; i++) {
+            finsArrete[i] = Timestamp.valueOf(arretes[i].plusDays(1).atStartOfDay()).getTime();
+        }
+        this.consommateur = consommateur;
+    }
+
+    /**
+     * Movements must come in (date, id) order. The unit price of the lot is
+     * {@code prixUnitaire} &times; 10<sup>-echellePrix</sup>.
+     */
+    public void mouvement(long produitId, long lotId, boolean entree, int quantite, long prixUnitaire,
+            int echellePrix, long dateMillis) {
+        while (prochainArrete < arretes.length && dateMillis >= finsArrete[prochainArrete]) {
+            emettre(arretes[prochainArrete++]);
+        }
+        Couche couche = couches.get(lotId);
+        if (couche == null) {
+            couche = new Couche(soldes.computeIfAbsent(produitId, id -> new Solde()), prixUnitaire, echellePrix);
+            couches.put(lotId, couche);
+        }
+        couche.ajouter(entree ? quantite : -quantite);
+        if (couche.quantite == 0) {
+            couches.remove(lotId);
+        }
+        mouvements++;
+    }
+
+    /** Values the cut-offs that no movement has passed yet. */
+    public void terminer() {
+        while (prochainArrete < arretes.length) {
+            emettre(arretes[prochainArrete++]);
+        }
+    }
+
+    public long getMouvements() {
+        return mouvements;
+    }
+
+    public LocalDate getDernierArrete() {
+        return arretes.length == 0 ? null : arretes[arretes.length - 1];
+    }
+
+    private void emettre(LocalDate arrete) {
+        List<Long> produitIds = new ArrayList<>(soldes.keySet());
+        produitIds.sort(null);
+        for (Long produitId : produitIds) {
+            Solde solde = soldes.get(produitId);
+            if (solde.quantite == 0 && solde.valeur == 0) {
+                continue;
+            }
+            consommateur.accept(ValorisationArreteDTO.builder()
+                    .dateArrete(arrete)
+                    .produitId(produitId)
+                    .quantite((int) solde.quantite)
+                    .valorisation(BigDecimal.valueOf(solde.valeur, solde.echelle))
+                    .build());
+        }
+    }
+
+    /**
+     * Quantity of one lot. A lot taken out before its entry, as in a journal
+     * missing its oldest entries, goes negative and is valued at zero until
+     * the entry settles it, so the product still balances in quantity.
+     */
+    static final class Couche {
+
+        private final Solde solde;
+        private final long prix;
+        private final int echelle;
+        private long quantite;
+
+        Couche(Solde solde, long prix, int echelle) {
+            this.solde = solde;
+            this.prix = prix;
+            this.echelle = echelle;
+        }
+
+        void ajouter(int delta) {
+            long enStockAvant = Math.max(quantite, 0);
+            quantite += delta;
+            solde.ajouter(delta, Math.max(quantite, 0) - enStockAvant, prix, echelle);
+        }
+    }
+
+    /**
+     * Quantity and value of one product. The value is an unscaled amount at
+     * the largest scale of its prices, never less than the cents.
+     */
+    static final class Solde {
+
+        private long quantite;
+        private long valeur;
+        private int echelle = 2;
+
+        void ajouter(long delta, long deltaValorise, long prix, int echellePrix) {
+            quantite += delta;
+            if (echellePrix > echelle) {
+                valeur = Math.multiplyExact(valeur, puissanceDeDix(echellePrix - echelle));
+                echelle = echellePrix;
+            }
+            long montant = Math.multiplyExact(Math.multiplyExact(deltaValorise, prix),
+                    puissanceDeDix(echelle - echellePrix));
+            valeur = Math.addExact(valeur, montant);
+        }
+
+        private static long puissanceDeDix(int exposant) {
+            long puissance = 1;
+            for (int i = 0; i < exposant; i++) {
+                puissance = Math.multiplyExact(puissance, 10);
+            }
+            return puissance;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.restapi.gestion_bons.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records (RFC 4180: comma separator, double-quoted fields, doubled
+ * quotes, line breaks inside quoted fields) one at a time from a reader.
+ */
+public class CsvLecteur {
+
+    private final BufferedReader reader;
+    private long ligne;
+    private long ligneEnregistrement;
+
+    public CsvLecteur(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Next record, or null at the end of the input. Blank lines are skipped.
+     */
+    public List<String> lire() throws IOException {
+        String texte;
+        do {
+            texte = reader.readLine();
+            if (texte == null) {
+                return null;
+            }
+            ligne++;
+        } while (texte.isBlank());
+        ligneEnregistrement = ligne;
+
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        int i = 0;
+        while (true) {
+            if (i == texte.length()) {
+                if (!entreGuillemets) {
+                    break;
+                }
+                // saut de ligne à l'intérieur d'un champ entre guillemets
+                texte = reader.readLine();
+                if (texte == null) {
+                    throw new IllegalArgumentException("Guillemet non fermé à la ligne " + ligneEnregistrement);
+                }
+                ligne++;
+                champ.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = texte.charAt(i++);
+            if (entreGuillemets) {
+                if (c == '"') {
+                    if (i < texte.length() && texte.charAt(i) == '"') {
+                        champ.append('"');
+                        i++;
+                    } else {
+                        entreGuillemets = false;
+                    }
+                } else {
+                    champ.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == ',') {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        champs.add(champ.toString());
+        return champs;
+    }
+
+    /** Line number where the last record read starts */
+    public long getLigne() {
+        return ligneEnregistrement;
+    }
+}
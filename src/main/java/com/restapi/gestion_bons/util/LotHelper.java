@@ -3,24 +3,29 @@ package com.restapi.gestion_bons.util;
 import com.restapi.gestion_bons.entitie.CommandeFournisseur;
 import com.restapi.gestion_bons.entitie.LigneCommande;
 import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
 import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.service.numerotation.NumerotationService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
 @Component
+@RequiredArgsConstructor
 public class LotHelper {
 
+    private final NumerotationService numerotationService;
+
     public List<Lot> createLotsFromLignesCommande(CommandeFournisseur commande) {
         List<Lot> lots = new ArrayList<>();
 
         for (LigneCommande ligne : commande.getLignesCommande()) {
             Lot lot = Lot.builder()
-                    .numeroLot(generateLotNumber(ligne.getProduit(), commande))
+                    .numeroLot(generateLotNumber(ligne.getProduit()))
                     .dateEntree(LocalDateTime.now())
                     .quantiteInitiale(ligne.getQuantiteCommandee())
                     .quantiteRestante(ligne.getQuantiteCommandee())
@@ -36,11 +41,8 @@ public class LotHelper {
         return lots;
     }
 
-    public String generateLotNumber(com.restapi.gestion_bons.entitie.Produit produit, CommandeFournisseur commande) {
-        return String.format("LOT-%s-%s-%d",
-                produit.getReference(),
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")),
-                commande.getId());
+    public String generateLotNumber(Produit produit) {
+        return numerotationService.prochainNumeroLot(produit.getReference());
     }
 }
 
@@ -0,0 +1,53 @@
+package com.restapi.gestion_bons.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Opaque continuation token of the movement journal: the (date_mouvement, id)
+ * of the last row returned, encoded so that clients do not build it themselves.
+ */
+public class MouvementStockCurseur {
+
+    public static final Sort ORDRE = Sort.by(Sort.Direction.DESC, "dateMouvement", "id");
+
+    private static final String DATE = "dateMouvement";
+    private static final String ID = "id";
+
+    private MouvementStockCurseur() {
+    }
+
+    public static String encoder(KeysetScrollPosition position) {
+        Map<String, ?> cles = position.getKeys();
+        String valeur = cles.get(DATE) + "|" + cles.get(ID);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valeur.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** First page when the token is absent, otherwise the rows after the encoded one. */
+    public static KeysetScrollPosition decoder(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String valeur = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            String[] parties = valeur.split("\\|");
+            if (parties.length != 2) {
+                throw new IllegalArgumentException("Curseur invalide");
+            }
+            Map<String, Object> cles = new LinkedHashMap<>();
+            cles.put(DATE, LocalDateTime.parse(parties[0]));
+            cles.put(ID, Long.valueOf(parties[1]));
+            return ScrollPosition.forward(cles);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.restapi.gestion_bons.util;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+
+public class ValorisationHelper {
+
+    /**
+     * Valorisation FIFO d'une liste de lots : somme de prix d'achat × quantité
+     * restante sur les lots encore disponibles.
+     */
+    public static BigDecimal valorisationFIFO(List<Lot> lots) {
+        return lots.stream()
+                .filter(lot -> lot.getStatut() == LotStatus.DISPONIBLE)
+                .map(lot -> lot.getPrixAchatUnitaire()
+                        .multiply(BigDecimal.valueOf(lot.getQuantiteRestante())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,106 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.restapi.gestion_bons.contracts.AtelierContract;
+import com.restapi.gestion_bons.dao.*;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieResponseDTO;
+import com.restapi.gestion_bons.entitie.*;
+import com.restapi.gestion_bons.entitie.enums.BonDeSortieStatus;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.mapper.BonDeSortieMapper;
+import com.restapi.gestion_bons.service.bondesortie.BonDeSortieService;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+import com.restapi.gestion_bons.service.fifo.ProduitLockManager;
+import com.restapi.gestion_bons.service.numerotation.NumerotationService;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+/**
+ * Counts the DAO calls of a voucher validation, for vouchers of growing size:
+ * one lot query, one lot batch, one movement batch and one balance upsert,
+ * whatever the number of lines. Latency is measured by the JMH
+ * {@code FifoAllocationBenchmark} and {@code ValiderBenchmark}.
+ */
+public class BonDeSortieAllersRetoursTest {
+
+    private static final int LOTS_PAR_PRODUIT = 3;
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 200, 2000 })
+    void validationEnNombreConstantDAllersRetours(int nombreLignes) {
+        BonDeSortieDAO bonDeSortieDAO = mock(BonDeSortieDAO.class);
+        LotDAO lotDAO = mock(LotDAO.class);
+        StockBatchDAO stockBatchDAO = mock(StockBatchDAO.class);
+        BonDeSortieMapper bonDeSortieMapper = mock(BonDeSortieMapper.class);
+        ProduitLockManager produitLockManager = mock(ProduitLockManager.class);
+        when(produitLockManager.executer(anyCollection(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+
+        BonDeSortieService service = new BonDeSortieService(bonDeSortieDAO, mock(BonDeSortieLigneDAO.class),
+                mock(AtelierDAO.class), mock(ProduitDAO.class), mock(AtelierContract.class),
+                new FifoAllocationEngine(lotDAO, stockBatchDAO),
+                new StockBalanceService(mock(StockBalanceDAO.class), stockBatchDAO,
+                        mock(StockAlerteService.class)), bonDeSortieMapper,
+                mock(NumerotationService.class), produitLockManager, mock(PlatformTransactionManager.class));
+
+        BonDeSortie bon = BonDeSortie.builder()
+                .id(1L)
+                .numeroBon("BS-000001")
+                .dateSortie(new Date())
+                .motifSortie("Allers-retours")
+                .statut(BonDeSortieStatus.BROUILLON)
+                .build();
+
+        List<Lot> lots = new ArrayList<>();
+        for (long i = 1; i <= nombreLignes; i++) {
+            Produit produit = Produit.builder().id(i).nom("Produit " + i).build();
+            for (int j = 0; j < LOTS_PAR_PRODUIT; j++) {
+                lots.add(Lot.builder()
+                        .id(i * LOTS_PAR_PRODUIT + j)
+                        .dateEntree(LocalDateTime.now().minusDays(LOTS_PAR_PRODUIT - j))
+                        .produit(produit)
+                        .quantiteRestante(10)
+                        .prixAchatUnitaire(new BigDecimal("2.50"))
+                        .statut(LotStatus.DISPONIBLE)
+                        .build());
+            }
+            // 25 unités : deux lots épuisés et un lot entamé par ligne
+            bon.getBonDeSortieLignes().add(BonDeSortieLigne.builder()
+                    .bonDeSortie(bon)
+                    .produit(produit)
+                    .quantiteDemandee(25)
+                    .build());
+        }
+
+        when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bon));
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
+                .thenReturn(lots);
+        when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bon);
+        when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class))).thenReturn(new BonDeSortieResponseDTO());
+
+        service.valider(1L);
+
+        verify(lotDAO, times(1)).findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                eq(LotStatus.DISPONIBLE));
+        verify(stockBatchDAO, times(1)).updateLots(argThat(l -> l.size() == nombreLignes * LOTS_PAR_PRODUIT));
+        verify(stockBatchDAO, times(1)).insertMouvements(argThat(m -> m.size() == nombreLignes * LOTS_PAR_PRODUIT));
+        verify(stockBatchDAO, times(1)).upsertBalances(anyCollection());
+        verifyNoMoreInteractions(lotDAO, stockBatchDAO);
+        assertEquals(BonDeSortieStatus.VALIDE, bon.getStatut());
+    }
+}
@@ -0,0 +1,242 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.restapi.gestion_bons.dao.*;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchResultatDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieBatchValidationDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieResponseDTO;
+import com.restapi.gestion_bons.entitie.*;
+import com.restapi.gestion_bons.entitie.enums.BonDeSortieStatus;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.mapper.BonDeSortieMapper;
+import com.restapi.gestion_bons.service.bondesortie.BonDeSortieBatchService;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+import com.restapi.gestion_bons.service.fifo.ProduitLockManager;
+import com.restapi.gestion_bons.service.numerotation.NumerotationService;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+import jakarta.validation.Validation;
+
+@ExtendWith(MockitoExtension.class)
+public class BonDeSortieBatchTest {
+
+    @Mock
+    private BonDeSortieDAO bonDeSortieDAO;
+
+    @Mock
+    private BonDeSortieLigneDAO bonDeSortieLigneDAO;
+
+    @Mock
+    private BonDeSortieBatchDAO bonDeSortieBatchDAO;
+
+    @Mock
+    private AtelierDAO atelierDAO;
+
+    @Mock
+    private ProduitDAO produitDAO;
+
+    @Mock
+    private LotDAO lotDAO;
+
+    @Mock
+    private StockBatchDAO stockBatchDAO;
+
+    @Mock
+    private StockBalanceDAO stockBalanceDAO;
+
+    @Mock
+    private BonDeSortieMapper bonDeSortieMapper;
+
+    @Mock
+    private NumerotationService numerotationService;
+
+    @Mock
+    private ProduitLockManager produitLockManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<BonDeSortie>> bonsCaptor;
+
+    private BonDeSortieBatchService service;
+
+    private Atelier atelier;
+    private Produit produit;
+    private Lot lot;
+
+    @BeforeEach
+    void setUp() {
+        service = new BonDeSortieBatchService(bonDeSortieDAO, bonDeSortieLigneDAO, bonDeSortieBatchDAO, atelierDAO,
+                produitDAO, new FifoAllocationEngine(lotDAO, stockBatchDAO),
+                new StockBalanceService(stockBalanceDAO, stockBatchDAO, mock(StockAlerteService.class)),
+                bonDeSortieMapper, numerotationService,
+                Validation.buildDefaultValidatorFactory().getValidator(), produitLockManager, transactionManager);
+        lenient().when(produitLockManager.executer(anyCollection(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+
+        atelier = Atelier.builder().id(1L).nom("Atelier Test").build();
+        produit = Produit.builder().id(1L).nom("Produit Test").reference("REF001").build();
+        lot = Lot.builder()
+                .id(1L)
+                .numeroLot("LOT-2024-001")
+                .dateEntree(LocalDateTime.now().minusDays(5))
+                .produit(produit)
+                .quantiteInitiale(100)
+                .quantiteRestante(100)
+                .prixAchatUnitaire(new BigDecimal("10.00"))
+                .statut(LotStatus.DISPONIBLE)
+                .version(0L)
+                .build();
+
+        lenient().when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
+                .thenAnswer(inv -> BonDeSortieResponseDTO.builder()
+                        .numeroBon(inv.<BonDeSortie>getArgument(0).getNumeroBon())
+                        .statut(inv.<BonDeSortie>getArgument(0).getStatut())
+                        .build());
+    }
+
+    @Test
+    void creationEnMasse_EchecsPartielsEtAllocationCommune() {
+        AtomicInteger numero = new AtomicInteger();
+        when(numerotationService.prochainNumeroBon()).thenAnswer(inv -> "BS-" + numero.incrementAndGet());
+        when(atelierDAO.findAllById(anyIterable())).thenReturn(List.of(atelier));
+        when(produitDAO.findAllById(anyIterable())).thenReturn(List.of(produit));
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
+                .thenReturn(List.of(lot));
+
+        BonDeSortieBatchCreateDTO dto = BonDeSortieBatchCreateDTO.builder()
+                .bons(List.of(
+                        demande(1L, 1L, 60),
+                        demande(1L, 99L, 5),
+                        demande(1L, 1L, 60),
+                        demande(1L, 1L, 40),
+                        BonDeSortieCreateDTO.builder().atelierId(1L).build()))
+                .valider(true)
+                .build();
+
+        BonDeSortieBatchResultatDTO resultat = service.creer(dto);
+
+        assertEquals(5, resultat.getTotal());
+        assertEquals(2, resultat.getSucces());
+        assertEquals(3, resultat.getEchecs());
+        List<BonDeSortieBatchResultatDTO.Resultat> items = resultat.getResultats();
+        assertTrue(items.get(0).isSucces());
+        assertEquals(BonDeSortieStatus.VALIDE, items.get(0).getBon().getStatut());
+        assertEquals("Produit non trouvé avec l'id: 99", items.get(1).getErreur());
+        assertTrue(items.get(2).getErreur().startsWith("Stock insuffisant"),
+                "Le deuxième bon de 60 ne doit pas être servi après le premier");
+        assertTrue(items.get(3).isSucces(), "Les 40 unités restantes servent le bon suivant");
+        assertFalse(items.get(4).isSucces());
+        assertNull(items.get(4).getBon());
+
+        // Une requête par type de référence et pour les lots, une écriture groupée par table
+        verify(atelierDAO, times(1)).findAllById(anyIterable());
+        verify(produitDAO, times(1)).findAllById(anyIterable());
+        verify(lotDAO, times(1)).findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                eq(LotStatus.DISPONIBLE));
+        verify(bonDeSortieBatchDAO, times(1)).insertBons(bonsCaptor.capture());
+        assertEquals(2, bonsCaptor.getValue().size());
+        verify(stockBatchDAO, times(1)).updateLots(anyCollection());
+        verify(stockBatchDAO, times(1)).insertMouvements(argThat(m -> m.size() == 2));
+        assertEquals(0, lot.getQuantiteRestante());
+        assertEquals(LotStatus.EPUISE, lot.getStatut());
+        verify(produitLockManager).executer(eq(Set.of(1L, 99L)), any());
+    }
+
+    @Test
+    void creationEnMasse_SansValidationNeChargePasLesLots() {
+        when(numerotationService.prochainNumeroBon()).thenReturn("BS-1");
+        when(atelierDAO.findAllById(anyIterable())).thenReturn(List.of(atelier));
+        when(produitDAO.findAllById(anyIterable())).thenReturn(List.of(produit));
+
+        BonDeSortieBatchResultatDTO resultat = service.creer(BonDeSortieBatchCreateDTO.builder()
+                .bons(List.of(demande(1L, 1L, 500)))
+                .build());
+
+        assertEquals(1, resultat.getSucces());
+        assertEquals(BonDeSortieStatus.BROUILLON, resultat.getResultats().get(0).getBon().getStatut());
+        verifyNoInteractions(lotDAO, stockBatchDAO, produitLockManager);
+    }
+
+    @Test
+    void validationEnMasse_IgnoreLesBonsNonBrouillonsEtInconnus() {
+        BonDeSortie brouillon = bon(1L, BonDeSortieStatus.BROUILLON, 30);
+        BonDeSortie valide = bon(2L, BonDeSortieStatus.VALIDE, 30);
+        when(bonDeSortieLigneDAO.findProduitIdsByBonDeSortieIdIn(anyCollection())).thenReturn(List.of(1L));
+        when(bonDeSortieDAO.findByIdIn(anyCollection())).thenReturn(List.of(brouillon, valide));
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
+                .thenReturn(List.of(lot));
+
+        BonDeSortieBatchResultatDTO resultat = service.valider(BonDeSortieBatchValidationDTO.builder()
+                .ids(List.of(1L, 2L, 3L, 1L))
+                .build());
+
+        assertEquals(1, resultat.getSucces());
+        assertTrue(resultat.getResultats().get(0).isSucces());
+        assertEquals("Seuls les bons de sortie brouillons peuvent être validés",
+                resultat.getResultats().get(1).getErreur());
+        assertEquals("Bon de sortie non trouvé avec l'id: 3", resultat.getResultats().get(2).getErreur());
+        assertFalse(resultat.getResultats().get(3).isSucces(), "Un bon demandé deux fois n'est validé qu'une fois");
+
+        assertEquals(BonDeSortieStatus.VALIDE, brouillon.getStatut());
+        assertEquals(70, lot.getQuantiteRestante());
+        verify(bonDeSortieDAO, times(1)).findByIdIn(anyCollection());
+        verify(produitLockManager).executer(eq(List.of(1L)), any());
+        verify(stockBatchDAO, times(1)).insertMouvements(argThat(m -> m.size() == 1));
+    }
+
+    private BonDeSortieCreateDTO demande(Long atelierId, Long produitId, int quantite) {
+        List<BonDeSortieLigneDTO> lignes = new ArrayList<>();
+        lignes.add(BonDeSortieLigneDTO.builder().produitId(produitId).quantiteDemandee(quantite).build());
+        return BonDeSortieCreateDTO.builder()
+                .dateSortie(new Date())
+                .motifSortie("Changement d'équipe")
+                .atelierId(atelierId)
+                .lignes(lignes)
+                .build();
+    }
+
+    private BonDeSortie bon(Long id, BonDeSortieStatus statut, int quantite) {
+        BonDeSortie bon = BonDeSortie.builder()
+                .id(id)
+                .numeroBon("BS-00000" + id)
+                .dateSortie(new Date())
+                .motifSortie("Test")
+                .statut(statut)
+                .atelier(atelier)
+                .build();
+        bon.getBonDeSortieLignes().add(BonDeSortieLigne.builder()
+                .id(id)
+                .bonDeSortie(bon)
+                .produit(produit)
+                .quantiteDemandee(quantite)
+                .build());
+        return bon;
+    }
+}
@@ -8,18 +8,22 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import com.restapi.gestion_bons.contracts.AtelierContract;
 import com.restapi.gestion_bons.dao.*;
 import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieResponseDTO;
 import com.restapi.gestion_bons.entitie.*;
@@ -28,6 +32,11 @@ import com.restapi.gestion_bons.entitie.enums.LotStatus;
 import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
 import com.restapi.gestion_bons.mapper.BonDeSortieMapper;
 import com.restapi.gestion_bons.service.bondesortie.BonDeSortieService;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+import com.restapi.gestion_bons.service.fifo.ProduitLockManager;
+import com.restapi.gestion_bons.service.numerotation.NumerotationService;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
 
 @ExtendWith(MockitoExtension.class)
 public class BonDeSortieValidationTest {
@@ -48,12 +57,23 @@ public class BonDeSortieValidationTest {
     private LotDAO lotDAO;
 
     @Mock
-    private MouvementStockDAO mouvementStockDAO;
+    private StockBatchDAO stockBatchDAO;
+
+    @Mock
+    private StockBalanceDAO stockBalanceDAO;
 
     @Mock
     private BonDeSortieMapper bonDeSortieMapper;
 
-    @InjectMocks
+    @Mock
+    private NumerotationService numerotationService;
+
+    @Mock
+    private ProduitLockManager produitLockManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private BonDeSortieService bonDeSortieService;
 
     private BonDeSortie bonBrouillon;
@@ -64,6 +84,14 @@ public class BonDeSortieValidationTest {
 
     @BeforeEach
     void setUp() {
+        bonDeSortieService = new BonDeSortieService(bonDeSortieDAO, bonDeSortieLigneDAO, atelierDAO, produitDAO,
+                mock(AtelierContract.class),
+                new FifoAllocationEngine(lotDAO, stockBatchDAO),
+                new StockBalanceService(stockBalanceDAO, stockBatchDAO, mock(StockAlerteService.class)),
+                bonDeSortieMapper, numerotationService, produitLockManager, transactionManager);
+        lenient().when(produitLockManager.executer(anyCollection(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+
         atelier = Atelier.builder()
                 .id(1L)
                 .nom("Atelier Test")
@@ -108,7 +136,7 @@ public class BonDeSortieValidationTest {
     @Test
     void testValidationBonDeSortie_TransitionBrouillonVersValide() {
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList(lot));
         when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
         when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
@@ -125,10 +153,32 @@ public class BonDeSortieValidationTest {
                 "Le statut doit passer de BROUILLON à VALIDE");
     }
 
+    @Test
+    void testValidation_VerrouilleLesProduitsAvantDOuvrirLaTransaction() {
+        when(bonDeSortieLigneDAO.findProduitIdsByBonDeSortieIdIn(List.of(1L))).thenReturn(List.of(1L));
+        when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
+                .thenReturn(Arrays.asList(lot));
+        when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
+        when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
+                .thenReturn(new BonDeSortieResponseDTO());
+
+        bonDeSortieService.valider(1L);
+
+        InOrder ordre = inOrder(bonDeSortieLigneDAO, produitLockManager, transactionManager, bonDeSortieDAO, lotDAO);
+        ordre.verify(bonDeSortieLigneDAO).findProduitIdsByBonDeSortieIdIn(List.of(1L));
+        ordre.verify(transactionManager).commit(any());
+        ordre.verify(produitLockManager).executer(eq(List.of(1L)), any());
+        ordre.verify(transactionManager).getTransaction(any());
+        ordre.verify(bonDeSortieDAO).findById(1L);
+        ordre.verify(lotDAO).findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                eq(LotStatus.DISPONIBLE));
+    }
+
     @Test
     void testValidation_CreeMouvementStockAutomatiquement() {
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList(lot));
         when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
         when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
@@ -136,10 +186,10 @@ public class BonDeSortieValidationTest {
 
         bonDeSortieService.valider(1L);
 
-        ArgumentCaptor<MouvementStock> mouvementCaptor = ArgumentCaptor.forClass(MouvementStock.class);
-        verify(mouvementStockDAO, times(1)).save(mouvementCaptor.capture());
+        List<MouvementStock> mouvements = mouvementsEcrits();
+        assertEquals(1, mouvements.size());
 
-        MouvementStock mouvement = mouvementCaptor.getValue();
+        MouvementStock mouvement = mouvements.get(0);
         assertNotNull(mouvement, "Un mouvement de stock doit être créé");
         assertEquals(TypeMouvement.SORTIE, mouvement.getTypeMouvement());
         assertEquals(50, mouvement.getQuantite());
@@ -150,7 +200,7 @@ public class BonDeSortieValidationTest {
     @Test
     void testValidation_MiseAJourQuantitesLot() {
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList(lot));
         when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
         when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
@@ -158,10 +208,10 @@ public class BonDeSortieValidationTest {
 
         bonDeSortieService.valider(1L);
 
-        ArgumentCaptor<Lot> lotCaptor = ArgumentCaptor.forClass(Lot.class);
-        verify(lotDAO, times(1)).save(lotCaptor.capture());
+        List<Lot> lotsMisAJour = lotsEcrits();
+        assertEquals(1, lotsMisAJour.size());
 
-        Lot lotMisAJour = lotCaptor.getValue();
+        Lot lotMisAJour = lotsMisAJour.get(0);
         assertEquals(50, lotMisAJour.getQuantiteRestante(),
                 "La quantité restante doit être réduite de 50 (100 - 50)");
         assertEquals(LotStatus.DISPONIBLE, lotMisAJour.getStatut(),
@@ -172,7 +222,7 @@ public class BonDeSortieValidationTest {
     void testValidation_LotEpuiseQuandQuantiteZero() {
         ligne.setQuantiteDemandee(100); // Épuiser complètement le lot
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList(lot));
         when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
         when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
@@ -180,20 +230,37 @@ public class BonDeSortieValidationTest {
 
         bonDeSortieService.valider(1L);
 
-        ArgumentCaptor<Lot> lotCaptor = ArgumentCaptor.forClass(Lot.class);
-        verify(lotDAO).save(lotCaptor.capture());
-
-        Lot lotMisAJour = lotCaptor.getValue();
+        Lot lotMisAJour = lotsEcrits().get(0);
         assertEquals(0, lotMisAJour.getQuantiteRestante());
         assertEquals(LotStatus.EPUISE, lotMisAJour.getStatut(),
                 "Le lot doit passer à EPUISE quand la quantité atteint zéro");
     }
 
+    @Test
+    void testValidation_MetAJourLaBalanceDuProduit() {
+        ligne.setQuantiteDemandee(100);
+        when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
+                .thenReturn(Arrays.asList(lot));
+        when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
+        when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
+                .thenReturn(new BonDeSortieResponseDTO());
+
+        bonDeSortieService.valider(1L);
+
+        List<StockBalance> deltas = balancesEcrites();
+        assertEquals(1, deltas.size());
+        assertEquals(1L, deltas.get(0).getProduitId());
+        assertEquals(-100, deltas.get(0).getQuantiteDisponible());
+        assertEquals(0, new BigDecimal("-1000.00").compareTo(deltas.get(0).getValorisation()));
+        assertEquals(-1, deltas.get(0).getNombreLotsActifs(), "Le lot épuisé ne doit plus être compté");
+    }
+
     @Test
     void testValidation_EnregistreDateMouvement() {
         LocalDateTime avant = LocalDateTime.now().minusSeconds(1);
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList(lot));
         when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
         when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
@@ -202,10 +269,7 @@ public class BonDeSortieValidationTest {
         bonDeSortieService.valider(1L);
         LocalDateTime apres = LocalDateTime.now().plusSeconds(1);
 
-        ArgumentCaptor<MouvementStock> mouvementCaptor = ArgumentCaptor.forClass(MouvementStock.class);
-        verify(mouvementStockDAO).save(mouvementCaptor.capture());
-
-        MouvementStock mouvement = mouvementCaptor.getValue();
+        MouvementStock mouvement = mouvementsEcrits().get(0);
         assertNotNull(mouvement.getDateMouvement(), "La date du mouvement doit être enregistrée");
         assertTrue(mouvement.getDateMouvement().isAfter(avant) && mouvement.getDateMouvement().isBefore(apres),
                 "La date du mouvement doit être proche de l'heure actuelle");
@@ -214,7 +278,7 @@ public class BonDeSortieValidationTest {
     @Test
     void testValidation_EnregistrePrixUnitaireDuLot() {
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList(lot));
         when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
         when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
@@ -222,10 +286,7 @@ public class BonDeSortieValidationTest {
 
         bonDeSortieService.valider(1L);
 
-        ArgumentCaptor<MouvementStock> mouvementCaptor = ArgumentCaptor.forClass(MouvementStock.class);
-        verify(mouvementStockDAO).save(mouvementCaptor.capture());
-
-        MouvementStock mouvement = mouvementCaptor.getValue();
+        MouvementStock mouvement = mouvementsEcrits().get(0);
         assertEquals(10.00, mouvement.getPrixUnitaireLot(),
                 "Le prix unitaire du lot doit être enregistré dans le mouvement");
     }
@@ -239,8 +300,7 @@ public class BonDeSortieValidationTest {
                 () -> bonDeSortieService.valider(1L));
 
         assertEquals("Seuls les bons de sortie brouillons peuvent être validés", exception.getMessage());
-        verify(mouvementStockDAO, never()).save(any(MouvementStock.class));
-        verify(lotDAO, never()).save(any(Lot.class));
+        verifyNoInteractions(stockBatchDAO);
     }
 
     @Test
@@ -252,7 +312,7 @@ public class BonDeSortieValidationTest {
                 () -> bonDeSortieService.valider(1L));
 
         assertEquals("Seuls les bons de sortie brouillons peuvent être validés", exception.getMessage());
-        verify(mouvementStockDAO, never()).save(any(MouvementStock.class));
+        verifyNoInteractions(stockBatchDAO);
     }
 
     @Test
@@ -283,18 +343,18 @@ public class BonDeSortieValidationTest {
         bonBrouillon.getBonDeSortieLignes().add(ligne2);
 
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
-                .thenReturn(Arrays.asList(lot));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit2.getId(), LotStatus.DISPONIBLE))
-                .thenReturn(Arrays.asList(lot2));
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
+                .thenReturn(Arrays.asList(lot, lot2));
         when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
         when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
                 .thenReturn(new BonDeSortieResponseDTO());
 
         bonDeSortieService.valider(1L);
 
-        verify(mouvementStockDAO, times(2)).save(any(MouvementStock.class));
-        verify(lotDAO, times(2)).save(any(Lot.class));
+        assertEquals(2, mouvementsEcrits().size());
+        assertEquals(2, lotsEcrits().size());
+        verify(lotDAO, times(1)).findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                eq(LotStatus.DISPONIBLE));
     }
 
     @Test
@@ -312,7 +372,7 @@ public class BonDeSortieValidationTest {
         ligne.setQuantiteDemandee(150); // Nécessite 2 lots
 
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList(lot, lot2)); // FIFO: lot1 puis lot2
         when(bonDeSortieDAO.save(any(BonDeSortie.class))).thenReturn(bonBrouillon);
         when(bonDeSortieMapper.toResponseDto(any(BonDeSortie.class)))
@@ -320,14 +380,11 @@ public class BonDeSortieValidationTest {
 
         bonDeSortieService.valider(1L);
 
-        verify(mouvementStockDAO, times(2)).save(any(MouvementStock.class));
-        verify(lotDAO, times(2)).save(any(Lot.class));
+        assertEquals(2, mouvementsEcrits().size());
 
         // Vérifier que le premier lot est épuisé
-        ArgumentCaptor<Lot> lotCaptor = ArgumentCaptor.forClass(Lot.class);
-        verify(lotDAO, times(2)).save(lotCaptor.capture());
-
-        List<Lot> lotsSauvegardes = lotCaptor.getAllValues();
+        List<Lot> lotsSauvegardes = lotsEcrits();
+        assertEquals(2, lotsSauvegardes.size());
         assertEquals(0, lotsSauvegardes.get(0).getQuantiteRestante());
         assertEquals(LotStatus.EPUISE, lotsSauvegardes.get(0).getStatut());
         assertEquals(30, lotsSauvegardes.get(1).getQuantiteRestante()); // 80 - 50
@@ -337,7 +394,7 @@ public class BonDeSortieValidationTest {
     void testValidation_EchecSiStockInsuffisant() {
         ligne.setQuantiteDemandee(150); // Plus que disponible
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList(lot)); // Seulement 100 disponibles
 
         IllegalStateException exception = assertThrows(IllegalStateException.class,
@@ -352,13 +409,34 @@ public class BonDeSortieValidationTest {
     @Test
     void testValidation_EchecSiAucunLotDisponible() {
         when(bonDeSortieDAO.findById(1L)).thenReturn(Optional.of(bonBrouillon));
-        when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produit.getId(), LotStatus.DISPONIBLE))
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
                 .thenReturn(Arrays.asList()); // Aucun lot
 
         IllegalStateException exception = assertThrows(IllegalStateException.class,
                 () -> bonDeSortieService.valider(1L));
 
         assertEquals("Aucun lot disponible pour le produit: Produit Test", exception.getMessage());
-        verify(mouvementStockDAO, never()).save(any(MouvementStock.class));
+        verifyNoInteractions(stockBatchDAO);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MouvementStock> mouvementsEcrits() {
+        ArgumentCaptor<Collection<MouvementStock>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(stockBatchDAO).insertMouvements(captor.capture());
+        return new ArrayList<>(captor.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<StockBalance> balancesEcrites() {
+        ArgumentCaptor<Collection<StockBalance>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(stockBatchDAO).upsertBalances(captor.capture());
+        return new ArrayList<>(captor.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Lot> lotsEcrits() {
+        ArgumentCaptor<Collection<Lot>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(stockBatchDAO).updateLots(captor.capture());
+        return new ArrayList<>(captor.getValue());
     }
 }
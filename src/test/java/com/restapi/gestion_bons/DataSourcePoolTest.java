@@ -0,0 +1,94 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.restapi.gestion_bons.config.DataSourceConfig;
+import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * With the pool profile, read-only transactions take their connection from
+ * the lecture pool and all others from the ecriture pool.
+ */
+@ActiveProfiles("pool")
+@TestPropertySource(properties = {
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "stock.datasource.lecture.maximum-pool-size=2"
+})
+public class DataSourcePoolTest extends AbstractMariaDBTest {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("ecritureDataSource")
+    private HikariDataSource ecriture;
+
+    @Autowired
+    @Qualifier("lectureDataSource")
+    private HikariDataSource lecture;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private StockContract stockService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void transactionLectureSeuleSurLePoolLecture() {
+        TransactionTemplate lectureSeule = new TransactionTemplate(transactionManager);
+        lectureSeule.setReadOnly(true);
+
+        lectureSeule.executeWithoutResult(status -> {
+            lotDAO.count();
+            assertEquals(1, lecture.getHikariPoolMXBean().getActiveConnections());
+            assertEquals(0, actives(ecriture));
+        });
+    }
+
+    @Test
+    void transactionEcritureSurLePoolEcriture() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            lotDAO.count();
+            assertEquals(1, ecriture.getHikariPoolMXBean().getActiveConnections());
+            assertEquals(0, actives(lecture));
+        });
+    }
+
+    @Test
+    void lecturesDuStockMesureesSurLePoolLecture() {
+        double avant = acquisitions(DataSourceConfig.POOL_LECTURE);
+
+        stockService.getValorisation();
+
+        assertEquals(avant + 1, acquisitions(DataSourceConfig.POOL_LECTURE));
+        assertNotNull(meterRegistry.find("hikaricp.connections.active")
+                .tag("pool", DataSourceConfig.POOL_ECRITURE).gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.timeout")
+                .tag("pool", DataSourceConfig.POOL_LECTURE).counter());
+    }
+
+    private int actives(HikariDataSource pool) {
+        return pool.getHikariPoolMXBean() == null ? 0 : pool.getHikariPoolMXBean().getActiveConnections();
+    }
+
+    private double acquisitions(String pool) {
+        Timer timer = meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,186 @@
+package com.restapi.gestion_bons;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.restapi.gestion_bons.contracts.BonDeSortieContract;
+import com.restapi.gestion_bons.dao.AtelierDAO;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieResponseDTO;
+import com.restapi.gestion_bons.entitie.Atelier;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+/**
+ * Statement budgets of the read endpoints. The data has several products,
+ * lots, lines and movements per parent, so an N+1 on any association goes
+ * over budget. The endpoints carrying an ETag read the stock version first.
+ */
+@AutoConfigureMockMvc
+public class EndpointStatementBudgetTest extends AbstractMariaDBTest {
+
+    private static final int PRODUITS = 10;
+    private static final int LOTS_PAR_PRODUIT = 3;
+    private static final int BONS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private AtelierDAO atelierDAO;
+
+    @Autowired
+    private StockBatchDAO stockBatchDAO;
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+
+    @Autowired
+    private BonDeSortieContract bonDeSortieService;
+
+    private Produit produit;
+    private Atelier atelier;
+    private BonDeSortieResponseDTO bon;
+
+    @BeforeEach
+    void setUp() {
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        List<Produit> produits = new ArrayList<>();
+        List<Lot> lots = new ArrayList<>();
+        for (int i = 0; i < PRODUITS; i++) {
+            Produit p = produitDAO.save(Produit.builder()
+                    .reference("BUDGET-" + suffixe + "-" + i)
+                    .nom("Produit budget " + suffixe + " " + i)
+                    .reorderPoint(100)
+                    .build());
+            produits.add(p);
+            for (int j = 0; j < LOTS_PAR_PRODUIT; j++) {
+                lots.add(Lot.builder()
+                        .numeroLot("LOT-BUDGET-" + suffixe + "-" + i + "-" + j)
+                        .dateEntree(LocalDateTime.now().minusDays(LOTS_PAR_PRODUIT - j))
+                        .quantiteInitiale(10)
+                        .quantiteRestante(10)
+                        .prixAchatUnitaire(BigDecimal.TEN)
+                        .produit(p)
+                        .statut(LotStatus.DISPONIBLE)
+                        .build());
+            }
+        }
+        lots = lotDAO.saveAll(lots);
+        stockBalanceService.recalculer(produits.stream().map(Produit::getId).toList());
+        produit = produits.get(0);
+
+        List<MouvementStock> mouvements = new ArrayList<>();
+        for (Lot lot : lots.subList(0, LOTS_PAR_PRODUIT)) {
+            mouvements.add(MouvementStock.builder()
+                    .typeMouvement(TypeMouvement.ENTREE)
+                    .dateMouvement(lot.getDateEntree())
+                    .quantite(lot.getQuantiteInitiale())
+                    .prixUnitaireLot(lot.getPrixAchatUnitaire().doubleValue())
+                    .produit(produit)
+                    .lot(lot)
+                    .build());
+        }
+        stockBatchDAO.insertMouvements(mouvements);
+
+        atelier = atelierDAO.save(Atelier.builder().nom("Atelier budget " + suffixe).build());
+        for (int i = 0; i < BONS; i++) {
+            bon = bonDeSortieService.save(BonDeSortieCreateDTO.builder()
+                    .dateSortie(new Date())
+                    .motifSortie("Budget " + suffixe)
+                    .atelierId(atelier.getId())
+                    .lignes(produits.subList(i, i + 3).stream()
+                            .map(p -> BonDeSortieLigneDTO.builder().produitId(p.getId()).quantiteDemandee(1).build())
+                            .toList())
+                    .build());
+        }
+    }
+
+    @Test
+    @StatementBudget(2)
+    void listeProduits() throws Exception {
+        mockMvc.perform(get("/v1/produits")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(3)
+    void pageProduits() throws Exception {
+        mockMvc.perform(get("/v1/produits/paginated").param("size", "5")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(3)
+    void stockGlobal() throws Exception {
+        mockMvc.perform(get("/v1/stock").param("size", "5")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(2)
+    void stockProduit() throws Exception {
+        mockMvc.perform(get("/v1/stock/produit/{id}", produit.getId())).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(1)
+    void alertes() throws Exception {
+        mockMvc.perform(get("/v1/stock/alertes")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(2)
+    void valorisation() throws Exception {
+        mockMvc.perform(get("/v1/stock/valorisation")).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(2)
+    void mouvementsDuProduit() throws Exception {
+        mockMvc.perform(get("/v1/stock/mouvements").param("produitId", produit.getId().toString()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(1)
+    void bonParId() throws Exception {
+        mockMvc.perform(get("/v1/bons-sortie/{id}", bon.getId())).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(1)
+    void bonParNumero() throws Exception {
+        mockMvc.perform(get("/v1/bons-sortie/numero/{numero}", bon.getNumeroBon())).andExpect(status().isOk());
+    }
+
+    @Test
+    @StatementBudget(2)
+    void bonsDeLAtelier() throws Exception {
+        mockMvc.perform(get("/v1/bons-sortie/atelier/{id}", atelier.getId())).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,176 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.restapi.gestion_bons.contracts.BonDeSortieContract;
+import com.restapi.gestion_bons.dao.AtelierDAO;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
+import com.restapi.gestion_bons.entitie.Atelier;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+import com.restapi.gestion_bons.service.fifo.FifoConcurrencyMode;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+import com.restapi.gestion_bons.util.AppLogger;
+
+/**
+ * Validates hundreds of vouchers in parallel against a single product and
+ * checks that no unit is lost or sold twice, for each concurrency mode.
+ */
+@TestPropertySource(properties = { "stock.fifo.max-attempts=50", "stock.fifo.retry-delay-ms=5" })
+public class FifoConcurrencyStressTest extends AbstractMariaDBTest {
+
+    private static final int NOMBRE_LOTS = 20;
+    private static final int QUANTITE_PAR_LOT = 50;
+    private static final int NOMBRE_BONS = 300;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private BonDeSortieContract bonDeSortieService;
+
+    @Autowired
+    private FifoAllocationEngine fifoAllocationEngine;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private AtelierDAO atelierDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @EnumSource(FifoConcurrencyMode.class)
+    void validationsConcurrentesConserventLeStock(FifoConcurrencyMode mode) throws InterruptedException {
+        ReflectionTestUtils.setField(fifoAllocationEngine, "mode", mode);
+
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        Produit produit = produitDAO.save(Produit.builder()
+                .reference("STRESS-" + suffixe)
+                .nom("Produit stress " + suffixe)
+                .reorderPoint(0)
+                .build());
+        Atelier atelier = atelierDAO.save(Atelier.builder().nom("Atelier stress " + suffixe).build());
+
+        List<Lot> lots = new ArrayList<>();
+        for (int i = 0; i < NOMBRE_LOTS; i++) {
+            lots.add(Lot.builder()
+                    .numeroLot("LOT-STRESS-" + suffixe + "-" + i)
+                    .dateEntree(LocalDateTime.now().minusDays(NOMBRE_LOTS - i))
+                    .quantiteInitiale(QUANTITE_PAR_LOT)
+                    .quantiteRestante(QUANTITE_PAR_LOT)
+                    .prixAchatUnitaire(BigDecimal.valueOf(10 + i))
+                    .produit(produit)
+                    .statut(LotStatus.DISPONIBLE)
+                    .build());
+        }
+        lotDAO.saveAll(lots);
+        stockBalanceService.recalculer(List.of(produit.getId()));
+        int stockInitial = NOMBRE_LOTS * QUANTITE_PAR_LOT;
+
+        // Demande totale (~1200) supérieure au stock (1000) : une partie des bons doit échouer
+        List<Long> bonIds = new ArrayList<>();
+        for (int i = 0; i < NOMBRE_BONS; i++) {
+            bonIds.add(bonDeSortieService.save(BonDeSortieCreateDTO.builder()
+                    .dateSortie(new Date())
+                    .motifSortie("Stress " + mode)
+                    .atelierId(atelier.getId())
+                    .lignes(List.of(BonDeSortieLigneDTO.builder()
+                            .produitId(produit.getId())
+                            .quantiteDemandee(1 + i % 7)
+                            .build()))
+                    .build()).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        AtomicInteger valides = new AtomicInteger();
+        Queue<Throwable> echecsInattendus = new ConcurrentLinkedQueue<>();
+        AtomicInteger conflitsEpuises = new AtomicInteger();
+
+        long debut = System.nanoTime();
+        for (Long id : bonIds) {
+            executor.submit(() -> {
+                try {
+                    depart.await();
+                    bonDeSortieService.valider(id);
+                    valides.incrementAndGet();
+                } catch (ConcurrencyFailureException e) {
+                    conflitsEpuises.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    if (!e.getMessage().startsWith("Stock insuffisant")
+                            && !e.getMessage().startsWith("Aucun lot disponible")) {
+                        echecsInattendus.add(e);
+                    }
+                } catch (Throwable e) {
+                    echecsInattendus.add(e);
+                }
+            });
+        }
+        depart.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "Les validations doivent se terminer");
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+
+        AppLogger.info(String.format("%s: %d bons, %d validés, %d conflits épuisés en %d ms",
+                mode, NOMBRE_BONS, valides.get(), conflitsEpuises.get(), dureeMs));
+
+        assertTrue(echecsInattendus.isEmpty(), () -> "Échecs inattendus: " + echecsInattendus);
+
+        int restant = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantite_restante), 0) FROM lot WHERE produit_id = ?", Integer.class,
+                produit.getId());
+        int sorties = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantite), 0) FROM mouvement_stock WHERE produit_id = ? AND type_mouvement = 'SORTIE'",
+                Integer.class, produit.getId());
+        int demandeValidee = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(l.quantite_demandee), 0) FROM bon_de_sortie_ligne l "
+                        + "JOIN bon_de_sortie b ON b.id = l.bon_de_sortie_id "
+                        + "WHERE b.statut = 'VALIDE' AND l.produit_id = ?",
+                Integer.class, produit.getId());
+        int lotsNegatifs = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM lot WHERE produit_id = ? AND quantite_restante < 0", Integer.class,
+                produit.getId());
+
+        assertEquals(stockInitial, restant + sorties, "Le stock doit être conservé");
+        assertEquals(demandeValidee, sorties, "Chaque unité validée doit correspondre à un mouvement de sortie");
+        assertEquals(0, lotsNegatifs, "Aucun lot ne doit passer en négatif");
+        assertTrue(valides.get() > 0);
+        assertTrue(stockBalanceService.reconcilier(false).stream()
+                .noneMatch(e -> e.getProduitId().equals(produit.getId())),
+                "La balance du produit doit correspondre à ses lots");
+    }
+}
@@ -1,24 +1,25 @@
 package com.restapi.gestion_bons;
 
 import com.restapi.gestion_bons.dao.LotDAO;
-import com.restapi.gestion_bons.dao.MouvementStockDAO;
-import com.restapi.gestion_bons.entitie.BonDeSortie;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
 import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
 import com.restapi.gestion_bons.entitie.Lot;
 import com.restapi.gestion_bons.entitie.MouvementStock;
 import com.restapi.gestion_bons.entitie.Produit;
 import com.restapi.gestion_bons.entitie.enums.LotStatus;
-import com.restapi.gestion_bons.service.bondesortie.BonDeSortieService;
+import com.restapi.gestion_bons.service.fifo.FifoAllocation;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+import com.restapi.gestion_bons.service.fifo.FifoStockState;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -35,19 +36,17 @@ public class FifoStockTest {
         private LotDAO lotDAO;
 
         @Mock
-        private MouvementStockDAO mouvementStockDAO;
+        private StockBatchDAO stockBatchDAO;
 
         @InjectMocks
-        private BonDeSortieService bonDeSortieService;
+        private FifoAllocationEngine fifoAllocationEngine;
 
         private Produit produitMock;
-        private BonDeSortie bonMock;
         private List<Lot> lots;
 
         @BeforeEach
         public void setUp() {
                 produitMock = Produit.builder().id(1L).nom("Produit Test").build();
-                bonMock = BonDeSortie.builder().id(1L).numeroBon("BS-000001").build();
 
                 Lot lot1 = Lot.builder()
                                 .id(1L)
@@ -69,11 +68,9 @@ public class FifoStockTest {
         }
 
         @Test
-        public void consumeSingleLotWithSuccess()
-                        throws NoSuchMethodException, SecurityException, IllegalAccessException,
-                        InvocationTargetException {
-
-                when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produitMock.getId(), LotStatus.DISPONIBLE))
+        public void consumeSingleLotWithSuccess() {
+                when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                                eq(LotStatus.DISPONIBLE)))
                                 .thenReturn(List.of(lots.get(0)));
 
                 BonDeSortieLigne ligne = BonDeSortieLigne.builder()
@@ -81,24 +78,20 @@ public class FifoStockTest {
                                 .quantiteDemandee(5)
                                 .build();
 
-                var method = BonDeSortieService.class.getDeclaredMethod("traiterSortieFIFO",
-                                BonDeSortieLigne.class, BonDeSortie.class);
-                method.setAccessible(true);
-                method.invoke(bonDeSortieService, ligne, bonMock);
+                List<MouvementStock> mouvements = allouer(List.of(ligne));
 
-                verify(lotDAO, times(1)).save(any(Lot.class));
-                verify(mouvementStockDAO, times(1)).save(any(MouvementStock.class));
+                verify(stockBatchDAO, times(1)).updateLots(anyCollection());
+                verify(stockBatchDAO, times(1)).insertMouvements(anyCollection());
+                assertEquals(1, mouvements.size());
 
                 assertEquals(0, lots.get(0).getQuantiteRestante());
                 assertEquals(LotStatus.EPUISE, lots.get(0).getStatut());
         }
 
         @Test
-        public void consumeMultiLotsWithSuccessButNotAllQuantity()
-                        throws NoSuchMethodException, SecurityException, IllegalAccessException,
-                        InvocationTargetException {
-
-                when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produitMock.getId(), LotStatus.DISPONIBLE))
+        public void consumeMultiLotsWithSuccessButNotAllQuantity() {
+                when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                                eq(LotStatus.DISPONIBLE)))
                                 .thenReturn(lots);
 
                 BonDeSortieLigne ligne = BonDeSortieLigne.builder()
@@ -106,13 +99,11 @@ public class FifoStockTest {
                                 .quantiteDemandee(12)
                                 .build();
 
-                var method = BonDeSortieService.class.getDeclaredMethod("traiterSortieFIFO",
-                                BonDeSortieLigne.class, BonDeSortie.class);
-                method.setAccessible(true);
-                method.invoke(bonDeSortieService, ligne, bonMock);
+                List<MouvementStock> mouvements = allouer(List.of(ligne));
 
-                verify(lotDAO, times(2)).save(any(Lot.class));
-                verify(mouvementStockDAO, times(2)).save(any(MouvementStock.class));
+                assertEquals(2, mouvements.size());
+                assertEquals(5, mouvements.get(0).getQuantite());
+                assertEquals(7, mouvements.get(1).getQuantite());
 
                 assertEquals(0, lots.get(0).getQuantiteRestante());
                 assertEquals(1, lots.get(1).getQuantiteRestante());
@@ -121,11 +112,9 @@ public class FifoStockTest {
         }
 
         @Test
-        public void insuffisantStockWithException()
-                        throws NoSuchMethodException, SecurityException, IllegalAccessException,
-                        InvocationTargetException {
-
-                when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produitMock.getId(), LotStatus.DISPONIBLE))
+        public void insuffisantStockWithException() {
+                when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                                eq(LotStatus.DISPONIBLE)))
                                 .thenReturn(List.of(lots.get(0)));
 
                 BonDeSortieLigne ligne = BonDeSortieLigne.builder()
@@ -133,22 +122,16 @@ public class FifoStockTest {
                                 .quantiteDemandee(10)
                                 .build();
 
-                var method = BonDeSortieService.class.getDeclaredMethod("traiterSortieFIFO",
-                                BonDeSortieLigne.class, BonDeSortie.class);
-                method.setAccessible(true);
-
-                InvocationTargetException exceptionToCheck = assertThrows(InvocationTargetException.class,
-                                () -> method.invoke(bonDeSortieService, ligne, bonMock));
-                Throwable cause = exceptionToCheck.getCause();
+                FifoStockState stock = fifoAllocationEngine.charger(List.of(ligne));
+                IllegalStateException exception = assertThrows(IllegalStateException.class,
+                                () -> stock.planifier(List.of(ligne)));
 
-                assertTrue(cause instanceof IllegalStateException);
-                assertTrue(cause.getMessage().contains("Stock insuffisant pour le produit:"));
+                assertTrue(exception.getMessage().contains("Stock insuffisant pour le produit:"));
+                assertEquals(5, lots.get(0).getQuantiteRestante());
         }
 
         @Test
-        public void consumeMultiLotsWithSuccessButAllQuantity()
-                        throws NoSuchMethodException, SecurityException, IllegalAccessException,
-                        InvocationTargetException {
+        public void consumeMultiLotsWithSuccessButAllQuantity() {
                 Lot lot1 = Lot.builder()
                                 .id(1L)
                                 .produit(produitMock)
@@ -165,7 +148,8 @@ public class FifoStockTest {
                                 .statut(LotStatus.DISPONIBLE)
                                 .build();
 
-                when(lotDAO.findByProduitIdAndStatutOrderByDateEntreeAsc(produitMock.getId(), LotStatus.DISPONIBLE))
+                when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                                eq(LotStatus.DISPONIBLE)))
                                 .thenReturn(List.of(lot1, lot2));
 
                 BonDeSortieLigne ligne = BonDeSortieLigne.builder()
@@ -173,17 +157,64 @@ public class FifoStockTest {
                                 .quantiteDemandee(13)
                                 .build();
 
-                var method = BonDeSortieService.class.getDeclaredMethod("traiterSortieFIFO",
-                                BonDeSortieLigne.class, BonDeSortie.class);
-                method.setAccessible(true);
-                method.invoke(bonDeSortieService, ligne, bonMock);
-
-                verify(lotDAO, times(2)).save(any(Lot.class));
-                verify(mouvementStockDAO, times(2)).save(any(MouvementStock.class));
+                allouer(List.of(ligne));
 
                 assertEquals(0, lot1.getQuantiteRestante());
                 assertEquals(0, lot2.getQuantiteRestante());
                 assertEquals(LotStatus.EPUISE, lot1.getStatut());
                 assertEquals(LotStatus.EPUISE, lot2.getStatut());
         }
+
+        @Test
+        public void linesOfSameProductShareLots() {
+                when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                                eq(LotStatus.DISPONIBLE)))
+                                .thenReturn(lots);
+
+                BonDeSortieLigne ligne1 = BonDeSortieLigne.builder()
+                                .produit(produitMock)
+                                .quantiteDemandee(4)
+                                .build();
+                BonDeSortieLigne ligne2 = BonDeSortieLigne.builder()
+                                .produit(produitMock)
+                                .quantiteDemandee(4)
+                                .build();
+
+                FifoStockState stock = fifoAllocationEngine.charger(List.of(ligne1, ligne2));
+                List<FifoAllocation> allocations = stock.planifier(List.of(ligne1, ligne2));
+
+                // ligne1: 4 du lot1 ; ligne2: 1 du lot1 puis 3 du lot2
+                assertEquals(3, allocations.size());
+                assertEquals(1L, allocations.get(1).getLot().getId());
+                assertEquals(1, allocations.get(1).getQuantite());
+                assertEquals(2L, allocations.get(2).getLot().getId());
+                assertEquals(3, allocations.get(2).getQuantite());
+        }
+
+        @Test
+        public void failedVoucherReleasesPlannedQuantities() {
+                when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(),
+                                eq(LotStatus.DISPONIBLE)))
+                                .thenReturn(lots);
+
+                BonDeSortieLigne trop = BonDeSortieLigne.builder()
+                                .produit(produitMock)
+                                .quantiteDemandee(20)
+                                .build();
+                BonDeSortieLigne possible = BonDeSortieLigne.builder()
+                                .produit(produitMock)
+                                .quantiteDemandee(13)
+                                .build();
+
+                FifoStockState stock = fifoAllocationEngine.charger(List.of(trop, possible));
+                assertThrows(IllegalStateException.class, () -> stock.planifier(List.of(trop)));
+
+                List<FifoAllocation> allocations = stock.planifier(List.of(possible));
+                assertEquals(13, allocations.stream().mapToInt(FifoAllocation::getQuantite).sum());
+        }
+
+        private List<MouvementStock> allouer(List<BonDeSortieLigne> lignes) {
+                FifoStockState stock = fifoAllocationEngine.charger(lignes);
+                return fifoAllocationEngine.appliquer(stock.planifier(lignes));
+        }
 }
@@ -0,0 +1,211 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.restapi.gestion_bons.contracts.BonDeSortieContract;
+import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dao.AtelierDAO;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.MouvementStockDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
+import com.restapi.gestion_bons.dao.StockSnapshotDAO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
+import com.restapi.gestion_bons.dto.stock.GrandLivreEcartDTO;
+import com.restapi.gestion_bons.dto.stock.StockALaDateDTO;
+import com.restapi.gestion_bons.dto.stock.StockProduitALaDateDTO;
+import com.restapi.gestion_bons.entitie.Atelier;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+import com.restapi.gestion_bons.util.MouvementStockHelper;
+
+/**
+ * Two lots received three days ago (10 + 5), then one voucher of 12 validated
+ * now: FIFO empties the first lot and takes 2 from the second.
+ */
+public class GrandLivreTest extends AbstractMariaDBTest {
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private AtelierDAO atelierDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private MouvementStockDAO mouvementStockDAO;
+
+    @Autowired
+    private StockBatchDAO stockBatchDAO;
+
+    @Autowired
+    private StockSnapshotDAO stockSnapshotDAO;
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+
+    @Autowired
+    private BonDeSortieContract bonDeSortieService;
+
+    @Autowired
+    private StockContract stockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final LocalDateTime reception = LocalDateTime.now().minusDays(3).truncatedTo(ChronoUnit.SECONDS);
+    private final LocalDateTime apresReception = reception.plusDays(1);
+    private final LocalDateTime maintenant = LocalDateTime.now().plusMinutes(1);
+
+    private Produit produit;
+    private Lot premier;
+    private Lot second;
+
+    @BeforeEach
+    void setUp() {
+        // les réceptions sont antidatées : un snapshot pris par un autre test après leur date les ignorerait
+        stockSnapshotDAO.deleteAllInBatch();
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        produit = produitDAO.save(Produit.builder()
+                .reference("LEDGER-" + suffixe)
+                .nom("Produit grand livre " + suffixe)
+                .reorderPoint(0)
+                .build());
+        Atelier atelier = atelierDAO.save(Atelier.builder().nom("Atelier grand livre " + suffixe).build());
+
+        premier = lot("LEDGER-" + suffixe + "-1", reception, 10);
+        second = lot("LEDGER-" + suffixe + "-2", reception.plusSeconds(1), 5);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Lot> lots = List.of(premier, second);
+            stockBatchDAO.insertLots(lots);
+            stockBatchDAO.insertMouvements(MouvementStockHelper.creaMouvementStocksFromLots(lots));
+            stockBalanceService.enregistrerEntrees(lots);
+        });
+
+        Long bonId = bonDeSortieService.save(BonDeSortieCreateDTO.builder()
+                .dateSortie(new Date())
+                .motifSortie("Grand livre " + suffixe)
+                .atelierId(atelier.getId())
+                .lignes(List.of(BonDeSortieLigneDTO.builder().produitId(produit.getId()).quantiteDemandee(12).build()))
+                .build()).getId();
+        bonDeSortieService.valider(bonId);
+    }
+
+    @Test
+    void chaqueMouvementPorteLesSoldesDuLotEtDuProduit() {
+        List<MouvementStock> mouvements = mouvementStockDAO.findByProduitIdOrderByDateMouvementDesc(produit.getId())
+                .stream()
+                .sorted((a, b) -> a.getId().compareTo(b.getId()))
+                .toList();
+
+        assertEquals(4, mouvements.size());
+        assertSoldes(mouvements.get(0), premier, 10, 10);
+        assertSoldes(mouvements.get(1), second, 5, 15);
+        assertSoldes(mouvements.get(2), premier, 0, 5);
+        assertSoldes(mouvements.get(3), second, 3, 3);
+    }
+
+    @Test
+    void stockDUnProduitALaDate() {
+        StockProduitALaDateDTO avant = stockService.getStockProduitALaDate(produit.getId(), reception.minusDays(1));
+        assertEquals(0, avant.getQuantite());
+        assertTrue(avant.getLots().isEmpty());
+
+        StockProduitALaDateDTO recu = stockService.getStockProduitALaDate(produit.getId(), apresReception);
+        assertEquals(15, recu.getQuantite());
+        assertEquals(List.of(10, 5), recu.getLots().stream().map(StockProduitALaDateDTO.LotALaDate::getQuantite)
+                .toList());
+
+        StockProduitALaDateDTO actuel = stockService.getStockProduitALaDate(produit.getId(), maintenant);
+        assertEquals(3, actuel.getQuantite());
+        assertEquals(1, actuel.getLots().size());
+        assertEquals(second.getId(), actuel.getLots().get(0).getLotId());
+    }
+
+    @Test
+    void snapshotPuisRejeuBorne() {
+        LocalDateTime dateSnapshot = apresReception;
+        assertTrue(stockService.creerSnapshot(dateSnapshot) > 0);
+        assertEquals(0, stockService.creerSnapshot(dateSnapshot), "Snapshot déjà pris");
+
+        assertEquals(15, quantite(stockService.getStockALaDate(dateSnapshot)));
+        assertEquals(3, quantite(stockService.getStockALaDate(maintenant)));
+        assertThrows(IllegalArgumentException.class,
+                () -> stockService.creerSnapshot(LocalDateTime.now().plusDays(1)));
+    }
+
+    @Test
+    void snapshotTropRecentRefuseEtDateParDefautAvantLeDelai() {
+        assertThrows(IllegalArgumentException.class,
+                () -> stockService.creerSnapshot(LocalDateTime.now().minusMinutes(5)),
+                "Des mouvements datés d'avant peuvent encore être validés");
+
+        assertTrue(stockService.creerSnapshot(null) > 0);
+        LocalDateTime dernier = stockSnapshotDAO.findDernierSnapshot(LocalDateTime.now());
+        assertTrue(dernier.isBefore(LocalDateTime.now().minusMinutes(59)), () -> "Snapshot pris au " + dernier);
+    }
+
+    @Test
+    void verificationDesLotsContreLeGrandLivre() {
+        assertTrue(ecarts().isEmpty());
+
+        Lot modifie = lotDAO.findById(second.getId()).orElseThrow();
+        modifie.setQuantiteRestante(4);
+        lotDAO.save(modifie);
+
+        List<GrandLivreEcartDTO> ecarts = ecarts();
+        assertEquals(1, ecarts.size());
+        assertEquals(4, ecarts.get(0).getQuantiteLot());
+        assertEquals(3, ecarts.get(0).getQuantiteGrandLivre());
+        assertEquals(3, ecarts.get(0).getSoldeDernierMouvement());
+    }
+
+    private List<GrandLivreEcartDTO> ecarts() {
+        return stockService.verifierGrandLivre().stream()
+                .filter(e -> e.getProduitId().equals(produit.getId()))
+                .toList();
+    }
+
+    private int quantite(List<StockALaDateDTO> stock) {
+        return stock.stream()
+                .filter(s -> s.getProduitId().equals(produit.getId()))
+                .mapToInt(StockALaDateDTO::getQuantite)
+                .sum();
+    }
+
+    private static void assertSoldes(MouvementStock mouvement, Lot lot, int soldeLot, int soldeProduit) {
+        assertEquals(lot.getId(), mouvement.getLot().getId());
+        assertEquals(soldeLot, mouvement.getSoldeLot());
+        assertEquals(soldeProduit, mouvement.getSoldeProduit());
+    }
+
+    private Lot lot(String numero, LocalDateTime dateEntree, int quantite) {
+        return Lot.builder()
+                .numeroLot(numero)
+                .dateEntree(dateEntree)
+                .quantiteInitiale(quantite)
+                .quantiteRestante(quantite)
+                .prixAchatUnitaire(BigDecimal.TEN)
+                .produit(produit)
+                .statut(LotStatus.DISPONIBLE)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import com.restapi.gestion_bons.util.MouvementStockCurseur;
+
+public class MouvementStockCurseurTest {
+
+    @Test
+    void testCurseur_AllerRetour() {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000);
+        KeysetScrollPosition position = ScrollPosition.forward(Map.of("dateMouvement", date, "id", 42L));
+
+        KeysetScrollPosition relue = MouvementStockCurseur.decoder(MouvementStockCurseur.encoder(position));
+
+        assertEquals(date, relue.getKeys().get("dateMouvement"));
+        assertEquals(42L, relue.getKeys().get("id"));
+        assertTrue(relue.scrollsForward());
+    }
+
+    @Test
+    void testCurseur_AbsentDonneLaPremierePage() {
+        assertTrue(MouvementStockCurseur.decoder(null).isInitial());
+        assertTrue(MouvementStockCurseur.decoder("").isInitial());
+    }
+
+    @Test
+    void testCurseur_InvalideRefuse() {
+        assertThrows(IllegalArgumentException.class, () -> MouvementStockCurseur.decoder("pas-un-curseur"));
+        assertThrows(IllegalArgumentException.class, () -> MouvementStockCurseur.decoder("%%%"));
+    }
+}
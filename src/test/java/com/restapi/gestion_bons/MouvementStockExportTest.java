@@ -0,0 +1,95 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.restapi.gestion_bons.dao.MouvementStockExportDAO;
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.mouvementstock.MouvementStockExportDTO;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import com.restapi.gestion_bons.service.stock.StockService;
+
+@ExtendWith(MockitoExtension.class)
+public class MouvementStockExportTest {
+
+    @Mock
+    private MouvementStockExportDAO mouvementStockExportDAO;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @InjectMocks
+    private StockService stockService;
+
+    private final LocalDateTime date = LocalDateTime.of(2025, 1, 15, 10, 30);
+
+    @SuppressWarnings("unchecked")
+    private void mouvements(MouvementStockExportDTO... lignes) {
+        doAnswer(invocation -> {
+            Consumer<MouvementStockExportDTO> consommateur = invocation.getArgument(5);
+            for (MouvementStockExportDTO ligne : lignes) {
+                consommateur.accept(ligne);
+            }
+            return null;
+        }).when(mouvementStockExportDAO).parcourir(any(), any(), any(), any(), any(), any(Consumer.class));
+    }
+
+    private MouvementStockExportDTO ligne(long id, String numeroLot) {
+        return MouvementStockExportDTO.builder()
+                .id(id)
+                .typeMouvement(TypeMouvement.SORTIE)
+                .dateMouvement(date)
+                .quantite(5)
+                .prixUnitaireLot(12.5)
+                .produitId(1L)
+                .produitReference("REF001")
+                .lotId(3L)
+                .numeroLot(numeroLot)
+                .build();
+    }
+
+    @Test
+    void testExport_NdjsonUneLigneParMouvement() throws Exception {
+        mouvements(ligne(1L, "LOT-1"), ligne(2L, "LOT-2"));
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+
+        stockService.exporterMouvements(1L, null, TypeMouvement.SORTIE, null, null, FormatExport.NDJSON, sortie);
+
+        String[] lignes = sortie.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lignes.length);
+        assertTrue(lignes[0].contains("\"id\":1"));
+        assertTrue(lignes[0].contains("\"dateMouvement\":\"2025-01-15T10:30:00\""));
+        assertTrue(lignes[1].contains("\"numeroLot\":\"LOT-2\""));
+        verify(mouvementStockExportDAO).parcourir(eq(1L), isNull(), eq(TypeMouvement.SORTIE), isNull(), isNull(),
+                any());
+    }
+
+    @Test
+    void testExport_CsvAvecEnteteEtEchappement() throws Exception {
+        mouvements(ligne(7L, "LOT \"A\", bis"));
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+
+        stockService.exporterMouvements(null, null, null, null, null, FormatExport.CSV, sortie);
+
+        String[] lignes = sortie.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lignes.length);
+        assertTrue(lignes[0].startsWith("id,type_mouvement,date_mouvement"));
+        assertEquals("7,SORTIE,2025-01-15T10:30,5,12.5,1,REF001,3,\"LOT \"\"A\"\", bis\"", lignes[1]);
+    }
+}
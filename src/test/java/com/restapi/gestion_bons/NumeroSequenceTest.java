@@ -0,0 +1,67 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.restapi.gestion_bons.service.numerotation.NumeroSequence;
+
+public class NumeroSequenceTest {
+
+    private static final int THREADS = 64;
+    private static final int NUMEROS = 10_000;
+    private static final int TAILLE_BLOC = 50;
+
+    @Test
+    void numerosConsecutifsDansUnBloc() {
+        AtomicLong table = new AtomicLong(1);
+        NumeroSequence sequence = new NumeroSequence(3, () -> table.getAndAdd(3));
+
+        assertEquals(1, sequence.suivant());
+        assertEquals(2, sequence.suivant());
+        assertEquals(3, sequence.suivant());
+        assertEquals(4, sequence.suivant());
+        assertEquals(7, table.get(), "Un deuxième bloc doit avoir été réservé");
+    }
+
+    @Test
+    void dixMilleNumerosDepuis64ThreadsSansDoublon() throws Exception {
+        AtomicLong table = new AtomicLong(1);
+        AtomicInteger reservations = new AtomicInteger();
+        NumeroSequence sequence = new NumeroSequence(TAILLE_BLOC, () -> {
+            reservations.incrementAndGet();
+            return table.getAndAdd(TAILLE_BLOC);
+        });
+
+        Set<Long> numeros = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> taches = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int part = NUMEROS / THREADS + (t < NUMEROS % THREADS ? 1 : 0);
+            taches.add(() -> {
+                for (int i = 0; i < part; i++) {
+                    assertTrue(numeros.add(sequence.suivant()), "Numéro attribué deux fois");
+                }
+                return null;
+            });
+        }
+        for (Future<Void> resultat : executor.invokeAll(taches)) {
+            resultat.get();
+        }
+        executor.shutdown();
+
+        assertEquals(NUMEROS, numeros.size());
+        assertEquals(NUMEROS / TAILLE_BLOC, reservations.get(), "Aucun bloc ne doit être réservé pour rien");
+    }
+}
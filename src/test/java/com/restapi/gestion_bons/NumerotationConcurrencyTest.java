@@ -0,0 +1,91 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.restapi.gestion_bons.contracts.BonDeSortieContract;
+import com.restapi.gestion_bons.dao.AtelierDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
+import com.restapi.gestion_bons.entitie.Atelier;
+import com.restapi.gestion_bons.entitie.Produit;
+
+/**
+ * Creates 10k vouchers from 64 threads; the unique index on numero_bon would
+ * reject any duplicate number.
+ */
+public class NumerotationConcurrencyTest extends AbstractMariaDBTest {
+
+    private static final int THREADS = 64;
+    private static final int NOMBRE_BONS = 10_000;
+
+    @Autowired
+    private BonDeSortieContract bonDeSortieService;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private AtelierDAO atelierDAO;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void creationsConcurrentesSansNumeroEnDouble() throws Exception {
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        Produit produit = produitDAO.save(Produit.builder()
+                .reference("NUM-" + suffixe)
+                .nom("Produit numérotation " + suffixe)
+                .reorderPoint(0)
+                .build());
+        Atelier atelier = atelierDAO.save(Atelier.builder().nom("Atelier numérotation " + suffixe).build());
+        BonDeSortieCreateDTO dto = BonDeSortieCreateDTO.builder()
+                .dateSortie(new Date())
+                .motifSortie("Numérotation " + suffixe)
+                .atelierId(atelier.getId())
+                .lignes(List.of(BonDeSortieLigneDTO.builder()
+                        .produitId(produit.getId())
+                        .quantiteDemandee(1)
+                        .build()))
+                .build();
+
+        Set<String> numeros = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> taches = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int part = NOMBRE_BONS / THREADS + (t < NOMBRE_BONS % THREADS ? 1 : 0);
+            taches.add(() -> {
+                for (int i = 0; i < part; i++) {
+                    numeros.add(bonDeSortieService.save(dto).getNumeroBon());
+                }
+                return null;
+            });
+        }
+        for (Future<Void> resultat : executor.invokeAll(taches)) {
+            resultat.get();
+        }
+        executor.shutdown();
+
+        assertEquals(NOMBRE_BONS, numeros.size(), "Chaque bon doit recevoir un numéro distinct");
+        int distinctsEnBase = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT numero_bon) FROM bon_de_sortie WHERE motif_sortie = ?", Integer.class,
+                "Numérotation " + suffixe);
+        assertEquals(NOMBRE_BONS, distinctsEnBase);
+    }
+}
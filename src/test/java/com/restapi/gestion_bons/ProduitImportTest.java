@@ -0,0 +1,217 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restapi.gestion_bons.config.CacheConfig;
+import com.restapi.gestion_bons.dao.ProduitBatchDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dto.mouvementstock.FormatExport;
+import com.restapi.gestion_bons.dto.produit.ProduitImportResultatDTO;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.mapper.ProduitMapper;
+import com.restapi.gestion_bons.service.produit.ProduitImportService;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
+
+import jakarta.validation.Validation;
+
+@ExtendWith(MockitoExtension.class)
+public class ProduitImportTest {
+
+    private static final String ENTETE = "reference,nom,description,categorie,uniteMesure,reorderPoint\n";
+
+    @Mock
+    private ProduitDAO produitDAO;
+
+    @Mock
+    private ProduitBatchDAO produitBatchDAO;
+
+    @Mock
+    private StockAlerteService stockAlerteService;
+
+    @Captor
+    private ArgumentCaptor<List<Produit>> produitsCaptor;
+
+    private ConcurrentMapCacheManager cacheManager;
+
+    private ProduitImportService service;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager();
+        service = new ProduitImportService(produitDAO, produitBatchDAO, Mappers.getMapper(ProduitMapper.class),
+                new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), stockAlerteService,
+                cacheManager);
+    }
+
+    @Test
+    void importCsv_RejetsParLigneEtInsertionGroupee() throws IOException {
+        when(produitDAO.findReferencesIn(anyCollection())).thenReturn(Set.of("EXI-001"));
+        when(produitDAO.findNomsIn(anyCollection())).thenReturn(Set.of());
+
+        String csv = ENTETE
+                + "TIS-001,Tissu Coton,\"Coton, 100%\",Tissus,mètre,100\n"
+                + "tis-001,Autre tissu,Doublon,Tissus,mètre,10\n"
+                + "FIL-001,\"Fil \"\"noir\"\"\",Fil,Fournitures,bobine,abc\n"
+                + "BTN-001,,Boutons,Accessoires,pièce,20\n"
+                + "\n"
+                + "exi-001,Produit existant,Déjà en base,Divers,pièce,5\n"
+                + "FER-001,Fermeture,\"Sur\ndeux lignes\",Accessoires,pièce,15\n";
+
+        ProduitImportResultatDTO resultat = service.importer(flux(csv), FormatExport.CSV);
+
+        assertEquals(6, resultat.getLignesLues());
+        assertEquals(2, resultat.getImportees());
+        assertEquals(4, resultat.getRejetees());
+        assertEquals(List.of(3L, 4L, 5L, 7L), resultat.getRejets().stream().map(ProduitImportResultatDTO.Rejet::getLigne).toList());
+        assertTrue(resultat.getRejets().get(0).getMotif().startsWith("Référence en double dans le fichier"));
+        assertTrue(resultat.getRejets().get(1).getMotif().startsWith("Point de réapprovisionnement invalide"));
+        assertEquals("Le nom est obligatoire", resultat.getRejets().get(2).getMotif());
+        assertTrue(resultat.getRejets().get(3).getMotif().startsWith("Référence déjà existante"),
+                "Les contraintes d'unicité ignorent la casse");
+
+        verify(produitBatchDAO, times(1)).insertProduits(produitsCaptor.capture());
+        List<Produit> produits = produitsCaptor.getValue();
+        assertEquals("Coton, 100%", produits.get(0).getDescription());
+        assertEquals("Sur\ndeux lignes", produits.get(1).getDescription());
+        assertEquals(15, produits.get(1).getReorderPoint());
+    }
+
+    @Test
+    void importNdjson_ParTranchesSansChargerLeFichier() throws IOException {
+        when(produitDAO.findReferencesIn(anyCollection())).thenReturn(Set.of());
+        when(produitDAO.findNomsIn(anyCollection())).thenReturn(Set.of());
+
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            ndjson.append(String.format("{\"reference\":\"REF-%05d\",\"nom\":\"Produit %d\",\"description\":\"Produit importé\","
+                    + "\"categorie\":\"Catalogue\",\"uniteMesure\":\"pièce\",\"reorderPoint\":10}%n", i, i));
+        }
+        ndjson.append("{pas du json}\n");
+
+        ProduitImportResultatDTO resultat = service.importer(flux(ndjson.toString()), FormatExport.NDJSON);
+
+        assertEquals(2501, resultat.getLignesLues());
+        assertEquals(2500, resultat.getImportees());
+        assertEquals(1, resultat.getRejetees());
+        assertEquals(2501, resultat.getRejets().get(0).getLigne());
+
+        // 1000 + 1000 + 500 : une requête d'unicité par colonne et un batch par tranche
+        verify(produitBatchDAO, times(3)).insertProduits(anyList());
+        verify(produitDAO, times(3)).findReferencesIn(anyCollection());
+        verify(produitDAO, times(3)).findNomsIn(anyCollection());
+        verify(produitDAO, never()).findByReference(anyString());
+    }
+
+    @Test
+    void importCsv_GuillemetNonFermeRejete() throws IOException {
+        when(produitDAO.findReferencesIn(anyCollection())).thenReturn(Set.of());
+        when(produitDAO.findNomsIn(anyCollection())).thenReturn(Set.of());
+
+        String csv = ENTETE
+                + "TIS-001,Tissu Coton,Coton,Tissus,mètre,100\n"
+                + "FIL-001,\"Fil noir,Fil,Fournitures,bobine,10\n"
+                + "BTN-001,Bouton,Boutons,Accessoires,pièce,20\n";
+
+        ProduitImportResultatDTO resultat = service.importer(flux(csv), FormatExport.CSV);
+
+        assertEquals(2, resultat.getLignesLues());
+        assertEquals(1, resultat.getImportees());
+        assertEquals(1, resultat.getRejetees());
+        assertEquals(3, resultat.getRejets().get(0).getLigne());
+        assertTrue(resultat.getRejets().get(0).getMotif().startsWith("Guillemet non fermé"));
+        assertNull(resultat.getInterruption());
+        verify(stockAlerteService).reconstruire();
+    }
+
+    @Test
+    void importNdjson_LectureInterrompueGardeLesLignesLues() throws IOException {
+        when(produitDAO.findReferencesIn(anyCollection())).thenReturn(Set.of());
+        when(produitDAO.findNomsIn(anyCollection())).thenReturn(Set.of());
+        cacheManager.getCache(CacheConfig.PRODUITS_PAR_CATEGORIE).put("Catalogue", List.of());
+
+        StringBuilder debut = new StringBuilder();
+        for (int i = 1; i <= 2; i++) {
+            debut.append(String.format("{\"reference\":\"REF-%d\",\"nom\":\"Produit %d\",\"description\":\"Produit importé\","
+                    + "\"categorie\":\"Catalogue\",\"uniteMesure\":\"pièce\",\"reorderPoint\":10}%n", i, i));
+        }
+        InputStream coupe = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connexion réinitialisée");
+            }
+        };
+
+        ProduitImportResultatDTO resultat = service.importer(new SequenceInputStream(flux(debut.toString()), coupe),
+                FormatExport.NDJSON);
+
+        assertEquals(2, resultat.getImportees());
+        assertEquals(0, resultat.getRejetees());
+        assertNotNull(resultat.getInterruption());
+        assertTrue(resultat.getInterruption().contains("ligne 2"));
+        verify(produitBatchDAO).insertProduits(anyList());
+        verify(stockAlerteService).reconstruire();
+        assertNull(cacheManager.getCache(CacheConfig.PRODUITS_PAR_CATEGORIE).get("Catalogue"),
+                "Les produits importés avant l'interruption doivent évincer les listes en cache");
+    }
+
+    @Test
+    void importCsv_ConflitConcurrentReprisLigneParLigne() throws IOException {
+        when(produitDAO.findReferencesIn(anyCollection())).thenReturn(Set.of());
+        when(produitDAO.findNomsIn(anyCollection())).thenReturn(Set.of());
+        doAnswer(invocation -> {
+            List<Produit> produits = invocation.getArgument(0);
+            if (produits.size() > 1 || "FIL-001".equals(produits.get(0).getReference())) {
+                throw new DataIntegrityViolationException("Duplicate entry");
+            }
+            return null;
+        }).when(produitBatchDAO).insertProduits(anyList());
+
+        String csv = ENTETE
+                + "TIS-001,Tissu Coton,Coton,Tissus,mètre,100\n"
+                + "FIL-001,Fil noir,Fil,Fournitures,bobine,10\n"
+                + "BTN-001,Bouton,Boutons,Accessoires,pièce,20\n";
+
+        ProduitImportResultatDTO resultat = service.importer(flux(csv), FormatExport.CSV);
+
+        assertEquals(2, resultat.getImportees());
+        assertEquals(1, resultat.getRejetees());
+        assertEquals(3, resultat.getRejets().get(0).getLigne());
+        assertEquals("FIL-001", resultat.getRejets().get(0).getReference());
+        assertTrue(resultat.getRejets().get(0).getMotif().startsWith("Conflit d'unicité"));
+        // le batch de la tranche, puis une insertion par ligne
+        verify(produitBatchDAO, times(4)).insertProduits(anyList());
+    }
+
+    @Test
+    void importCsv_EnteteIncompleteRefusee() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.importer(flux("reference,nom\nA,B\n"), FormatExport.CSV));
+        verifyNoInteractions(produitBatchDAO);
+    }
+
+    private static InputStream flux(String contenu) {
+        return new ByteArrayInputStream(contenu.getBytes(StandardCharsets.UTF_8));
+    }
+}
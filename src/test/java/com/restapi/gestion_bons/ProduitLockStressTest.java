@@ -0,0 +1,161 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.restapi.gestion_bons.service.fifo.ProduitLockManager;
+import com.restapi.gestion_bons.util.AppLogger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Allocations are simulated by a short pause inside the product lock. On
+ * distinct products, throughput must grow with the number of threads; on a
+ * single product, allocations must never overlap.
+ */
+public class ProduitLockStressTest {
+
+    private static final int PRODUITS = 1024;
+    private static final int ALLOCATIONS_PAR_THREAD = 200;
+    private static final long DUREE_ALLOCATION_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Test
+    void debitCroitAvecLeNombreDeThreads() throws Exception {
+        int coeurs = Runtime.getRuntime().availableProcessors();
+        List<Integer> paliers = new ArrayList<>(List.of(1, 2, 4, 8));
+        if (coeurs > 8) {
+            paliers.add(coeurs);
+        }
+
+        double debitSequentiel = 0;
+        double debitMax = 0;
+        for (int threads : paliers) {
+            ProduitLockManager verrous = new ProduitLockManager(new SimpleMeterRegistry(), 256);
+            double debit = mesurer(verrous, threads, () -> (long) ThreadLocalRandom.current().nextInt(PRODUITS));
+            AppLogger.info(String.format("verrous produit: %d threads (%d coeurs) -> %.0f allocations/s",
+                    threads, coeurs, debit));
+            if (threads == 1) {
+                debitSequentiel = debit;
+            }
+            debitMax = Math.max(debitMax, debit);
+        }
+
+        assertTrue(debitMax > 3 * debitSequentiel,
+                "Des produits différents doivent être alloués en parallèle");
+    }
+
+    @Test
+    void allocationsSurUnMemeProduitSerialisees() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ProduitLockManager verrous = new ProduitLockManager(registry, 256);
+        AtomicInteger enCours = new AtomicInteger();
+        AtomicInteger chevauchements = new AtomicInteger();
+        int[] compteur = new int[1];
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> taches = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                taches.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        verrous.executer(List.of(42L), () -> {
+                            if (enCours.incrementAndGet() > 1) {
+                                chevauchements.incrementAndGet();
+                            }
+                            compteur[0]++;
+                            LockSupport.parkNanos(10_000);
+                            enCours.decrementAndGet();
+                            return null;
+                        });
+                    }
+                }));
+            }
+            for (Future<?> tache : taches) {
+                tache.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, chevauchements.get());
+        assertEquals(1600, compteur[0]);
+        assertEquals(1600, registry.get("stock.fifo.lock.wait").timer().count());
+        assertTrue(registry.get("stock.fifo.lock.queue").summary().max() > 0,
+                "La profondeur de file doit être mesurée sous contention");
+        assertEquals(0, registry.get("stock.fifo.lock.waiting").gauge().value());
+    }
+
+    @Test
+    void verrousMultiProduitsSansInterblocage() throws Exception {
+        // 8 verrous pour 64 produits: les ensembles se chevauchent et sont
+        // demandés dans un ordre aléatoire, seul le tri évite l'interblocage
+        ProduitLockManager verrous = new ProduitLockManager(new SimpleMeterRegistry(), 8);
+        int[] soldes = new int[64];
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> taches = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                taches.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 500; i++) {
+                        int a = random.nextInt(64);
+                        int b = random.nextInt(64);
+                        verrous.executer(List.of((long) b, (long) a), () -> {
+                            // transfert non atomique: correct uniquement sous verrou
+                            soldes[a]--;
+                            soldes[b]++;
+                            return null;
+                        });
+                    }
+                }));
+            }
+            for (Future<?> tache : taches) {
+                tache.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, Arrays.stream(soldes).sum());
+    }
+
+    private double mesurer(ProduitLockManager verrous, int threads, LongSupplier produit)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long debut = System.nanoTime();
+            List<Future<?>> taches = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                taches.add(executor.submit(() -> {
+                    for (int i = 0; i < ALLOCATIONS_PAR_THREAD; i++) {
+                        verrous.executer(List.of(produit.getAsLong()), () -> {
+                            LockSupport.parkNanos(DUREE_ALLOCATION_NANOS);
+                            return null;
+                        });
+                    }
+                }));
+            }
+            for (Future<?> tache : taches) {
+                tache.get(120, TimeUnit.SECONDS);
+            }
+            double secondes = (System.nanoTime() - debut) / 1e9;
+            return threads * ALLOCATIONS_PAR_THREAD / secondes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import com.restapi.gestion_bons.contracts.ProduitServiceContract;
+import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dto.stock.StockProduitDetailDTO;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Guards against lots being loaded with product listings again: the number
+ * of statements must not depend on how many products or lots exist.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class ProduitStatementCountTest extends AbstractMariaDBTest {
+
+    private static final int NOMBRE_PRODUITS = 30;
+    private static final int LOTS_PAR_PRODUIT = 4;
+
+    @Autowired
+    private ProduitServiceContract produitService;
+
+    @Autowired
+    private StockContract stockService;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Produit premier;
+
+    @BeforeEach
+    void setUp() {
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        List<Lot> lots = new ArrayList<>();
+        for (int i = 0; i < NOMBRE_PRODUITS; i++) {
+            Produit produit = produitDAO.save(Produit.builder()
+                    .reference("STAT-" + suffixe + "-" + i)
+                    .nom("Produit stat " + suffixe + " " + i)
+                    .reorderPoint(10)
+                    .build());
+            if (premier == null) {
+                premier = produit;
+            }
+            for (int j = 0; j < LOTS_PAR_PRODUIT; j++) {
+                lots.add(Lot.builder()
+                        .numeroLot("LOT-STAT-" + suffixe + "-" + i + "-" + j)
+                        .dateEntree(LocalDateTime.now().minusDays(LOTS_PAR_PRODUIT - j))
+                        .quantiteInitiale(10)
+                        .quantiteRestante(10)
+                        .prixAchatUnitaire(BigDecimal.TEN)
+                        .produit(produit)
+                        .statut(LotStatus.DISPONIBLE)
+                        .build());
+            }
+        }
+        lotDAO.saveAll(lots);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listeProduitsSansChargerLesLots() {
+        assertFalse(produitService.findAll().isEmpty());
+
+        assertEquals(1, statistics.getPrepareStatementCount(), "Une seule requête pour lister les produits");
+        assertEquals(0, statistics.getCollectionLoadCount(), "Les lots ne doivent pas être chargés");
+    }
+
+    @Test
+    void pageProduitsSansChargerLesLots() {
+        produitService.findAllWithPagination(PageRequest.of(0, 20));
+
+        assertTrue(statistics.getPrepareStatementCount() <= 2, "Requête de page et comptage seulement");
+        assertEquals(0, statistics.getCollectionLoadCount(), "Les lots ne doivent pas être chargés");
+    }
+
+    @Test
+    void detailStockChargeProduitEtLotsEnUneRequete() {
+        StockProduitDetailDTO detail = stockService.getStockByProduitId(premier.getId());
+
+        assertEquals(LOTS_PAR_PRODUIT, detail.getLots().size());
+        assertEquals(1, statistics.getPrepareStatementCount(), "Graphe produit-with-lots en une requête");
+    }
+}
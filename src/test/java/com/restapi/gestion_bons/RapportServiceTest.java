@@ -0,0 +1,179 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dao.StockVersionDAO;
+import com.restapi.gestion_bons.dto.rapport.RapportDemandeDTO;
+import com.restapi.gestion_bons.dto.rapport.RapportJobDTO;
+import com.restapi.gestion_bons.dto.rapport.StatutRapport;
+import com.restapi.gestion_bons.dto.rapport.TypeRapport;
+import com.restapi.gestion_bons.dto.stock.StockValorisationDTO;
+import com.restapi.gestion_bons.service.rapport.RapportService;
+import com.restapi.gestion_bons.service.stock.StockVersion;
+
+/**
+ * Background reports on a single worker, with the stock reads mocked so that
+ * jobs can be held while running.
+ */
+public class RapportServiceTest {
+
+    @TempDir
+    Path repertoire;
+
+    private final StockContract stockService = mock(StockContract.class);
+    private final StockVersionDAO stockVersionDAO = mock(StockVersionDAO.class);
+    private final StockVersion stockVersion = new StockVersion(stockVersionDAO);
+    private final AtomicLong version = new AtomicLong();
+    private final CountDownLatch liberer = new CountDownLatch(1);
+    private RapportService rapportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rapportService = new RapportService(stockService, new ObjectMapper().findAndRegisterModules(), stockVersion);
+        ReflectionTestUtils.setField(rapportService, "threads", 1);
+        ReflectionTestUtils.setField(rapportService, "fileMax", 1);
+        ReflectionTestUtils.setField(rapportService, "repertoire", repertoire);
+        rapportService.demarrer();
+
+        when(stockVersionDAO.courante()).thenAnswer(invocation -> version.get());
+        when(stockVersionDAO.avancerTout()).thenAnswer(invocation -> version.incrementAndGet());
+
+        when(stockService.getValorisation()).thenAnswer(invocation -> {
+            liberer.await(5, TimeUnit.SECONDS);
+            return StockValorisationDTO.builder().valorisationTotale(new BigDecimal("125.50")).build();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberer.countDown();
+        rapportService.arreter();
+    }
+
+    @Test
+    void demandeIdentiqueDedoublonneeEtResultatCompresse() throws Exception {
+        RapportJobDTO premier = rapportService.soumettre(demande(TypeRapport.VALORISATION, 5));
+        RapportJobDTO second = rapportService.soumettre(demande(TypeRapport.VALORISATION, 9));
+        assertEquals(premier.getId(), second.getId());
+
+        liberer.countDown();
+        RapportJobDTO termine = attendre(premier.getId(), StatutRapport.TERMINE);
+        assertEquals(0L, termine.getVersionStock());
+        assertTrue(termine.getTaille() > 0);
+        assertTrue(lire(premier.getId()).contains("\"valorisationTotale\":125.50"));
+        verify(stockService, times(1)).getValorisation();
+    }
+
+    @Test
+    void resultatServiJusquAuProchainChangementDeStock() throws Exception {
+        liberer.countDown();
+        String id = rapportService.soumettre(demande(TypeRapport.VALORISATION, 5)).getId();
+        attendre(id, StatutRapport.TERMINE);
+        assertEquals(id, rapportService.soumettre(demande(TypeRapport.VALORISATION, 5)).getId());
+
+        stockVersion.avancer();
+
+        assertEquals(StatutRapport.EXPIRE, rapportService.getJob(id).getStatut());
+        assertThrows(IllegalStateException.class, () -> rapportService.getResultat(id));
+        assertFalse(Files.exists(repertoire.resolve(id + ".gz")));
+        String nouveau = rapportService.soumettre(demande(TypeRapport.VALORISATION, 5)).getId();
+        assertNotEquals(id, nouveau);
+        assertEquals(1L, attendre(nouveau, StatutRapport.TERMINE).getVersionStock());
+    }
+
+    @Test
+    void prioriteLaPlusHauteDAbordEtFileBornee() throws Exception {
+        List<String> ordre = new CopyOnWriteArrayList<>();
+        when(stockService.getAlertes()).thenAnswer(invocation -> {
+            ordre.add("ALERTES");
+            return List.of();
+        });
+        doAnswer(invocation -> ordre.add("MOUVEMENTS")).when(stockService)
+                .exporterMouvements(any(), any(), any(), any(), any(), any(), any());
+
+        ReflectionTestUtils.setField(rapportService, "fileMax", 2);
+        String bloquant = rapportService.soumettre(demande(TypeRapport.VALORISATION, 5)).getId();
+        attendre(bloquant, StatutRapport.EN_COURS);
+        String basse = rapportService.soumettre(demande(TypeRapport.ALERTES, 1)).getId();
+        String haute = rapportService.soumettre(demande(TypeRapport.MOUVEMENTS, 9)).getId();
+        RapportDemandeDTO troisieme = demande(TypeRapport.MOUVEMENTS, 5);
+        troisieme.setProduitId(1L);
+        assertThrows(IllegalStateException.class, () -> rapportService.soumettre(troisieme), "File pleine");
+        liberer.countDown();
+
+        attendre(haute, StatutRapport.TERMINE);
+        attendre(basse, StatutRapport.TERMINE);
+        assertEquals(List.of("MOUVEMENTS", "ALERTES"), ordre);
+    }
+
+    @Test
+    void annulationDUnJobEnCours() throws Exception {
+        CountDownLatch demarre = new CountDownLatch(1);
+        CountDownLatch arrete = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            OutputStream sortie = invocation.getArgument(6);
+            demarre.countDown();
+            try {
+                while (true) {
+                    sortie.write("ligne\n".getBytes(StandardCharsets.UTF_8));
+                }
+            } finally {
+                arrete.countDown();
+            }
+        }).when(stockService).exporterMouvements(any(), any(), any(), any(), any(), any(), any());
+
+        String id = rapportService.soumettre(demande(TypeRapport.MOUVEMENTS, 5)).getId();
+        assertTrue(demarre.await(5, TimeUnit.SECONDS));
+
+        assertEquals(StatutRapport.ANNULE, rapportService.annuler(id).getStatut());
+        assertTrue(arrete.await(5, TimeUnit.SECONDS), "Interrompu à sa prochaine écriture");
+        assertEquals(StatutRapport.ANNULE, rapportService.getJob(id).getStatut());
+        assertFalse(Files.exists(repertoire.resolve(id + ".gz")));
+        assertNotEquals(id, rapportService.soumettre(demande(TypeRapport.MOUVEMENTS, 5)).getId());
+    }
+
+    private static RapportDemandeDTO demande(TypeRapport type, int priorite) {
+        return RapportDemandeDTO.builder().type(type).priorite(priorite).build();
+    }
+
+    private RapportJobDTO attendre(String id, StatutRapport statut) throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        RapportJobDTO job = rapportService.getJob(id);
+        while (job.getStatut() != statut && System.nanoTime() < limite) {
+            Thread.sleep(10);
+            job = rapportService.getJob(id);
+        }
+        assertEquals(statut, job.getStatut(), () -> "Erreur: " + rapportService.getJob(id).getErreur());
+        return job;
+    }
+
+    private String lire(String id) throws IOException {
+        try (InputStream entree = new GZIPInputStream(Files.newInputStream(rapportService.getResultat(id).getFichier()))) {
+            return new String(entree.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
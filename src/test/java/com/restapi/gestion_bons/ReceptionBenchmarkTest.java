@@ -0,0 +1,100 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.restapi.gestion_bons.dao.CommandeFournisseurDAO;
+import com.restapi.gestion_bons.dao.FournisseurDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.entitie.CommandeFournisseur;
+import com.restapi.gestion_bons.entitie.Fournisseur;
+import com.restapi.gestion_bons.entitie.LigneCommande;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.CommandeStatus;
+import com.restapi.gestion_bons.service.commandeFournisseur.CommandeFournisseurService;
+import com.restapi.gestion_bons.util.AppLogger;
+
+/**
+ * Reception time against the number of order lines. Lots and ENTREE
+ * movements are written as JDBC batches, so the time should grow far slower
+ * than one round trip per line.
+ */
+public class ReceptionBenchmarkTest extends AbstractMariaDBTest {
+
+    private static final int NOMBRE_PRODUITS = 20;
+
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+
+    @Autowired
+    private CommandeFournisseurDAO commandeFournisseurDAO;
+
+    @Autowired
+    private FournisseurDAO fournisseurDAO;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 100, 500 })
+    void receptionParNombreDeLignes(int nombreLignes) {
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        Fournisseur fournisseur = fournisseurDAO.save(Fournisseur.builder()
+                .raisonSociale("Fournisseur " + suffixe)
+                .addressComplete("1 rue du Test")
+                .email(suffixe + "@bench.test")
+                .build());
+
+        List<Produit> produits = new ArrayList<>();
+        for (int i = 0; i < NOMBRE_PRODUITS; i++) {
+            produits.add(produitDAO.save(Produit.builder()
+                    .reference("RCP-" + suffixe + "-" + i)
+                    .nom("Produit réception " + suffixe + " " + i)
+                    .reorderPoint(0)
+                    .build()));
+        }
+
+        CommandeFournisseur commande = CommandeFournisseur.builder()
+                .dateCommande(new Date())
+                .montantTotal(0.0)
+                .statut(CommandeStatus.VALIDEE)
+                .fournisseur(fournisseur)
+                .build();
+        for (int i = 0; i < nombreLignes; i++) {
+            commande.getLignesCommande().add(LigneCommande.builder()
+                    .commande(commande)
+                    .produit(produits.get(i % NOMBRE_PRODUITS))
+                    .quantiteCommandee(10 + i % 5)
+                    .prixAchatUnitaire(2.5 + i % 3)
+                    .build());
+        }
+        Long commandeId = commandeFournisseurDAO.save(commande).getId();
+
+        long debut = System.nanoTime();
+        commandeFournisseurService.receptionnerCommande(commandeId);
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+
+        AppLogger.info(String.format("receptionnerCommande: %d lignes -> %d ms", nombreLignes, dureeMs));
+
+        int lots = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM lot WHERE commande_fournisseur_id = ?", Integer.class, commandeId);
+        int entrees = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM mouvement_stock m JOIN lot l ON l.id = m.lot_id "
+                        + "WHERE l.commande_fournisseur_id = ? AND m.type_mouvement = 'ENTREE'",
+                Integer.class, commandeId);
+        assertEquals(nombreLignes, lots);
+        assertEquals(nombreLignes, entrees, "Chaque lot doit avoir son mouvement d'entrée");
+    }
+}
@@ -0,0 +1,99 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.restapi.gestion_bons.config.CacheConfig;
+import com.restapi.gestion_bons.contracts.ProduitServiceContract;
+import com.restapi.gestion_bons.dto.produit.ProduitRequestDTO;
+import com.restapi.gestion_bons.dto.produit.ProduitResponseDTO;
+import com.restapi.gestion_bons.metrics.CompteurStatements;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Produit lookups by id are served from the cache of response DTOs after the
+ * first read, without any query, and writes through ProduitService evict the
+ * cached entries.
+ */
+public class ReferentielCacheTest extends AbstractMariaDBTest {
+
+    @Autowired
+    private ProduitServiceContract produitService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private String suffixe;
+    private Long produitId;
+
+    @BeforeEach
+    void setUp() {
+        suffixe = UUID.randomUUID().toString().substring(0, 8);
+        produitId = Long.valueOf(produitService.save(requete("Produit cache " + suffixe)).getId());
+    }
+
+    @Test
+    void lecturesRepeteesServiesParLeCache() {
+        ProduitResponseDTO premier = produitService.findById(produitId).orElseThrow();
+        double hitsAvant = hits();
+
+        CompteurStatements.Portee portee = CompteurStatements.ouvrir();
+        try {
+            for (int i = 0; i < 9; i++) {
+                assertSame(premier, produitService.findById(produitId).orElseThrow());
+            }
+        } finally {
+            CompteurStatements.fermer(portee);
+        }
+
+        assertEquals(0, portee.getStatements(), "Un hit ne doit exécuter aucune requête");
+        assertEquals(9, hits() - hitsAvant);
+    }
+
+    @Test
+    void modificationEvinceLeProduit() {
+        assertEquals("Produit cache " + suffixe, produitService.findById(produitId).orElseThrow().getNom());
+        assertTrue(produitService.findByNom("Produit cache " + suffixe).isPresent());
+
+        produitService.update(produitId, requete("Produit renommé " + suffixe));
+
+        assertEquals("Produit renommé " + suffixe, produitService.findById(produitId).orElseThrow().getNom());
+        assertTrue(produitService.findByNom("Produit cache " + suffixe).isEmpty());
+    }
+
+    @Test
+    void suppressionEvinceLeProduit() {
+        assertTrue(produitService.findById(produitId).isPresent());
+
+        produitService.delete(produitId);
+
+        assertTrue(produitService.findById(produitId).isEmpty());
+    }
+
+    private ProduitRequestDTO requete(String nom) {
+        return ProduitRequestDTO.builder()
+                .reference("CACHE-" + suffixe)
+                .nom(nom)
+                .description("Produit de test du cache")
+                .categorie("Cache")
+                .uniteMesure("pièce")
+                .reorderPoint(10)
+                .build();
+    }
+
+    private double hits() {
+        FunctionCounter counter = meterRegistry.find("cache.gets")
+                .tag("cache", CacheConfig.PRODUITS)
+                .tag("result", "hit")
+                .functionCounter();
+        assertNotNull(counter, "Les métriques du cache doivent être publiées");
+        return counter.count();
+    }
+}
@@ -0,0 +1,160 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.restapi.gestion_bons.config.ReplicaRoutingDataSource;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and the replica; each
+ * holds a single row naming it, so a query shows which one served it.
+ */
+public class ReplicaRoutingTest {
+
+    private DataSource primaire;
+    private PanneDataSource replique;
+    private final AtomicLong retard = new AtomicLong();
+    private final AtomicInteger mesures = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        primaire = base("primaire");
+        replique = new PanneDataSource(base("replique"));
+        retard.set(0);
+        mesures.set(0);
+    }
+
+    @Test
+    void lecturesServiesParLaReplique() throws SQLException {
+        ReplicaRoutingDataSource routage = routage(Duration.ofHours(1));
+
+        assertEquals("replique", nom(routage));
+        assertEquals("replique", nom(routage));
+        assertEquals(1, mesures.get(), "Le retard n'est mesuré qu'une fois par intervalle");
+    }
+
+    @Test
+    void repliqueInjoignableRenvoieSurLePrimaire() throws SQLException {
+        replique.enPanne = true;
+        ReplicaRoutingDataSource routage = routage(Duration.ZERO);
+
+        assertEquals("primaire", nom(routage));
+        assertFalse(routage.isRepliqueUtilisable());
+
+        replique.enPanne = false;
+        assertEquals("replique", nom(routage));
+    }
+
+    @Test
+    void panneEntreDeuxVerificationsEcarteLaReplique() throws SQLException {
+        ReplicaRoutingDataSource routage = routage(Duration.ofHours(1));
+        assertEquals("replique", nom(routage));
+
+        replique.enPanne = true;
+        int tentatives = replique.tentatives.get();
+
+        assertEquals("primaire", nom(routage));
+        assertEquals("primaire", nom(routage));
+        assertEquals(tentatives + 1, replique.tentatives.get(),
+                "La réplique n'est plus sollicitée jusqu'à la prochaine vérification");
+    }
+
+    @Test
+    void retardTropImportantRenvoieSurLePrimaire() throws SQLException {
+        ReplicaRoutingDataSource routage = routage(Duration.ZERO);
+
+        retard.set(31);
+        assertEquals("primaire", nom(routage));
+
+        retard.set(2);
+        assertEquals("replique", nom(routage));
+    }
+
+    @Test
+    void replicationArreteeRenvoieSurLePrimaire() throws SQLException {
+        ReplicaRoutingDataSource routage = new ReplicaRoutingDataSource(primaire, replique, connexion -> null,
+                Duration.ofSeconds(30), Duration.ZERO);
+
+        assertEquals("primaire", nom(routage));
+    }
+
+    @Test
+    void seulesLesTransactionsLectureSeuleVontSurLaReplique() {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaire);
+        dataSource.setReadOnlyDataSource(routage(Duration.ofHours(1)));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        TransactionTemplate lecture = new TransactionTemplate(transactionManager);
+        lecture.setReadOnly(true);
+        TransactionTemplate ecriture = new TransactionTemplate(transactionManager);
+
+        assertEquals("replique", lecture.execute(status -> jdbcTemplate.queryForObject("select nom from base",
+                String.class)));
+        assertEquals("primaire", ecriture.execute(status -> jdbcTemplate.queryForObject("select nom from base",
+                String.class)));
+    }
+
+    private ReplicaRoutingDataSource routage(Duration intervalle) {
+        return new ReplicaRoutingDataSource(primaire, replique, connexion -> {
+            mesures.incrementAndGet();
+            return retard.get();
+        }, Duration.ofSeconds(30), intervalle);
+    }
+
+    private String nom(DataSource dataSource) throws SQLException {
+        try (Connection connexion = dataSource.getConnection();
+                Statement statement = connexion.createStatement();
+                ResultSet rs = statement.executeQuery("select nom from base")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private DataSource base(String nom) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + nom + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table base (nom varchar(20))");
+        jdbcTemplate.update("insert into base values (?)", nom);
+        return dataSource;
+    }
+
+    private static class PanneDataSource extends DelegatingDataSource {
+
+        volatile boolean enPanne;
+        final AtomicInteger tentatives = new AtomicInteger();
+
+        PanneDataSource(DataSource cible) {
+            super(cible);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            tentatives.incrementAndGet();
+            if (enPanne) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
+import com.restapi.gestion_bons.entitie.BonDeSortieLigne;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
+import com.restapi.gestion_bons.exception.StatementBudgetExceededException;
+import com.restapi.gestion_bons.metrics.CompteurStatements;
+import com.restapi.gestion_bons.metrics.CompteurStatementsDataSource;
+import com.restapi.gestion_bons.metrics.ServiceMetricsAspect;
+import com.restapi.gestion_bons.service.fifo.FifoAllocationEngine;
+import com.restapi.gestion_bons.service.fifo.FifoStockState;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class ServiceMetricsTest {
+
+    @Mock
+    private StockContract stockService;
+
+    @Mock
+    private LotDAO lotDAO;
+
+    @Mock
+    private StockBatchDAO stockBatchDAO;
+
+    private SimpleMeterRegistry registry;
+    private ServiceMetricsAspect aspect;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        aspect = new ServiceMetricsAspect(registry);
+    }
+
+    @Test
+    void latenceDesContratsParMethodeEtException() {
+        when(stockService.getAlertes()).thenReturn(List.of());
+        when(stockService.getStockByProduitId(99L)).thenThrow(new IllegalArgumentException("inconnu"));
+        StockContract proxy = proxy(stockService);
+
+        proxy.getAlertes();
+        proxy.getAlertes();
+        assertThrows(IllegalArgumentException.class, () -> proxy.getStockByProduitId(99L));
+
+        assertEquals(2, registry.get("stock.service")
+                .tags("contrat", "StockContract", "methode", "getAlertes", "exception", "none")
+                .timer().count());
+        assertEquals(1, registry.get("stock.service")
+                .tags("contrat", "StockContract", "methode", "getStockByProduitId",
+                        "exception", "IllegalArgumentException")
+                .timer().count());
+    }
+
+    @Test
+    void lotsConsommesParBonEtParcourusParLigne() {
+        Produit produit = Produit.builder().id(1L).nom("Produit Test").build();
+        // le lot 4, vide, est encore DISPONIBLE : il est parcouru sans rien donner
+        List<Lot> lots = List.of(lot(4L, produit, 0), lot(1L, produit, 5), lot(2L, produit, 5), lot(3L, produit, 5));
+        when(lotDAO.findByProduitIdInAndStatutOrderByDateEntreeAscIdAsc(anyCollection(), eq(LotStatus.DISPONIBLE)))
+                .thenReturn(lots);
+        FifoAllocationEngine engine = proxy(new FifoAllocationEngine(lotDAO, stockBatchDAO));
+        List<BonDeSortieLigne> lignes = List.of(ligne(produit, 7), ligne(produit, 6));
+
+        FifoStockState stock = engine.charger(lignes);
+        engine.planifier(stock, lignes);
+
+        DistributionSummary consommes = registry.get("stock.fifo.lots.consommes").summary();
+        assertEquals(1, consommes.count());
+        assertEquals(3, consommes.totalAmount(), "Le lot 2 est partagé par les deux lignes");
+        DistributionSummary parcourus = registry.get("stock.fifo.lots.parcourus").summary();
+        assertEquals(2, parcourus.count());
+        assertEquals(5, parcourus.totalAmount(), "Lots 4, 1 et 2 pour la première ligne, 2 et 3 pour la seconde");
+    }
+
+    @Test
+    void mouvementsEcritsParTypeEtLignesReceptionnees() {
+        StockBatchDAO dao = proxy(stockBatchDAO);
+
+        dao.insertMouvements(List.of(mouvement(TypeMouvement.SORTIE), mouvement(TypeMouvement.SORTIE),
+                mouvement(TypeMouvement.ENTREE)));
+        dao.insertLots(List.of(new Lot(), new Lot(), new Lot(), new Lot()));
+
+        assertEquals(2, registry.get("stock.mouvements.ecrits").tag("type", "SORTIE").counter().count());
+        assertEquals(1, registry.get("stock.mouvements.ecrits").tag("type", "ENTREE").counter().count());
+        assertEquals(4, registry.get("stock.reception.lignes").summary().totalAmount());
+    }
+
+    @Test
+    void statementsComptesParPortee() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new CompteurStatementsDataSource(h2));
+        jdbcTemplate.execute("create table if not exists t (v int)");
+
+        CompteurStatements.Portee requete = CompteurStatements.ouvrir();
+        jdbcTemplate.queryForObject("select count(*) from t", Integer.class);
+
+        CompteurStatements.Portee service = CompteurStatements.ouvrir();
+        jdbcTemplate.batchUpdate("insert into t values (?)", List.of(new Object[] { 1 }, new Object[] { 2 },
+                new Object[] { 3 }));
+        jdbcTemplate.update("delete from t");
+        assertEquals(2, CompteurStatements.fermer(service), "Un batch compte pour un seul statement");
+
+        assertEquals(3, CompteurStatements.fermer(requete));
+        assertEquals(0, CompteurStatements.courant());
+    }
+
+    @Test
+    void statementAuDelaDuBudgetRejete() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:budget;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new CompteurStatementsDataSource(h2));
+
+        CompteurStatements.Portee portee = CompteurStatements.ouvrir(2, true);
+        try {
+            jdbcTemplate.queryForObject("select 1", Integer.class);
+            jdbcTemplate.queryForObject("select 2", Integer.class);
+            assertThrows(StatementBudgetExceededException.class,
+                    () -> jdbcTemplate.queryForObject("select 3", Integer.class));
+        } finally {
+            assertEquals(2, CompteurStatements.fermer(portee));
+        }
+        assertTrue(portee.isDepasse());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T cible) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(cible);
+        factory.setProxyTargetClass(!(cible instanceof StockContract));
+        factory.addAspect(aspect);
+        return (T) factory.getProxy();
+    }
+
+    private Lot lot(Long id, Produit produit, int quantite) {
+        return Lot.builder()
+                .id(id)
+                .produit(produit)
+                .quantiteRestante(quantite)
+                .prixAchatUnitaire(BigDecimal.TEN)
+                .statut(LotStatus.DISPONIBLE)
+                .build();
+    }
+
+    private BonDeSortieLigne ligne(Produit produit, int quantite) {
+        return BonDeSortieLigne.builder().produit(produit).quantiteDemandee(quantite).build();
+    }
+
+    private MouvementStock mouvement(TypeMouvement type) {
+        return MouvementStock.builder().typeMouvement(type).quantite(1).build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.restapi.gestion_bons;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Maximum number of JDBC statements the annotated test may execute, setup
+ * methods excluded. Counted by the application DataSource, so MockMvc calls
+ * and direct service calls are both covered; a JDBC batch counts once.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(StatementBudgetExtension.class)
+public @interface StatementBudget {
+
+    int value();
+}
@@ -0,0 +1,37 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import com.restapi.gestion_bons.metrics.CompteurStatements;
+import com.restapi.gestion_bons.util.AppLogger;
+
+/**
+ * Counts the statements executed by a test annotated with
+ * {@link StatementBudget} and fails it when the budget is exceeded.
+ */
+public class StatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(StatementBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), CompteurStatements.ouvrir());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        CompteurStatements.Portee portee = context.getStore(NAMESPACE)
+                .remove(context.getUniqueId(), CompteurStatements.Portee.class);
+        int statements = CompteurStatements.fermer(portee);
+        int budget = context.getRequiredTestMethod().getAnnotation(StatementBudget.class).value();
+
+        AppLogger.info(context.getDisplayName() + ": " + statements + " requêtes SQL (budget " + budget + ")");
+        assertTrue(statements <= budget, context.getDisplayName() + " a exécuté " + statements
+                + " requêtes SQL pour un budget de " + budget);
+    }
+}
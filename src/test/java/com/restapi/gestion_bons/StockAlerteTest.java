@@ -0,0 +1,201 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockAlerteDAO;
+import com.restapi.gestion_bons.dto.stock.StockAlertDTO;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.metrics.CompteurStatements;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+/**
+ * The alert index follows the stock changes of the products crossing their
+ * reorder point, once committed, and serves the alerts without a query.
+ */
+@AutoConfigureMockMvc
+public class StockAlerteTest extends AbstractMariaDBTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private StockAlerteDAO stockAlerteDAO;
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+
+    @Autowired
+    private StockContract stockService;
+
+    @Autowired
+    private StockAlerteService stockAlerteService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Produit produit;
+
+    @BeforeEach
+    void setUp() {
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        produit = produitDAO.save(Produit.builder()
+                .reference("ALERTE-" + suffixe)
+                .nom("Produit alerte " + suffixe)
+                .reorderPoint(10)
+                .build());
+    }
+
+    @Test
+    void alerteOuverteMiseAJourPuisLevee() {
+        Lot lot = recevoir(4);
+        StockAlertDTO alerte = alerte().orElseThrow();
+        assertEquals(4, alerte.getStockActuel());
+        assertEquals(6, alerte.getQuantiteAReapprovisionner());
+        assertTrue(stockAlerteDAO.existsById(produit.getId()));
+
+        Lot second = recevoir(3);
+        assertEquals(7, alerte().orElseThrow().getStockActuel());
+
+        second.setQuantiteRestante(10);
+        second = lotDAO.save(second);
+        stockBalanceService.recalculer(List.of(produit.getId()));
+        assertTrue(alerte().isEmpty(), "14 unités pour un seuil de 10");
+        assertFalse(stockAlerteDAO.existsById(produit.getId()));
+
+        lot.setQuantiteRestante(0);
+        lot.setStatut(LotStatus.EPUISE);
+        lotDAO.save(lot);
+        second.setQuantiteRestante(9);
+        lotDAO.save(second);
+        stockBalanceService.recalculer(List.of(produit.getId()));
+        assertEquals(9, alerte().orElseThrow().getStockActuel());
+    }
+
+    @Test
+    void indexInchangeTantQueLaTransactionNEstPasValidee() {
+        recevoir(4);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Lot lot = lotDAO.save(lot(20));
+            stockBalanceService.enregistrerEntrees(List.of(lot));
+            assertTrue(alerte().isPresent(), "Pas encore validée");
+            status.setRollbackOnly();
+        });
+
+        assertEquals(4, alerte().orElseThrow().getStockActuel());
+        assertTrue(stockAlerteDAO.existsById(produit.getId()));
+    }
+
+    @Test
+    void reconciliationRepriseLesAlertesDUneAutreInstance() {
+        recevoir(12);
+        assertTrue(alerte().isEmpty());
+
+        // écrite par une autre instance : cet index n'en sait rien avant la réconciliation
+        jdbcTemplate.update("INSERT INTO stock_alerte (produit_id, stock_actuel, seuil, date_alerte) "
+                + "VALUES (?, 4, 10, CURRENT_TIMESTAMP)", produit.getId());
+        assertTrue(alerte().isEmpty());
+
+        stockAlerteService.reconcilier();
+        assertEquals(4, alerte().orElseThrow().getStockActuel());
+
+        stockAlerteDAO.deleteById(produit.getId());
+        stockAlerteService.reconcilier();
+        assertTrue(alerte().isEmpty());
+    }
+
+    @Test
+    void alertesServiesSansRequete() {
+        recevoir(2);
+
+        CompteurStatements.Portee portee = CompteurStatements.ouvrir();
+        try {
+            assertTrue(alerte().isPresent());
+        } finally {
+            CompteurStatements.fermer(portee);
+        }
+        assertEquals(0, portee.getStatements());
+    }
+
+    @Test
+    void fluxDesAlertes() throws Exception {
+        MockHttpServletResponse reponse = mockMvc.perform(get("/v1/stock/alertes/flux"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        attendre(reponse, "event:alertes");
+
+        recevoir(5);
+
+        String flux = attendre(reponse, "\"type\":\"OUVERTE\"");
+        assertTrue(flux.contains("\"produitId\":" + produit.getId()));
+    }
+
+    private Optional<StockAlertDTO> alerte() {
+        return stockService.getAlertes().stream()
+                .filter(a -> a.getProduitId().equals(produit.getId()))
+                .findFirst();
+    }
+
+    private Lot recevoir(int quantite) {
+        return transactionTemplate.execute(status -> {
+            Lot lot = lotDAO.save(lot(quantite));
+            stockBalanceService.enregistrerEntrees(List.of(lot));
+            return lot;
+        });
+    }
+
+    private Lot lot(int quantite) {
+        return Lot.builder()
+                .numeroLot("LOT-" + UUID.randomUUID())
+                .dateEntree(LocalDateTime.now())
+                .quantiteInitiale(quantite)
+                .quantiteRestante(quantite)
+                .prixAchatUnitaire(BigDecimal.TEN)
+                .produit(produit)
+                .statut(LotStatus.DISPONIBLE)
+                .build();
+    }
+
+    private static String attendre(MockHttpServletResponse reponse, String attendu) throws Exception {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        String contenu = reponse.getContentAsString();
+        while (!contenu.contains(attendu) && System.nanoTime() < limite) {
+            Thread.sleep(20);
+            contenu = reponse.getContentAsString();
+        }
+        assertTrue(contenu.contains(attendu), () -> "Attendu dans le flux: " + attendu);
+        return contenu;
+    }
+}
@@ -0,0 +1,103 @@
+package com.restapi.gestion_bons;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+/**
+ * The balance reconciliation only lists the differences on GET; the POST
+ * recomputes the balances in error.
+ */
+@AutoConfigureMockMvc
+public class StockBalanceReconciliationTest extends AbstractMariaDBTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Produit produit;
+
+    @BeforeEach
+    void setUp() {
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        produit = produitDAO.save(Produit.builder()
+                .reference("RECONCILE-" + suffixe)
+                .nom("Produit reconciliation " + suffixe)
+                .reorderPoint(10)
+                .build());
+        transactionTemplate.executeWithoutResult(status -> {
+            Lot lot = lotDAO.save(Lot.builder()
+                    .numeroLot("LOT-" + UUID.randomUUID())
+                    .dateEntree(LocalDateTime.now())
+                    .quantiteInitiale(4)
+                    .quantiteRestante(4)
+                    .prixAchatUnitaire(BigDecimal.TEN)
+                    .produit(produit)
+                    .statut(LotStatus.DISPONIBLE)
+                    .build());
+            stockBalanceService.enregistrerEntrees(List.of(lot));
+        });
+        jdbcTemplate.update("UPDATE stock_balance SET quantite_disponible = 7 WHERE produit_id = ?", produit.getId());
+    }
+
+    @Test
+    void lectureNeCorrigePas() throws Exception {
+        String ecart = "$[?(@.produitId == " + produit.getId() + ")]";
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/v1/stock/balances/reconcile"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath(ecart + ".quantiteEnregistree", contains(7)))
+                    .andExpect(jsonPath(ecart + ".corrige", contains(false)));
+        }
+    }
+
+    @Test
+    void postCorrigeLesBalancesEnEcart() throws Exception {
+        String ecart = "$[?(@.produitId == " + produit.getId() + ")]";
+        mockMvc.perform(post("/v1/stock/balances/reconcile"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(ecart + ".quantiteAttendue", contains(4)))
+                .andExpect(jsonPath(ecart + ".corrige", contains(true)));
+
+        mockMvc.perform(get("/v1/stock/balances/reconcile"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(ecart, empty()));
+    }
+}
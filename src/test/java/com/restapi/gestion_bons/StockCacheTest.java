@@ -0,0 +1,184 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.restapi.gestion_bons.config.CacheConfig;
+import com.restapi.gestion_bons.contracts.StockContract;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockVersionDAO;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.metrics.CompteurStatements;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The stock detail and valuation are served from the cache, after reading
+ * the stock version alone, until a stock change commits on this instance or
+ * another; a rolled-back change leaves the cached entries in place.
+ */
+public class StockCacheTest extends AbstractMariaDBTest {
+
+    @Autowired
+    private StockContract stockService;
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StockVersionDAO stockVersionDAO;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Produit produit;
+
+    @BeforeEach
+    void setUp() {
+        // chaque lecture tient lieu d'une requête HTTP distincte : pas de version mémorisée pour la méthode
+        RequestContextHolder.resetRequestAttributes();
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        produit = produitDAO.save(Produit.builder()
+                .reference("CACHE-STOCK-" + suffixe)
+                .nom("Produit cache stock " + suffixe)
+                .reorderPoint(10)
+                .build());
+        recevoir(4);
+    }
+
+    @Test
+    void lecturesRepeteesServiesParLeCache() {
+        assertEquals(4, stockService.getStockByProduitId(produit.getId()).getQuantiteTotale());
+        double hitsAvant = hits(CacheConfig.STOCK_PRODUITS);
+
+        assertEquals(1, statements(() -> stockService.getStockByProduitId(produit.getId())));
+        assertEquals(1, hits(CacheConfig.STOCK_PRODUITS) - hitsAvant);
+    }
+
+    @Test
+    void changementValideParUneAutreInstanceRecharge() {
+        assertEquals(4, stockService.getStockByProduitId(produit.getId()).getQuantiteTotale());
+
+        // écrit par une autre instance : le cache de celle-ci n'est pas évincé, seule la version avance
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE lot SET quantite_restante = 9 WHERE produit_id = ?", produit.getId());
+            stockVersionDAO.avancer(List.of(produit.getId()));
+        });
+
+        assertEquals(9, stockService.getStockByProduitId(produit.getId()).getQuantiteTotale());
+    }
+
+    @Test
+    void receptionValideeEvinceLeProduitEtLaValorisation() {
+        stockService.getStockByProduitId(produit.getId());
+        BigDecimal avant = stockService.getValorisation().getValorisationTotale();
+
+        recevoir(3);
+
+        assertEquals(7, stockService.getStockByProduitId(produit.getId()).getQuantiteTotale());
+        assertEquals(0, avant.add(new BigDecimal("30")).compareTo(stockService.getValorisation().getValorisationTotale()));
+    }
+
+    @Test
+    void transactionAnnuleeNEvincePas() {
+        stockService.getStockByProduitId(produit.getId());
+        double hitsAvant = hits(CacheConfig.STOCK_PRODUITS);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Lot lot = lotDAO.save(lot(20));
+            stockBalanceService.enregistrerEntrees(List.of(lot));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, statements(() -> assertEquals(4,
+                stockService.getStockByProduitId(produit.getId()).getQuantiteTotale())));
+        assertEquals(1, hits(CacheConfig.STOCK_PRODUITS) - hitsAvant);
+    }
+
+    @Test
+    void lectureSansChargeurVerifieLaVersion() {
+        Cache cache = cacheManager.getCache(CacheConfig.STOCK_PRODUITS);
+        Long cle = produit.getId();
+
+        cache.put(cle, "sans lecture préalable");
+        assertNull(cache.get(cle));
+
+        cache.put(cle, "lu après un miss");
+        assertEquals("lu après un miss", cache.get(cle, String.class));
+
+        transactionTemplate.executeWithoutResult(status -> stockVersionDAO.avancer(List.of(cle)));
+
+        assertNull(cache.get(cle));
+    }
+
+    private void recevoir(int quantite) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Lot lot = lotDAO.save(lot(quantite));
+            stockBalanceService.enregistrerEntrees(List.of(lot));
+        });
+    }
+
+    private Lot lot(int quantite) {
+        return Lot.builder()
+                .numeroLot("LOT-" + UUID.randomUUID())
+                .dateEntree(LocalDateTime.now())
+                .quantiteInitiale(quantite)
+                .quantiteRestante(quantite)
+                .prixAchatUnitaire(BigDecimal.TEN)
+                .produit(produit)
+                .statut(LotStatus.DISPONIBLE)
+                .build();
+    }
+
+    private static int statements(Runnable lecture) {
+        CompteurStatements.Portee portee = CompteurStatements.ouvrir();
+        try {
+            lecture.run();
+        } finally {
+            CompteurStatements.fermer(portee);
+        }
+        return portee.getStatements();
+    }
+
+    private double hits(String cache) {
+        FunctionCounter counter = meterRegistry.find("cache.gets")
+                .tag("cache", cache)
+                .tag("result", "hit")
+                .functionCounter();
+        assertNotNull(counter, "Les métriques du cache doivent être publiées");
+        return counter.count();
+    }
+}
@@ -0,0 +1,167 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockVersionDAO;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.metrics.CompteurStatements;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+/**
+ * Conditional GETs of the stock reads: a matching If-None-Match gets a 304
+ * after reading the stock version alone, until a stock change of the
+ * resource commits, on this instance or another.
+ */
+@AutoConfigureMockMvc
+public class StockETagTest extends AbstractMariaDBTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+
+    @Autowired
+    private StockVersionDAO stockVersionDAO;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Produit premier;
+    private Produit second;
+
+    @BeforeEach
+    void setUp() {
+        premier = produit();
+        second = produit();
+        recevoir(premier, 4);
+        recevoir(second, 4);
+    }
+
+    @Test
+    void nonModifieApresLaSeuleLectureDeLaVersion() throws Exception {
+        String etag = etag("/v1/stock/valorisation");
+
+        CompteurStatements.Portee portee = CompteurStatements.ouvrir();
+        try {
+            mockMvc.perform(get("/v1/stock/valorisation").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag));
+        } finally {
+            CompteurStatements.fermer(portee);
+        }
+        assertEquals(1, portee.getStatements());
+    }
+
+    @Test
+    void changementValideParUneAutreInstanceChangeLEtag() throws Exception {
+        String stockPremier = etag("/v1/stock/produit/" + premier.getId());
+        String stockSecond = etag("/v1/stock/produit/" + second.getId());
+
+        // la version partagée avance sans passer par cette instance
+        transactionTemplate.executeWithoutResult(status -> stockVersionDAO.avancer(List.of(premier.getId())));
+
+        assertNotEquals(stockPremier, modifie("/v1/stock/produit/" + premier.getId(), stockPremier));
+        mockMvc.perform(get("/v1/stock/produit/{id}", second.getId()).header(HttpHeaders.IF_NONE_MATCH, stockSecond))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void receptionChangeLEtagDuProduitRecuSeulement() throws Exception {
+        String stockPremier = etag("/v1/stock/produit/" + premier.getId());
+        String stockSecond = etag("/v1/stock/produit/" + second.getId());
+        String produitSecond = etag("/v1/produits/" + second.getId());
+        String valorisation = etag("/v1/stock/valorisation");
+
+        recevoir(premier, 3);
+
+        assertNotEquals(stockPremier, modifie("/v1/stock/produit/" + premier.getId(), stockPremier));
+        assertNotEquals(valorisation, modifie("/v1/stock/valorisation", valorisation));
+        mockMvc.perform(get("/v1/stock/produit/{id}", second.getId()).header(HttpHeaders.IF_NONE_MATCH, stockSecond))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/v1/produits/{id}", second.getId()).header(HttpHeaders.IF_NONE_MATCH, produitSecond))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void transactionAnnuleeGardeLEtag() throws Exception {
+        String etag = etag("/v1/stock/produit/" + premier.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Lot lot = lotDAO.save(lot(premier, 20));
+            stockBalanceService.enregistrerEntrees(List.of(lot));
+            status.setRollbackOnly();
+        });
+
+        mockMvc.perform(get("/v1/stock/produit/{id}", premier.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    private String etag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag, () -> "ETag attendu sur " + url);
+        return etag;
+    }
+
+    private String modifie(String url, String etag) throws Exception {
+        return mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private Produit produit() {
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        return produitDAO.save(Produit.builder()
+                .reference("ETAG-" + suffixe)
+                .nom("Produit etag " + suffixe)
+                .reorderPoint(10)
+                .build());
+    }
+
+    private void recevoir(Produit produit, int quantite) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Lot lot = lotDAO.save(lot(produit, quantite));
+            stockBalanceService.enregistrerEntrees(List.of(lot));
+        });
+    }
+
+    private Lot lot(Produit produit, int quantite) {
+        return Lot.builder()
+                .numeroLot("LOT-" + UUID.randomUUID())
+                .dateEntree(LocalDateTime.now())
+                .quantiteInitiale(quantite)
+                .quantiteRestante(quantite)
+                .prixAchatUnitaire(BigDecimal.TEN)
+                .produit(produit)
+                .statut(LotStatus.DISPONIBLE)
+                .build();
+    }
+}
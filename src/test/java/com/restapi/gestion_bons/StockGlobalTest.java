@@ -0,0 +1,79 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.restapi.gestion_bons.dao.StockBalanceDAO;
+import com.restapi.gestion_bons.dto.stock.StockGlobalDTO;
+import com.restapi.gestion_bons.service.stock.StockService;
+
+@ExtendWith(MockitoExtension.class)
+public class StockGlobalTest {
+
+    @Mock
+    private StockBalanceDAO stockBalanceDAO;
+
+    @InjectMocks
+    private StockService stockService;
+
+    private final StockGlobalDTO ligne = new StockGlobalDTO(1L, "REF001", "Produit Test", 400,
+            new BigDecimal("5240.00"), 3);
+
+    @Test
+    void testStockGlobal_PageTraduitLesTrisEnExpressions() {
+        when(stockBalanceDAO.findStockGlobal(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(ligne)));
+
+        Page<StockGlobalDTO> page = stockService.getStockGlobal(
+                PageRequest.of(2, 50, Sort.by(Sort.Direction.DESC, "quantiteDisponible")));
+
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(stockBalanceDAO).findStockGlobal(captor.capture());
+        Pageable demande = captor.getValue();
+        assertEquals(2, demande.getPageNumber());
+        assertEquals(50, demande.getPageSize());
+        List<Sort.Order> ordres = demande.getSort().toList();
+        assertEquals("coalesce(b.quantiteDisponible, 0)", ordres.get(0).getProperty());
+        assertEquals(Sort.Direction.DESC, ordres.get(0).getDirection());
+        assertEquals("id", ordres.get(1).getProperty(), "L'id doit départager les lignes de même valeur");
+        assertEquals(List.of(ligne), page.getContent());
+    }
+
+    @Test
+    void testStockGlobal_TriInconnuRefuse() {
+        Pageable pageable = PageRequest.of(0, 20, Sort.by("prixAchatUnitaire"));
+
+        assertThrows(IllegalArgumentException.class, () -> stockService.getStockGlobal(pageable));
+        verifyNoInteractions(stockBalanceDAO);
+    }
+
+    @Test
+    void testStockGlobal_ParcoursSansListeEtFermeLeCurseur() {
+        AtomicBoolean ferme = new AtomicBoolean();
+        when(stockBalanceDAO.streamStockGlobal()).thenReturn(Stream.of(ligne).onClose(() -> ferme.set(true)));
+
+        List<StockGlobalDTO> recues = new ArrayList<>();
+        stockService.parcourirStockGlobal(recues::add);
+
+        assertEquals(List.of(ligne), recues);
+        assertTrue(ferme.get(), "Le curseur doit être fermé après le parcours");
+    }
+}
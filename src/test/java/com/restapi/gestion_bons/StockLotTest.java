@@ -26,17 +26,25 @@ import com.restapi.gestion_bons.dao.LigneCommandeDAO;
 import com.restapi.gestion_bons.dao.LotDAO;
 import com.restapi.gestion_bons.dao.MouvementStockDAO;
 import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
 import com.restapi.gestion_bons.dto.commandefournisseur.CommandeFournisseurResponseDTO;
+import com.restapi.gestion_bons.dto.lot.BaseLotDTO;
+import com.restapi.gestion_bons.dto.lot.ResponseLotDTO;
 import com.restapi.gestion_bons.entitie.CommandeFournisseur;
 import com.restapi.gestion_bons.entitie.Fournisseur;
 import com.restapi.gestion_bons.entitie.LigneCommande;
 import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.MouvementStock;
 import com.restapi.gestion_bons.entitie.Produit;
 import com.restapi.gestion_bons.entitie.enums.CommandeStatus;
+import com.restapi.gestion_bons.entitie.enums.TypeMouvement;
 import com.restapi.gestion_bons.mapper.CommandeFournisseurMapper;
 import com.restapi.gestion_bons.mapper.LigneCommandeMapper;
+import com.restapi.gestion_bons.mapper.LotMapper;
 import com.restapi.gestion_bons.service.commandeFournisseur.CommandeFournisseurService;
 import com.restapi.gestion_bons.service.fournisseur.FournisseurService;
+import com.restapi.gestion_bons.service.lot.LotService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
 import com.restapi.gestion_bons.util.LotHelper;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -44,7 +52,7 @@ import jakarta.persistence.EntityNotFoundException;
 @ExtendWith(MockitoExtension.class)
 public class StockLotTest {
     @Mock
-    private LotDAO lotDAO;
+    private StockBatchDAO stockBatchDAO;
 
     @Mock
     private ProduitDAO produitDAO;
@@ -58,9 +66,6 @@ public class StockLotTest {
     @Mock
     private CommandeFournisseurDAO commandeFournisseurDAO;
 
-    @Mock
-    private MouvementStockDAO mouvementStockDAO;
-
     @Mock
     private CommandeFournisseurMapper commandeFournisseurMapper;
 
@@ -73,6 +78,18 @@ public class StockLotTest {
     @Mock
     private LigneCommandeMapper ligneCommandeMapper;
 
+    @Mock
+    private StockBalanceService stockBalanceService;
+
+    @Mock
+    private LotDAO lotDAO;
+
+    @Mock
+    private LotMapper lotMapper;
+
+    @Mock
+    private MouvementStockDAO mouvementStockDAO;
+
     @InjectMocks
     private CommandeFournisseurService commandeFournisseurService;
 
@@ -136,7 +153,9 @@ public class StockLotTest {
 
         assertNotNull(result);
         verify(lotHelper, times(1)).createLotsFromLignesCommande(commandeValidee);
-        verify(lotDAO, times(1)).saveAll(lotsGeneres);
+        verify(stockBatchDAO, times(1)).insertLots(lotsGeneres);
+        verify(stockBatchDAO, times(1)).insertMouvements(argThat(mvms -> mvms.size() == lotsGeneres.size()));
+        verify(stockBalanceService, times(1)).enregistrerEntrees(lotsGeneres);
         verify(commandeFournisseurDAO, times(1)).save(argThat(cmd -> cmd.getStatut() == CommandeStatus.LIVREE));
     }
 
@@ -152,7 +171,7 @@ public class StockLotTest {
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<Lot>> lotCaptor = ArgumentCaptor.forClass(List.class);
-        verify(lotDAO).saveAll(lotCaptor.capture());
+        verify(stockBatchDAO).insertLots(lotCaptor.capture());
 
         List<Lot> lotsSauvegardes = lotCaptor.getValue();
         assertFalse(lotsSauvegardes.isEmpty());
@@ -174,7 +193,7 @@ public class StockLotTest {
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<Lot>> lotCaptor = ArgumentCaptor.forClass(List.class);
-        verify(lotDAO).saveAll(lotCaptor.capture());
+        verify(stockBatchDAO).insertLots(lotCaptor.capture());
 
         List<Lot> lotsSauvegardes = lotCaptor.getValue();
         Lot lot = lotsSauvegardes.get(0);
@@ -195,7 +214,7 @@ public class StockLotTest {
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<Lot>> lotCaptor = ArgumentCaptor.forClass(List.class);
-        verify(lotDAO).saveAll(lotCaptor.capture());
+        verify(stockBatchDAO).insertLots(lotCaptor.capture());
 
         List<Lot> lotsSauvegardes = lotCaptor.getValue();
         Lot lot = lotsSauvegardes.get(0);
@@ -217,7 +236,7 @@ public class StockLotTest {
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<Lot>> lotCaptor = ArgumentCaptor.forClass(List.class);
-        verify(lotDAO).saveAll(lotCaptor.capture());
+        verify(stockBatchDAO).insertLots(lotCaptor.capture());
 
         List<Lot> lotsSauvegardes = lotCaptor.getValue();
         Lot lot = lotsSauvegardes.get(0);
@@ -237,7 +256,7 @@ public class StockLotTest {
         });
 
         assertEquals("Can only receive VALIDEE orders", exception.getMessage());
-        verify(lotDAO, never()).saveAll(anyList());
+        verify(stockBatchDAO, never()).insertLots(anyList());
     }
 
     @Test
@@ -249,7 +268,7 @@ public class StockLotTest {
         });
 
         assertEquals("Commande not found", exception.getMessage());
-        verify(lotDAO, never()).saveAll(anyList());
+        verify(stockBatchDAO, never()).insertLots(anyList());
     }
 
     @Test
@@ -282,7 +301,7 @@ public class StockLotTest {
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<Lot>> lotCaptor = ArgumentCaptor.forClass(List.class);
-        verify(lotDAO).saveAll(lotCaptor.capture());
+        verify(stockBatchDAO).insertLots(lotCaptor.capture());
 
         List<Lot> lotsSauvegardes = lotCaptor.getValue();
         Lot lot = lotsSauvegardes.get(0);
@@ -292,4 +311,51 @@ public class StockLotTest {
         assertEquals(ligneCommande.getQuantiteCommandee(), lot.getQuantiteRestante(),
                 "La quantité disponible du lot doit être égale à la quantité initiale");
     }
+
+    @Test
+    void testModificationLot_MemeProduitRecalculeUneFoisEtAjusteLeGrandLivre() {
+        LotService lotService = new LotService(lotDAO, lotMapper, stockBalanceService, stockBatchDAO,
+                mouvementStockDAO);
+        Lot existant = lotsGeneres.get(0);
+        BaseLotDTO dto = BaseLotDTO.builder()
+                .produitId(produit.getId())
+                .quantiteInitiale(100)
+                .quantiteRestante(80)
+                .prixAchatUnitaire(new BigDecimal("15.50"))
+                .build();
+        Lot modifie = Lot.builder()
+                .id(existant.getId())
+                .produit(produit)
+                .quantiteInitiale(100)
+                .quantiteRestante(80)
+                .prixAchatUnitaire(new BigDecimal("15.50"))
+                .build();
+        when(lotDAO.findById(existant.getId())).thenReturn(Optional.of(existant));
+        when(lotMapper.toEntity(dto)).thenReturn(modifie);
+        when(lotDAO.saveAndFlush(modifie)).thenReturn(modifie);
+        when(lotMapper.toResponseDto(modifie)).thenReturn(new ResponseLotDTO());
+
+        lotService.update(existant.getId(), dto, null);
+
+        verify(stockBalanceService).recalculer(argThat(ids -> ids.size() == 1 && ids.contains(produit.getId())));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MouvementStock>> mouvementCaptor = ArgumentCaptor.forClass(List.class);
+        verify(stockBatchDAO).insertMouvements(mouvementCaptor.capture());
+        List<MouvementStock> ajustements = mouvementCaptor.getValue();
+        assertEquals(1, ajustements.size(), "Un seul mouvement pour l'écart de quantité");
+        assertEquals(TypeMouvement.SORTIE, ajustements.get(0).getTypeMouvement());
+        assertEquals(20, ajustements.get(0).getQuantite());
+    }
+
+    @Test
+    void testSuppressionLot_RefuseeSiLeLotADesMouvements() {
+        LotService lotService = new LotService(lotDAO, lotMapper, stockBalanceService, stockBatchDAO,
+                mouvementStockDAO);
+        Lot existant = lotsGeneres.get(0);
+        when(lotDAO.findById(existant.getId())).thenReturn(Optional.of(existant));
+        when(mouvementStockDAO.existsByLotId(existant.getId())).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> lotService.delete(existant.getId()));
+        verify(lotDAO, never()).delete(any(Lot.class));
+    }
 }
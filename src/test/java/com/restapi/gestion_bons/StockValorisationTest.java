@@ -6,33 +6,36 @@ import static org.mockito.Mockito.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import com.restapi.gestion_bons.dao.LotDAO;
 import com.restapi.gestion_bons.dao.MouvementStockDAO;
 import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dao.StockBalanceDAO;
+import com.restapi.gestion_bons.dao.StockBatchDAO;
 import com.restapi.gestion_bons.dto.stock.StockProduitDetailDTO;
 import com.restapi.gestion_bons.dto.stock.StockValorisationDTO;
 import com.restapi.gestion_bons.entitie.Lot;
 import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.StockBalance;
 import com.restapi.gestion_bons.entitie.enums.LotStatus;
 import com.restapi.gestion_bons.mapper.MouvementStockMapper;
+import com.restapi.gestion_bons.service.stock.StockAlerteService;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
 import com.restapi.gestion_bons.service.stock.StockService;
 
 @ExtendWith(MockitoExtension.class)
 public class StockValorisationTest {
 
-    @Mock
-    private LotDAO lotDAO;
-
     @Mock
     private ProduitDAO produitDAO;
 
@@ -42,6 +45,15 @@ public class StockValorisationTest {
     @Mock
     private MouvementStockMapper mouvementStockMapper;
 
+    @Mock
+    private StockBalanceDAO stockBalanceDAO;
+
+    @Mock
+    private StockBalanceService stockBalanceService;
+
+    @Mock
+    private StockBatchDAO stockBatchDAO;
+
     @InjectMocks
     private StockService stockService;
 
@@ -96,7 +108,7 @@ public class StockValorisationTest {
 
     @Test
     void testValorisationTotaleStock_AvecPlusieursLots() {
-        when(lotDAO.findByStatut(LotStatus.DISPONIBLE)).thenReturn(lotsMultiplesPrix);
+        balancesDepuis(lotsMultiplesPrix);
 
         StockValorisationDTO result = stockService.getValorisation();
 
@@ -111,8 +123,9 @@ public class StockValorisationTest {
 
     @Test
     void testValorisationFIFO_ProduitDetail() {
-        when(produitDAO.findById(1L)).thenReturn(java.util.Optional.of(produit));
-        when(lotDAO.findByProduitIdOrderByDateEntreeAsc(1L)).thenReturn(lotsMultiplesPrix);
+        produit.getLots().addAll(lotsMultiplesPrix);
+        when(produitDAO.findWithLotsById(1L)).thenReturn(java.util.Optional.of(produit));
+        balancesDepuis(lotsMultiplesPrix);
 
         StockProduitDetailDTO result = stockService.getStockByProduitId(1L);
 
@@ -125,8 +138,8 @@ public class StockValorisationTest {
 
     @Test
     void testValorisationFIFO_OrdreLotsPrisEnCompte() {
-        when(produitDAO.findById(1L)).thenReturn(java.util.Optional.of(produit));
-        when(lotDAO.findByProduitIdOrderByDateEntreeAsc(1L)).thenReturn(lotsMultiplesPrix);
+        produit.getLots().addAll(lotsMultiplesPrix);
+        when(produitDAO.findWithLotsById(1L)).thenReturn(java.util.Optional.of(produit));
 
         StockProduitDetailDTO result = stockService.getStockByProduitId(1L);
 
@@ -176,7 +189,7 @@ public class StockValorisationTest {
                 .build();
 
         List<Lot> lots = Arrays.asList(lotBas, lotMoyen, lotHaut);
-        when(lotDAO.findByStatut(LotStatus.DISPONIBLE)).thenReturn(lots);
+        balancesDepuis(lots);
 
         StockValorisationDTO result = stockService.getValorisation();
 
@@ -186,7 +199,7 @@ public class StockValorisationTest {
 
     @Test
     void testValorisationStockVide() {
-        when(lotDAO.findByStatut(LotStatus.DISPONIBLE)).thenReturn(Collections.emptyList());
+        balancesDepuis(Collections.emptyList());
 
         StockValorisationDTO result = stockService.getValorisation();
 
@@ -208,7 +221,7 @@ public class StockValorisationTest {
                 .statut(LotStatus.DISPONIBLE)
                 .build();
 
-        when(lotDAO.findByStatut(LotStatus.DISPONIBLE)).thenReturn(Collections.singletonList(lotUnique));
+        balancesDepuis(Collections.singletonList(lotUnique));
 
         StockValorisationDTO result = stockService.getValorisation();
 
@@ -254,8 +267,8 @@ public class StockValorisationTest {
                 .build();
 
         List<Lot> lots = Arrays.asList(lotEpuise, lotDisponible1, lotDisponible2);
-        when(produitDAO.findById(1L)).thenReturn(java.util.Optional.of(produit));
-        when(lotDAO.findByProduitIdOrderByDateEntreeAsc(1L)).thenReturn(lots);
+        produit.getLots().addAll(lots);
+        when(produitDAO.findWithLotsById(1L)).thenReturn(java.util.Optional.of(produit));
 
         StockProduitDetailDTO result = stockService.getStockByProduitId(1L);
 
@@ -267,7 +280,7 @@ public class StockValorisationTest {
 
     @Test
     void testMethodeValorisationEstFIFO() {
-        when(lotDAO.findByStatut(LotStatus.DISPONIBLE)).thenReturn(lotsMultiplesPrix);
+        balancesDepuis(lotsMultiplesPrix);
 
         StockValorisationDTO result = stockService.getValorisation();
 
@@ -296,7 +309,7 @@ public class StockValorisationTest {
                 .statut(LotStatus.DISPONIBLE)
                 .build();
 
-        when(lotDAO.findByStatut(LotStatus.DISPONIBLE)).thenReturn(Arrays.asList(lot2, lot1));
+        balancesDepuis(Arrays.asList(lot2, lot1));
 
         StockValorisationDTO result = stockService.getValorisation();
 
@@ -337,11 +350,49 @@ public class StockValorisationTest {
                 .statut(LotStatus.DISPONIBLE)
                 .build();
 
-        when(lotDAO.findByStatut(LotStatus.DISPONIBLE)).thenReturn(Arrays.asList(lot1, lot2, lot3));
+        balancesDepuis(Arrays.asList(lot1, lot2, lot3));
 
         StockValorisationDTO result = stockService.getValorisation();
 
         assertEquals(2, result.getNombreProduitsDistincts());
         assertEquals(3, result.getNombreLotsActifs());
     }
+
+    /**
+     * Passe les lots par la réception (deltas de balance) puis simule
+     * l'agrégation SQL des balances lue par getValorisation.
+     */
+    @SuppressWarnings("unchecked")
+    private void balancesDepuis(List<Lot> lots) {
+        new StockBalanceService(stockBalanceDAO, stockBatchDAO, mock(StockAlerteService.class))
+                .enregistrerEntrees(lots);
+
+        ArgumentCaptor<Collection<StockBalance>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(stockBatchDAO, atMost(1)).upsertBalances(captor.capture());
+        List<StockBalance> balances = captor.getAllValues().stream().flatMap(Collection::stream).toList();
+
+        BigDecimal valorisation = balances.stream().map(StockBalance::getValorisation)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long nombreProduits = balances.stream().filter(b -> b.getNombreLotsActifs() > 0).count();
+        long quantite = balances.stream().mapToLong(StockBalance::getQuantiteDisponible).sum();
+        long nombreLots = balances.stream().mapToLong(StockBalance::getNombreLotsActifs).sum();
+
+        when(stockBalanceDAO.calculerTotaux()).thenReturn(new StockBalanceDAO.Totaux() {
+            public BigDecimal getValorisation() {
+                return valorisation;
+            }
+
+            public Long getNombreProduits() {
+                return nombreProduits;
+            }
+
+            public Long getQuantite() {
+                return quantite;
+            }
+
+            public Long getNombreLots() {
+                return nombreLots;
+            }
+        });
+    }
 }
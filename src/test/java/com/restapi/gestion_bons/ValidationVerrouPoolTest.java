@@ -0,0 +1,177 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.restapi.gestion_bons.config.DataSourceConfig;
+import com.restapi.gestion_bons.contracts.BonDeSortieContract;
+import com.restapi.gestion_bons.dao.AtelierDAO;
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieCreateDTO;
+import com.restapi.gestion_bons.dto.bondesortie.BonDeSortieLigneDTO;
+import com.restapi.gestion_bons.entitie.Atelier;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Many more concurrent validations on one product than pooled connections:
+ * the threads waiting for the product lock hold no connection, so none of
+ * them times out on the pool, and the lots are still consumed in FIFO order.
+ */
+@ActiveProfiles("pool")
+@TestPropertySource(properties = {
+        "spring.datasource.hikari.maximum-pool-size=3",
+        "spring.datasource.hikari.connection-timeout=1000"
+})
+public class ValidationVerrouPoolTest extends AbstractMariaDBTest {
+
+    private static final int NOMBRE_LOTS = 10;
+    private static final int QUANTITE_PAR_LOT = 10;
+    private static final int NOMBRE_BONS = 60;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private BonDeSortieContract bonDeSortieService;
+
+    @Autowired
+    private ProduitDAO produitDAO;
+
+    @Autowired
+    private AtelierDAO atelierDAO;
+
+    @Autowired
+    private LotDAO lotDAO;
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void validationsConcurrentesNEpuisentPasLePool() throws InterruptedException {
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        Produit produit = produitDAO.save(Produit.builder()
+                .reference("POOL-" + suffixe)
+                .nom("Produit pool " + suffixe)
+                .reorderPoint(0)
+                .build());
+        Atelier atelier = atelierDAO.save(Atelier.builder().nom("Atelier pool " + suffixe).build());
+
+        List<Lot> lots = new ArrayList<>();
+        for (int i = 0; i < NOMBRE_LOTS; i++) {
+            lots.add(Lot.builder()
+                    .numeroLot("LOT-POOL-" + suffixe + "-" + i)
+                    .dateEntree(LocalDateTime.now().minusDays(NOMBRE_LOTS - i))
+                    .quantiteInitiale(QUANTITE_PAR_LOT)
+                    .quantiteRestante(QUANTITE_PAR_LOT)
+                    .prixAchatUnitaire(BigDecimal.valueOf(10 + i))
+                    .produit(produit)
+                    .statut(LotStatus.DISPONIBLE)
+                    .build());
+        }
+        lotDAO.saveAll(lots);
+        stockBalanceService.recalculer(List.of(produit.getId()));
+
+        // Demande totale (~180) supérieure au stock (100) : une partie des bons doit échouer
+        List<Long> bonIds = new ArrayList<>();
+        for (int i = 0; i < NOMBRE_BONS; i++) {
+            bonIds.add(bonDeSortieService.save(BonDeSortieCreateDTO.builder()
+                    .dateSortie(new Date())
+                    .motifSortie("Pool " + i)
+                    .atelierId(atelier.getId())
+                    .lignes(List.of(BonDeSortieLigneDTO.builder()
+                            .produitId(produit.getId())
+                            .quantiteDemandee(1 + i % 5)
+                            .build()))
+                    .build()).getId());
+        }
+
+        double timeoutsAvant = timeouts();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        AtomicInteger valides = new AtomicInteger();
+        Queue<Throwable> echecsInattendus = new ConcurrentLinkedQueue<>();
+
+        for (Long id : bonIds) {
+            executor.submit(() -> {
+                try {
+                    depart.await();
+                    bonDeSortieService.valider(id);
+                    valides.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    if (!e.getMessage().startsWith("Stock insuffisant")
+                            && !e.getMessage().startsWith("Aucun lot disponible")) {
+                        echecsInattendus.add(e);
+                    }
+                } catch (Throwable e) {
+                    echecsInattendus.add(e);
+                }
+            });
+        }
+        depart.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Les validations doivent se terminer");
+
+        assertTrue(echecsInattendus.isEmpty(), () -> "Échecs inattendus: " + echecsInattendus);
+        assertEquals(timeoutsAvant, timeouts(), "Aucune attente de connexion ne doit expirer");
+        assertTrue(valides.get() > 0);
+
+        int sorties = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantite), 0) FROM mouvement_stock WHERE produit_id = ? AND type_mouvement = 'SORTIE'",
+                Integer.class, produit.getId());
+        List<Integer> restants = jdbcTemplate.queryForList(
+                "SELECT quantite_restante FROM lot WHERE produit_id = ? ORDER BY date_entree, id", Integer.class,
+                produit.getId());
+        assertEquals(NOMBRE_LOTS * QUANTITE_PAR_LOT, restants.stream().mapToInt(Integer::intValue).sum() + sorties,
+                "Le stock doit être conservé");
+
+        // FIFO : des lots épuisés, au plus un lot entamé, puis des lots intacts
+        int i = 0;
+        while (i < restants.size() && restants.get(i) == 0) {
+            i++;
+        }
+        if (i < restants.size() && restants.get(i) < QUANTITE_PAR_LOT) {
+            i++;
+        }
+        for (; i < restants.size(); i++) {
+            assertEquals(QUANTITE_PAR_LOT, restants.get(i), "Un lot plus récent a été servi avant un plus ancien");
+        }
+    }
+
+    private double timeouts() {
+        Counter counter = meterRegistry.find("hikaricp.connections.timeout")
+                .tag("pool", DataSourceConfig.POOL_ECRITURE)
+                .counter();
+        assertNotNull(counter, "Les métriques du pool doivent être publiées");
+        return counter.count();
+    }
+}
@@ -0,0 +1,145 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.restapi.gestion_bons.dto.stock.ValorisationArreteDTO;
+import com.restapi.gestion_bons.service.stock.ValorisationFifoPasse;
+
+/**
+ * Feeds the valuation pass with movements in journal order and checks the
+ * FIFO value of each product at every cut-off, each exit taken from its lot.
+ */
+public class ValorisationFifoTest {
+
+    private static final LocalDate JANVIER = LocalDate.of(2024, 1, 31);
+    private static final LocalDate FEVRIER = LocalDate.of(2024, 2, 29);
+    private static final LocalDate MARS = LocalDate.of(2024, 3, 31);
+
+    private final List<ValorisationArreteDTO> lignes = new ArrayList<>();
+
+    @Test
+    void sortiesConsommentLesCouchesLesPlusAnciennes() {
+        ValorisationFifoPasse passe = new ValorisationFifoPasse(List.of(MARS, JANVIER, FEVRIER), lignes::add);
+        mouvement(passe, 1, 10, true, 10, "2.50", date(2024, 1, 5));
+        mouvement(passe, 1, 11, true, 5, "4.00", date(2024, 1, 20));
+        mouvement(passe, 1, 10, false, 10, "2.50", date(2024, 2, 10));
+        mouvement(passe, 1, 11, false, 2, "4.00", date(2024, 2, 10));
+        mouvement(passe, 1, 12, true, 8, "3.00", date(2024, 3, 1));
+        mouvement(passe, 1, 11, false, 3, "4.00", date(2024, 3, 31, 23, 59));
+        passe.terminer();
+
+        assertEquals(6, passe.getMouvements());
+        assertLigne(lignes.get(0), JANVIER, 1, 15, "45.00");
+        assertLigne(lignes.get(1), FEVRIER, 1, 3, "12.00");
+        assertLigne(lignes.get(2), MARS, 1, 8, "24.00");
+    }
+
+    @Test
+    void sortieValoriseeSurLeLotDuMouvement() {
+        ValorisationFifoPasse passe = new ValorisationFifoPasse(List.of(JANVIER), lignes::add);
+        mouvement(passe, 1, 10, true, 5, "2.00", date(2024, 1, 5));
+        mouvement(passe, 1, 11, true, 5, "3.00", date(2024, 1, 6));
+        // le lot le plus ancien a été écarté par l'allocation (périmé, réservé) : la sortie prend le suivant
+        mouvement(passe, 1, 11, false, 4, "3.00", date(2024, 1, 7));
+        passe.terminer();
+
+        assertLigne(lignes.get(0), JANVIER, 1, 6, "13.00");
+    }
+
+    @Test
+    void prixExactsAuDelaDesCentimes() {
+        ValorisationFifoPasse passe = new ValorisationFifoPasse(List.of(JANVIER), lignes::add);
+        mouvement(passe, 1, 10, true, 3, "0.125", date(2024, 1, 5));
+        mouvement(passe, 1, 11, true, 7, "0.1", date(2024, 1, 6));
+        mouvement(passe, 2, 12, true, 1000000, "0.005", date(2024, 1, 6));
+        passe.terminer();
+
+        assertLigne(lignes.get(0), JANVIER, 1, 10, "1.075");
+        assertLigne(lignes.get(1), JANVIER, 2, 1000000, "5000.000");
+    }
+
+    @Test
+    void arreteFinDeJourneeEtProduitsTries() {
+        ValorisationFifoPasse passe = new ValorisationFifoPasse(List.of(JANVIER), lignes::add);
+        mouvement(passe, 7, 70, true, 2, "1.10", date(2024, 1, 31, 23, 59));
+        mouvement(passe, 3, 30, true, 4, "0.25", date(2024, 1, 31, 23, 59));
+        mouvement(passe, 3, 31, true, 1, "9.99", date(2024, 2, 1));
+        passe.terminer();
+
+        assertEquals(2, lignes.size());
+        assertLigne(lignes.get(0), JANVIER, 3, 4, "1.00");
+        assertLigne(lignes.get(1), JANVIER, 7, 2, "2.20");
+    }
+
+    @Test
+    void produitEpuiseOuAvantSaPremiereEntreeAbsent() {
+        ValorisationFifoPasse passe = new ValorisationFifoPasse(List.of(JANVIER, FEVRIER), lignes::add);
+        mouvement(passe, 1, 10, true, 4, "5.00", date(2024, 1, 2));
+        mouvement(passe, 1, 10, false, 4, "5.00", date(2024, 1, 3));
+        mouvement(passe, 2, 20, true, 1, "5.00", date(2024, 2, 2));
+        passe.terminer();
+
+        assertEquals(1, lignes.size());
+        assertLigne(lignes.get(0), FEVRIER, 2, 1, "5.00");
+    }
+
+    @Test
+    void sortieSansEntreePrealableRegleeParLEntreeSuivante() {
+        ValorisationFifoPasse passe = new ValorisationFifoPasse(List.of(JANVIER, FEVRIER), lignes::add);
+        mouvement(passe, 1, 10, false, 3, "2.00", date(2024, 1, 10));
+        mouvement(passe, 1, 10, true, 5, "2.00", date(2024, 2, 10));
+        passe.terminer();
+
+        assertLigne(lignes.get(0), JANVIER, 1, -3, "0.00");
+        assertLigne(lignes.get(1), FEVRIER, 1, 2, "4.00");
+    }
+
+    @Test
+    void nombreDeCouchesCroissant() {
+        ValorisationFifoPasse passe = new ValorisationFifoPasse(List.of(JANVIER), lignes::add);
+        for (int i = 1; i <= 100; i++) {
+            mouvement(passe, 1, i, true, 1, Integer.toString(i), date(2024, 1, 1));
+        }
+        for (int i = 1; i <= 90; i++) {
+            mouvement(passe, 1, i, false, 1, Integer.toString(i), date(2024, 1, 2));
+        }
+        passe.terminer();
+
+        // restent les lots à 91..100
+        assertLigne(lignes.get(0), JANVIER, 1, 10, "955.00");
+    }
+
+    private static void assertLigne(ValorisationArreteDTO ligne, LocalDate arrete, long produitId, int quantite,
+            String valorisation) {
+        assertEquals(arrete, ligne.getDateArrete());
+        assertEquals(produitId, ligne.getProduitId());
+        assertEquals(quantite, ligne.getQuantite());
+        assertEquals(new BigDecimal(valorisation), ligne.getValorisation());
+    }
+
+    /** Hands the price over as {@code MouvementStockExportDAO} does: unscaled value and scale. */
+    private static void mouvement(ValorisationFifoPasse passe, long produitId, long lotId, boolean entree,
+            int quantite, String prix, long dateMillis) {
+        BigDecimal exact = new BigDecimal(prix).stripTrailingZeros();
+        int echelle = Math.max(exact.scale(), 0);
+        passe.mouvement(produitId, lotId, entree, quantite, exact.movePointRight(echelle).longValueExact(), echelle,
+                dateMillis);
+    }
+
+    private static long date(int annee, int mois, int jour) {
+        return date(annee, mois, jour, 12, 0);
+    }
+
+    private static long date(int annee, int mois, int jour, int heure, int minute) {
+        return Timestamp.valueOf(LocalDateTime.of(annee, mois, jour, heure, minute)).getTime();
+    }
+}
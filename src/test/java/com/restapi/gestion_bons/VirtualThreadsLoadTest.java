@@ -0,0 +1,271 @@
+package com.restapi.gestion_bons;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.restapi.gestion_bons.dao.LotDAO;
+import com.restapi.gestion_bons.dao.ProduitDAO;
+import com.restapi.gestion_bons.entitie.Lot;
+import com.restapi.gestion_bons.entitie.Produit;
+import com.restapi.gestion_bons.entitie.enums.LotStatus;
+import com.restapi.gestion_bons.service.stock.StockBalanceService;
+import com.restapi.gestion_bons.util.AppLogger;
+
+import jakarta.servlet.Filter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Load on the stock read endpoints, once with platform request threads and
+ * once with spring.threads.virtual.enabled. Tomcat is capped at 20 platform
+ * threads; with virtual threads the cap no longer applies and requests wait
+ * for a pooled connection instead. p99 latency and the highest number of
+ * requests in flight are logged for both modes. Virtual threads need Java 21:
+ * on older runtimes the property is ignored and only the platform run is
+ * checked. Pinned virtual threads are recorded with JFR into
+ * target/virtual-threads-pinned.jfr.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class VirtualThreadsLoadTest {
+
+    private static final int THREADS_TOMCAT = 20;
+    private static final int CLIENTS = 200;
+    private static final int REQUETES_PAR_CLIENT = 25;
+    private static final int PRODUITS = 50;
+
+    @Container
+    static final MariaDBContainer<?> MARIADB = new MariaDBContainer<>("mariadb:11.4");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    @Test
+    void threadsPlateformeContreThreadsVirtuels() throws Exception {
+        boolean java21 = Runtime.version().feature() >= 21;
+
+        Mesure plateforme = charger(false);
+        AppLogger.info("threads plateforme: " + plateforme);
+        assertEquals(0, plateforme.echecs);
+        assertTrue(plateforme.maxEnCours <= THREADS_TOMCAT,
+                "Les requêtes ne peuvent dépasser le nombre de threads Tomcat");
+
+        if (!java21) {
+            AppLogger.info("threads virtuels: ignorés, Java " + Runtime.version().feature() + " < 21");
+            return;
+        }
+
+        Mesure virtuels;
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withStackTrace().withThreshold(Duration.ofMillis(1));
+            recording.start();
+            virtuels = charger(true);
+            recording.stop();
+            Path fichier = Path.of("target", "virtual-threads-pinned.jfr");
+            Files.createDirectories(fichier.getParent());
+            recording.dump(fichier);
+            journaliserEpinglages(fichier);
+        }
+        AppLogger.info("threads virtuels: " + virtuels);
+        assertEquals(0, virtuels.echecs);
+        assertTrue(virtuels.maxEnCours > THREADS_TOMCAT,
+                "Avec les threads virtuels, la limite de threads Tomcat ne s'applique plus");
+    }
+
+    private Mesure charger(boolean threadsVirtuels) throws Exception {
+        AtomicInteger enCours = new AtomicInteger();
+        AtomicInteger maxEnCours = new AtomicInteger();
+        Filter compteur = (requete, reponse, chaine) -> {
+            maxEnCours.accumulateAndGet(enCours.incrementAndGet(), Math::max);
+            try {
+                chaine.doFilter(requete, reponse);
+            } finally {
+                enCours.decrementAndGet();
+            }
+        };
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                GestionDesBonsDeSortieApplication.class)
+                .properties(
+                        "spring.datasource.url=" + MARIADB.getJdbcUrl(),
+                        "spring.datasource.username=" + MARIADB.getUsername(),
+                        "spring.datasource.password=" + MARIADB.getPassword(),
+                        "server.port=0",
+                        "server.servlet.context-path=/api",
+                        "server.tomcat.threads.max=" + THREADS_TOMCAT,
+                        "spring.threads.virtual.enabled=" + threadsVirtuels)
+                .initializers(ctx -> ((GenericApplicationContext) ctx).registerBean("compteurRequetes",
+                        FilterRegistrationBean.class, () -> new FilterRegistrationBean<>(compteur)))
+                .run()) {
+
+            List<Long> produitIds = preparer(context);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String base = "http://localhost:" + port + "/api/v1/stock";
+            List<String> urls = new ArrayList<>(List.of(base + "?size=20", base + "/valorisation", base + "/export"));
+            produitIds.forEach(id -> urls.add(base + "/produit/" + id));
+
+            // chauffe: JIT, pool de connexions et caches
+            envoyer(urls, 20, 20);
+            maxEnCours.set(0);
+
+            long debut = System.nanoTime();
+            long[] latences = envoyer(urls, CLIENTS, REQUETES_PAR_CLIENT);
+            double secondes = (System.nanoTime() - debut) / 1e9;
+
+            long echecs = Arrays.stream(latences).filter(l -> l < 0).count();
+            long[] reussies = Arrays.stream(latences).filter(l -> l >= 0).sorted().toArray();
+            return new Mesure(
+                    reussies.length == 0 ? 0 : reussies[(int) Math.ceil(reussies.length * 0.99) - 1] / 1_000_000.0,
+                    maxEnCours.get(),
+                    latences.length / secondes,
+                    echecs);
+        }
+    }
+
+    private List<Long> preparer(ConfigurableApplicationContext context) {
+        ProduitDAO produitDAO = context.getBean(ProduitDAO.class);
+        List<Produit> existants = produitDAO.findByCategorie("Charge");
+        if (!existants.isEmpty()) {
+            return existants.stream().map(Produit::getId).toList();
+        }
+
+        String suffixe = UUID.randomUUID().toString().substring(0, 8);
+        List<Produit> produits = new ArrayList<>();
+        for (int i = 0; i < PRODUITS; i++) {
+            produits.add(Produit.builder()
+                    .reference("CHARGE-" + suffixe + "-" + i)
+                    .nom("Produit charge " + suffixe + " " + i)
+                    .categorie("Charge")
+                    .reorderPoint(5)
+                    .build());
+        }
+        produits = produitDAO.saveAll(produits);
+
+        List<Lot> lots = new ArrayList<>();
+        for (Produit produit : produits) {
+            for (int i = 0; i < 10; i++) {
+                lots.add(Lot.builder()
+                        .numeroLot("LOT-CHARGE-" + produit.getId() + "-" + i)
+                        .dateEntree(LocalDateTime.now().minusDays(10 - i))
+                        .quantiteInitiale(100)
+                        .quantiteRestante(100 - i)
+                        .prixAchatUnitaire(BigDecimal.valueOf(10 + i))
+                        .produit(produit)
+                        .statut(LotStatus.DISPONIBLE)
+                        .build());
+            }
+        }
+        context.getBean(LotDAO.class).saveAll(lots);
+        List<Long> ids = produits.stream().map(Produit::getId).toList();
+        context.getBean(StockBalanceService.class).recalculer(ids);
+        return ids;
+    }
+
+    /**
+     * Each client sends its requests one after the other; a failed request is
+     * recorded as a negative latency.
+     */
+    private long[] envoyer(List<String> urls, int clients, int requetesParClient) throws Exception {
+        long[] latences = new long[clients * requetesParClient];
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Callable<Void>> taches = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int premier = c * requetesParClient;
+                taches.add(() -> {
+                    for (int i = 0; i < requetesParClient; i++) {
+                        String url = urls.get((premier + i) % urls.size());
+                        latences[premier + i] = requete(url);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> resultat : executor.invokeAll(taches)) {
+                resultat.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return latences;
+    }
+
+    private long requete(String url) throws InterruptedException {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(60)).GET().build();
+        long debut = System.nanoTime();
+        try {
+            HttpResponse<Void> reponse = client.send(requete, HttpResponse.BodyHandlers.discarding());
+            return reponse.statusCode() == 200 ? System.nanoTime() - debut : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void journaliserEpinglages(Path fichier) throws IOException {
+        List<RecordedEvent> evenements = RecordingFile.readAllEvents(fichier);
+        AppLogger.info("threads virtuels épinglés: " + evenements.size() + " événements (" + fichier + ")");
+        evenements.stream()
+                .filter(e -> e.getStackTrace() != null && !e.getStackTrace().getFrames().isEmpty())
+                .map(e -> cadre(e.getStackTrace().getFrames()))
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+                .entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(10)
+                .forEach(e -> AppLogger.info("  " + e.getValue() + " x " + e.getKey()));
+    }
+
+    /**
+     * First frame outside the JDK: the library or application code that held
+     * the monitor or blocked in native code.
+     */
+    private String cadre(List<RecordedFrame> cadres) {
+        return cadres.stream()
+                .filter(f -> f.isJavaFrame())
+                .map(f -> f.getMethod().getType().getName() + "." + f.getMethod().getName())
+                .filter(m -> !m.startsWith("java.") && !m.startsWith("jdk.") && !m.startsWith("sun."))
+                .findFirst()
+                .orElse(cadres.get(0).getMethod().getType().getName());
+    }
+
+    private record Mesure(double p99Ms, int maxEnCours, double requetesParSeconde, long echecs) {
+
+        @Override
+        public String toString() {
+            return String.format("p99 %.1f ms, %d requêtes en cours au maximum, %.0f requêtes/s, %d échecs",
+                    p99Ms, maxEnCours, requetesParSeconde, echecs);
+        }
+    }
+}